@@ -14,16 +14,32 @@ public interface RemoteBhProgramController {
   /**
    * BhProgram を実行する.
    *
+   * <p>{@code hostname} にカンマまたは空白で区切った複数のホスト名を指定した場合,
+   * BhProgram を 1 度だけコンパイルして全てのホストで並列に実行する.
+   *
    * @param sourceSet コンパイル対象となるノード一覧を提供するオブジェクト
    * @param hostname BhProgram を実行するマシンのホスト名
    * @param uname BhProgram を実行するマシンにログインする際のユーザ名
    * @param password BhProgram を実行するマシンにログインする際のパスワード
-   * @return 成功した場合 true
+   * @return 全てのホストで成功した場合 true
    * @throws UnsupportedOperationException この処理がサポートされていない場合
    */
   boolean launch(SourceSet sourceSet, String hostname, String uname, String password)
       throws UnsupportedOperationException;
 
-  /** {@link #launch} 起動したプログラムを実行する BhRuntime を制御するためのオブジェクトを取得する. */
+  /**
+   * {@link #launch} で起動した BhRuntime を終了する.
+   *
+   * @param hostname BhRuntime を終了するマシンのホスト名.  カンマまたは空白で区切って複数指定できる.
+   * @param uname BhRuntime を終了するマシンにログインする際のユーザ名
+   * @param password BhRuntime を終了するマシンにログインする際のパスワード
+   * @return 全てのホストで成功した場合 true
+   */
+  boolean terminate(String hostname, String uname, String password);
+
+  /**
+   * {@link #launch} 起動したプログラムを実行する BhRuntime を制御するためのオブジェクトを取得する.
+   * 複数のホストでプログラムを起動した場合は, 先頭のホストの BhRuntime を制御するためのオブジェクトを返す.
+   */
   RemoteBhRuntimeController getBhRuntimeCtrl();
 }
@@ -17,9 +17,15 @@
 package net.seapanda.bunnyhop.bhprogram;
 
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import javafx.scene.control.Alert;
 import net.seapanda.bunnyhop.bhprogram.runtime.RemoteBhRuntimeController;
+import net.seapanda.bunnyhop.bhprogram.runtime.RemoteBhRuntimeFleet;
+import net.seapanda.bunnyhop.bhprogram.runtime.RemoteBhRuntimeFleet.TargetResult;
+import net.seapanda.bunnyhop.bhprogram.runtime.RemoteBhRuntimeFleet.TargetStatus;
 import net.seapanda.bunnyhop.common.text.TextDefs;
 import net.seapanda.bunnyhop.compiler.BhCompiler;
 import net.seapanda.bunnyhop.compiler.CompileError;
@@ -36,22 +42,22 @@ import net.seapanda.bunnyhop.service.message.MessageService;
 public class RemoteBhProgramControllerImpl implements RemoteBhProgramController {
   
   private final BhCompiler compiler;
-  private final RemoteBhRuntimeController runtimeCtrl;
+  private final RemoteBhRuntimeFleet fleet;
   private final MessageService msgService;
 
   /**
    * コンストラクタ.
    *
    * @param compiler BhProgram の実行ファイルを作成するのに使うコンパイラ
-   * @param controller BhProgram の実行環境を操作するオブジェクト
+   * @param fleet BhProgram の実行環境を操作するオブジェクト
    * @param msgService アプリケーションユーザにメッセージを出力するためのオブジェクト.
    */
   public RemoteBhProgramControllerImpl(
       BhCompiler compiler,
-      RemoteBhRuntimeController controller,
+      RemoteBhRuntimeFleet fleet,
       MessageService msgService) {
     this.compiler = compiler;
-    this.runtimeCtrl = controller;
+    this.fleet = fleet;
     this.msgService = msgService;
   }
 
@@ -88,11 +94,62 @@ public class RemoteBhProgramControllerImpl implements RemoteBhProgramController
 
   /** プログラムを実行する. */
   private boolean startProgram(Path filePath, String hostname, String uname, String password) {
-    return runtimeCtrl.start(filePath, hostname, uname, password);
+    List<String> hosts = RemoteBhRuntimeFleet.parseHostnames(hostname);
+    if (hosts.size() == 1) {
+      return fleet.getPrimary().start(filePath, hosts.getFirst(), uname, password);
+    }
+    List<TargetResult> results = fleet.start(filePath, hosts, uname, password);
+    return reportResults(results);
+  }
+
+  @Override
+  public boolean terminate(String hostname, String uname, String password) {
+    List<String> hosts = RemoteBhRuntimeFleet.parseHostnames(hostname);
+    if (hosts.size() == 1) {
+      return fleet.getPrimary().terminate(hosts.getFirst(), uname, password);
+    }
+    List<TargetResult> results = fleet.terminate(hosts, uname, password);
+    return reportResults(results);
+  }
+
+  /**
+   * 複数のホストに対する操作の結果と, 操作後の各ホストの BhRuntime の状態をアプリケーションユーザに伝える.
+   *
+   * @return 全てのホストに対する操作が成功した場合 true
+   */
+  private boolean reportResults(List<TargetResult> results) {
+    String failedHosts = results.stream()
+        .filter(result -> !result.success())
+        .map(TargetResult::hostname)
+        .collect(Collectors.joining(", "));
+    long numSucceeded = results.stream().filter(TargetResult::success).count();
+    msgService.info(TextDefs.BhRuntime.Remote.fleetResult.get(results.size(), numSucceeded));
+    Map<String, TargetStatus> statuses = fleet.getStatuses();
+    for (TargetResult result : results) {
+      TargetStatus status = statuses.get(result.hostname());
+      if (status != null) {
+        msgService.info(TextDefs.BhRuntime.Remote.fleetHostStatus.get(
+            result.hostname(), getStatusText(status)));
+      }
+    }
+    if (!failedHosts.isEmpty()) {
+      msgService.error(TextDefs.BhRuntime.Remote.fleetFailedHosts.get(failedHosts));
+    }
+    return failedHosts.isEmpty();
+  }
+
+  /** {@code status} をアプリケーションユーザに示す文字列を返す. */
+  private static String getStatusText(TargetStatus status) {
+    return switch (status) {
+      case DEPLOYING -> TextDefs.BhRuntime.Remote.FleetStatus.deploying.get();
+      case RUNNING -> TextDefs.BhRuntime.Remote.FleetStatus.running.get();
+      case FAILED -> TextDefs.BhRuntime.Remote.FleetStatus.failed.get();
+      case TERMINATED -> TextDefs.BhRuntime.Remote.FleetStatus.terminated.get();
+    };
   }
 
   @Override
   public RemoteBhRuntimeController getBhRuntimeCtrl() {
-    return runtimeCtrl;
+    return fleet.getPrimary();
   }
 }
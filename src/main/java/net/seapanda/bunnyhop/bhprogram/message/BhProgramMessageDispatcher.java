@@ -16,6 +16,14 @@
 
 package net.seapanda.bunnyhop.bhprogram.message;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javafx.application.Platform;
 import net.seapanda.bunnyhop.bhprogram.BhRuntimeController;
 import net.seapanda.bunnyhop.bhprogram.common.message.BhProgramMessage;
 import net.seapanda.bunnyhop.bhprogram.common.message.BhProgramNotification;
@@ -31,24 +39,44 @@ import net.seapanda.bunnyhop.bhprogram.common.message.simulator.BhSimulatorCmd;
 import net.seapanda.bunnyhop.bhprogram.common.message.simulator.StringBhSimulatorCmd;
 import net.seapanda.bunnyhop.bhprogram.common.message.simulator.StringBhSimulatorResp;
 import net.seapanda.bunnyhop.bhprogram.common.message.thread.BhThreadContext;
-import net.seapanda.bunnyhop.bhprogram.runtime.BhRuntimeTransceiver;
 import net.seapanda.bunnyhop.debugger.model.DebugMessageProcessor;
+import net.seapanda.bunnyhop.service.LogManager;
 import net.seapanda.bunnyhop.service.accesscontrol.TransactionNotificationService;
 import net.seapanda.bunnyhop.simulator.SimulatorCmdProcessor;
-import net.seapanda.bunnyhop.ui.view.ViewUtil;
 
 /**
  * {@link BhProgramMessage} を適切なクラスに渡す.
  *
+ * <p>受信したメッセージはキューに溜めておき, UI スレッドでまとめて処理する.
+ * 1 回にまとめて処理するメッセージは 1 つのトランザクションの中で処理し,
+ * 連続する {@link OutputTextCmd} は 1 回の出力にまとめる.
+ *
  * @author K.Koike
  */
 public class BhProgramMessageDispatcher {
-  
+
+  /** UI スレッドで 1 回にまとめて処理するメッセージの最大数. */
+  private static final int MAX_MESSAGES_PER_BATCH = 512;
+  /** 処理したメッセージのスループットをログに出力する間隔 (ns). */
+  private static final long THROUGHPUT_LOG_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+  /** 受信したが, まだ処理していないメッセージのキュー. */
+  private final Queue<ReceivedMessage> receivedMessages = new ConcurrentLinkedQueue<>();
+  /** {@link #receivedMessages} のサイズ. */
+  private final AtomicInteger queueDepth = new AtomicInteger(0);
+  /** {@link #receivedMessages} のメッセージを処理するタスクを UI スレッドに登録済みの場合 true. */
+  private final AtomicBoolean isDrainScheduled = new AtomicBoolean(false);
+  /** {@link #throughputLogBeginTime} 以降に処理したメッセージの数. */
+  private long numDispatched = 0;
+  /** {@link #throughputLogBeginTime} 以降の {@link #receivedMessages} の最大サイズ. */
+  private int maxQueueDepth = 0;
+  /** スループットの計測を開始した時刻 (ns). */
+  private long throughputLogBeginTime = System.nanoTime();
   /** BhProgram とやりとりする IO メッセージを処理するオブジェクト. */
   private final IoMessageProcessor ioMsgProcessor;
-  /** BhProgram とやりとりするデバッグメッセージを処理するオブジェクト. */
+  /** BhProgram とやりとりするデバッグメッセージを処理するオブジェクト.  null の場合, デバッグメッセージは捨てる. */
   private final DebugMessageProcessor debugMsgProcessor;
-  /** {@link BhSimulatorCmd} を処理するオブジェクト. */
+  /** {@link BhSimulatorCmd} を処理するオブジェクト.  null の場合, シミュレータコマンドには失敗を応答する. */
   private final SimulatorCmdProcessor simCmdProcessor;
   /** モデルへのアクセスの通知先となるオブジェクト. */
   private final TransactionNotificationService notifService;
@@ -72,6 +100,21 @@ public class BhProgramMessageDispatcher {
     runtimeCtrl.getCallbackRegistry().getOnMsgCarrierRenewed()
         .add(event -> replaceMsgCarrier(event.oldCarrier(), event.newCarrier()));
   }
+
+  /**
+   * IO メッセージだけを処理するオブジェクトを作成する.
+   *
+   * <p>デバッガとシミュレータは 1 つの BhRuntime とやりとりすることを前提としているので,
+   * それ以外の BhRuntime から受信したデバッグメッセージは捨て, シミュレータコマンドには失敗を応答する.
+   *
+   * @param ioMessageProcessor IO メッセージを処理するオブジェクト
+   */
+  public BhProgramMessageDispatcher(
+      IoMessageProcessor ioMessageProcessor,
+      BhRuntimeController runtimeCtrl,
+      TransactionNotificationService notifService) {
+    this(ioMessageProcessor, null, null, runtimeCtrl, notifService);
+  }
   
   /**
    * BhProgram との通信に使う {@link BhProgramMessageCarrier} を交換する.
@@ -85,26 +128,101 @@ public class BhProgramMessageDispatcher {
       oldCarrier.setOnNotifReceived(null);
       oldCarrier.setOnRespReceived(null);
     }
-    newCarrier.setOnNotifReceived(msg -> dispatchNotifAsync(newCarrier, msg));
-    newCarrier.setOnRespReceived(this::dispatchRespAsync);
+    newCarrier.setOnNotifReceived(msg -> enqueue(new ReceivedMessage(newCarrier, msg)));
+    newCarrier.setOnRespReceived(resp -> enqueue(new ReceivedMessage(null, resp)));
   }
 
   /**
-   * {@code notif} を適切なクラスへと渡す.
+   * 受信したメッセージをキューに追加し, 必要であればキューのメッセージを処理するタスクを UI スレッドに登録する.
    *
-   * @param carrier {@code msg} を受信した {@link BhRuntimeTransceiver}.
-   * @param notif 処理する通知.
+   * @param msg キューに追加するメッセージ
    */
-  private synchronized void dispatchNotifAsync(
-      BhProgramMessageCarrier carrier, BhProgramNotification notif) {
-    ViewUtil.runSafe(() -> {
+  private void enqueue(ReceivedMessage msg) {
+    receivedMessages.offer(msg);
+    queueDepth.incrementAndGet();
+    if (isDrainScheduled.compareAndSet(false, true)) {
+      Platform.runLater(this::drain);
+    }
+  }
+
+  /**
+   * キューから最大 {@link #MAX_MESSAGES_PER_BATCH} 個のメッセージを取り出して処理する.
+   * キューにメッセージが残っている場合, 残りは次回以降の UI スレッドのタスクで処理する.
+   */
+  private void drain() {
+    int depth = queueDepth.get();
+    var batch = new ArrayList<ReceivedMessage>(Math.min(depth, MAX_MESSAGES_PER_BATCH));
+    ReceivedMessage msg;
+    while (batch.size() < MAX_MESSAGES_PER_BATCH && (msg = receivedMessages.poll()) != null) {
+      batch.add(msg);
+    }
+    queueDepth.addAndGet(-batch.size());
+    try {
       notifService.begin();
       try {
-        dispatchNotif(carrier, notif);
+        dispatch(batch);
       } finally {
         notifService.end();
       }
-    });
+      updateThroughput(batch.size(), depth);
+    } finally {
+      // 処理中に例外が発生しても, 以降に受信したメッセージを処理できるようにする
+      isDrainScheduled.set(false);
+      if (!receivedMessages.isEmpty() && isDrainScheduled.compareAndSet(false, true)) {
+        Platform.runLater(this::drain);
+      }
+    }
+  }
+
+  /**
+   * {@code batch} のメッセージを順に適切なクラスへと渡す.
+   * 同じ {@link BhProgramMessageCarrier} から連続して受信した {@link OutputTextCmd} はまとめて処理する.
+   * あるメッセージの処理中に例外が発生しても, 残りのメッセージは処理する.
+   */
+  private void dispatch(List<ReceivedMessage> batch) {
+    var outputCmds = new ArrayList<OutputTextCmd>();
+    BhProgramMessageCarrier outputCmdCarrier = null;
+    for (ReceivedMessage received : batch) {
+      if (received.msg() instanceof OutputTextCmd cmd
+          && (outputCmds.isEmpty() || outputCmdCarrier == received.carrier())) {
+        outputCmds.add(cmd);
+        outputCmdCarrier = received.carrier();
+        continue;
+      }
+      dispatchOutputTextCmds(outputCmdCarrier, outputCmds);
+      if (received.msg() instanceof OutputTextCmd cmd) {
+        outputCmds.add(cmd);
+        outputCmdCarrier = received.carrier();
+        continue;
+      }
+      try {
+        if (received.msg() instanceof BhProgramNotification notif) {
+          dispatchNotif(received.carrier(), notif);
+        } else if (received.msg() instanceof BhProgramResponse resp) {
+          dispatchResp(resp);
+        }
+      } catch (Exception e) {
+        LogManager.logger().error(
+            "Failed to process %s.\n%s".formatted(received.msg().getClass().getSimpleName(), e));
+      }
+    }
+    dispatchOutputTextCmds(outputCmdCarrier, outputCmds);
+  }
+
+  /** {@code cmds} をまとめて処理して, 各コマンドの応答を {@code carrier} に送り, {@code cmds} を空にする. */
+  private void dispatchOutputTextCmds(
+      BhProgramMessageCarrier carrier, List<OutputTextCmd> cmds) {
+    if (cmds.isEmpty()) {
+      return;
+    }
+    try {
+      ioMsgProcessor.process(cmds).forEach(carrier::pushResponse);
+    } catch (Exception e) {
+      LogManager.logger().error(
+          "Failed to process %s OutputTextCmds.\n%s".formatted(cmds.size(), e));
+    } finally {
+      cmds.clear();
+    }
   }
 
   private void dispatchNotif(BhProgramMessageCarrier carrier, BhProgramNotification notif) {
@@ -112,7 +230,11 @@ public class BhProgramMessageDispatcher {
       case OutputTextCmd
           cmd -> carrier.pushResponse(ioMsgProcessor.process(cmd));
       case BhThreadContext
-          context -> debugMsgProcessor.process(context);
+          context -> {
+            if (debugMsgProcessor != null) {
+              debugMsgProcessor.process(context);
+            }
+          }
       case StringBhSimulatorCmd
           cmd -> dispatchSimulatorCmd(cmd, carrier);
       default -> { /* Do nothing. */ }
@@ -121,6 +243,10 @@ public class BhProgramMessageDispatcher {
 
   /** {@link StringBhSimulatorCmd} をシミュレータに送る. */
   private void dispatchSimulatorCmd(StringBhSimulatorCmd cmd, BhProgramMessageCarrier carrier) {
+    if (simCmdProcessor == null) {
+      carrier.pushResponse(new StringBhSimulatorResp(cmd.getId(), false, new String[0]));
+      return;
+    }
     simCmdProcessor.process(
         cmd.getComponents(),
         (success, resp) -> {
@@ -129,19 +255,10 @@ public class BhProgramMessageDispatcher {
         });
   }
 
-  /** {@code resp} を適切なクラスへと渡す. */
-  private synchronized void dispatchRespAsync(BhProgramResponse response) {
-    ViewUtil.runSafe(() -> {
-      notifService.begin();
-      try {
-        dispatchResp(response);
-      } finally {
-        notifService.end();
-      }
-    });
-  }
-
   private void dispatchResp(BhProgramResponse response) {
+    if (debugMsgProcessor == null && !(response instanceof InputTextResp)) {
+      return;
+    }
     switch (response) {
       case InputTextResp resp -> ioMsgProcessor.process(resp);
       case GetLocalVarsResp resp -> debugMsgProcessor.process(resp);
@@ -152,4 +269,34 @@ public class BhProgramMessageDispatcher {
       default -> { /* Do nothing. */ }
     }
   }
+
+  /**
+   * 処理したメッセージのスループットとキューの深さを集計し, 一定時間ごとにログに出力する.
+   *
+   * @param numMessages 今回処理したメッセージの数
+   * @param depth 今回の処理を始める前のキューの深さ
+   */
+  private void updateThroughput(int numMessages, int depth) {
+    numDispatched += numMessages;
+    maxQueueDepth = Math.max(maxQueueDepth, depth);
+    long elapsed = System.nanoTime() - throughputLogBeginTime;
+    if (elapsed < THROUGHPUT_LOG_INTERVAL) {
+      return;
+    }
+    double msgsPerSec = numDispatched / (elapsed / (double) TimeUnit.SECONDS.toNanos(1));
+    LogManager.logger().info(
+        "BhProgram messages: %.1f msg/s dispatched, queue depth %d (max %d)".formatted(
+            msgsPerSec, queueDepth.get(), maxQueueDepth));
+    numDispatched = 0;
+    maxQueueDepth = 0;
+    throughputLogBeginTime = System.nanoTime();
+  }
+
+  /**
+   * 受信したメッセージ.
+   *
+   * @param carrier {@code msg} を受信した {@link BhProgramMessageCarrier}.  {@code msg} が応答の場合は null.
+   * @param msg 受信したメッセージ
+   */
+  private record ReceivedMessage(BhProgramMessageCarrier carrier, BhProgramMessage msg) {}
 }
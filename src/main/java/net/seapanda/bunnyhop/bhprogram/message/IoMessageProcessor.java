@@ -17,6 +17,7 @@
 package net.seapanda.bunnyhop.bhprogram.message;
 
 
+import java.util.SequencedCollection;
 import net.seapanda.bunnyhop.bhprogram.common.message.io.InputTextResp;
 import net.seapanda.bunnyhop.bhprogram.common.message.io.OutputTextCmd;
 import net.seapanda.bunnyhop.bhprogram.common.message.io.OutputTextResp;
@@ -36,6 +37,14 @@ public interface IoMessageProcessor {
    */
   OutputTextResp process(OutputTextCmd cmd);
 
+  /**
+   * 連続して受信した {@link OutputTextCmd} をまとめて処理する.
+   *
+   * @param cmds 処理するコマンドのリスト
+   * @return {@code cmds} の各コマンドに対応する応答データのリスト.  順序は {@code cmds} と同じ.
+   */
+  SequencedCollection<OutputTextResp> process(SequencedCollection<OutputTextCmd> cmds);
+
   /**
    * {@link InputTextResp} を処理する.
    *
@@ -17,6 +17,8 @@
 package net.seapanda.bunnyhop.bhprogram.message;
 
 
+import java.util.ArrayList;
+import java.util.SequencedCollection;
 import net.seapanda.bunnyhop.bhprogram.common.message.io.InputTextResp;
 import net.seapanda.bunnyhop.bhprogram.common.message.io.OutputTextCmd;
 import net.seapanda.bunnyhop.bhprogram.common.message.io.OutputTextResp;
@@ -48,6 +50,20 @@ public class IoMessageProcessorImpl implements IoMessageProcessor {
     return new OutputTextResp(cmd.getId(), true, cmd.text);
   }
 
+  @Override
+  public SequencedCollection<OutputTextResp> process(SequencedCollection<OutputTextCmd> cmds) {
+    var text = new StringBuilder();
+    var resps = new ArrayList<OutputTextResp>(cmds.size());
+    for (OutputTextCmd cmd : cmds) {
+      text.append(cmd.text);
+      resps.add(new OutputTextResp(cmd.getId(), true, cmd.text));
+    }
+    if (!text.isEmpty()) {
+      msgService.info(text.toString());
+    }
+    return resps;
+  }
+
   @Override
   public void process(InputTextResp resp) {
     if (!resp.success) {
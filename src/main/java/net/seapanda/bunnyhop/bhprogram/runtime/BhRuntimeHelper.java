@@ -17,14 +17,17 @@
 package net.seapanda.bunnyhop.bhprogram.runtime;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.MalformedURLException;
 import java.rmi.Naming;
 import java.rmi.NotBoundException;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import net.seapanda.bunnyhop.bhprogram.common.BhRuntimeFacade;
@@ -93,75 +96,90 @@ class BhRuntimeHelper {
    * BhProgram が公開する RMI オブジェクトを取得する.
    *
    * @param timeout タイムアウト (ms)
+   * @param trace BhRuntime の起動過程を記録するオブジェクト
+   * @param onTimeout タイムアウトした場合に {@code br} の読み出し元を閉じる処理.
+   *                  {@code br} の読み出しを待っているスレッドはこの処理で EOF を受け取る.
    */
-  static BhRuntimeFacade getBhRuntimeFacade(String hostname, BufferedReader br, int timeout)
+  static BhRuntimeFacade getBhRuntimeFacade(
+      String hostname,
+      BufferedReader br,
+      int timeout,
+      BhRuntimeStartupTrace trace,
+      Runnable onTimeout)
       throws IOException,
       TimeoutException, 
       MalformedURLException, 
       NotBoundException, 
       RemoteException {
-    String portStr = getSuffixedLine(
-        br,
-        BhConstants.BhRuntime.RMI_TCP_PORT_SUFFIX,
-        timeout);
+    String portStr = callWithTimeout(
+        () -> readSuffixedLine(br, BhConstants.BhRuntime.RMI_TCP_PORT_SUFFIX),
+        timeout,
+        onTimeout);
+    trace.markPortKnown();
     int port = Integer.parseInt(portStr);
     // リモートオブジェクト取得
-    return (BhRuntimeFacade) findRemoteObj(
+    var facade = (BhRuntimeFacade) findRemoteObj(
         hostname, port, BhRuntimeFacade.class.getSimpleName());
+    trace.markLookedUp();
+    return facade;
   }
 
   /**
-   * <pre>
-   * 引数で指定したサフィックスが付いた1行をBufferedReaderから読み込んで, サフィックスを取り除いて返す.
-   * 指定したサフィックスが付いていな行は読み飛ばす.
-   * EOFのある行は判定対象外.
-   * </pre>
+   * 引数で指定したサフィックスが付いた 1 行を {@code br} から読み込んで, サフィックスを取り除いて返す.
+   * 指定したサフィックスが付いていない行は読み飛ばす.
    *
    * @param br このオブジェクトからテキストを読み出す
    * @param suffix このサフィックスが付いた行を返す
-   * @param timeout 読み取りを試みる時間 (ms)
    * @return 引数で指定したサフィックスが付いた1行からサフィックスを取り除いた文字列
-   * @throws IOException 入出力エラーが発生した際の例外
-   * @throws TimeoutException タイムアウトした際の例外
+   * @throws IOException 入出力エラーが発生した場合や, サフィックスの付いた行を読む前に EOF に達した場合
    */
-  private static String getSuffixedLine(BufferedReader br, String suffix, long timeout)
+  private static String readSuffixedLine(BufferedReader br, String suffix) throws IOException {
+    String line;
+    while ((line = br.readLine()) != null) {
+      if (line.endsWith(suffix)) {
+        return line.substring(0, line.length() - suffix.length());
+      }
+    }
+    throw new EOFException("Reached EOF before reading a line ending with '%s'".formatted(suffix));
+  }
+
+  /**
+   * {@code task} を別スレッドで実行し, その結果を返す.
+   * {@code timeout} までに完了しなかった場合は, {@code onTimeout} を呼んでから
+   * {@code task} を実行するスレッドに割り込みをかける.
+   *
+   * <p>ストリームの読み出しを待っているスレッドは割り込みでは止まらない.
+   * また, {@link BufferedReader} は読み出し中のロックを保持するので, 読み出し中に閉じようとすると読み出しが終わるまで待つ.
+   * そのため, {@code onTimeout} ではプロセスの終了やチャンネルの切断によって読み出し元を閉じて,
+   * {@code task} の読み出しを終わらせること.
+   *
+   * @param task 実行する処理
+   * @param timeout タイムアウト (ms)
+   * @param onTimeout タイムアウトした場合と待機中に割り込まれた場合に呼ぶ処理
+   * @return {@code task} の実行結果
+   * @throws IOException {@code task} が例外を投げた場合や, 待機中に割り込まれた場合
+   * @throws TimeoutException タイムアウトした場合
+   */
+  static <T> T callWithTimeout(Callable<T> task, long timeout, Runnable onTimeout)
       throws IOException, TimeoutException {
-    String readStr = "";
-    long begin = System.currentTimeMillis();
-    List<Character> charCodeList = new ArrayList<>();
+    var future = new FutureTask<>(task);
+    Thread.ofVirtual().name("bh-runtime-helper").start(future);
     try {
-      while (true) {
-        if ((System.currentTimeMillis() - begin) > timeout) {
-          throw new TimeoutException("getSuffixedLine timeout");
-        }
-        if (br.ready()) {  // 次の読み出し結果が EOF の場合 false
-          int charCode = br.read();
-          switch (charCode) {
-            case '\r':
-            case '\n':
-              char[] charCodeArray = new char[charCodeList.size()];
-              for (int i = 0; i < charCodeArray.length; ++i) {
-                charCodeArray[i] = charCodeList.get(i);
-              }
-              readStr = new String(charCodeArray);  //サイズ0の配列の場合 readStr == '\0'
-              charCodeList.clear();
-              break;
-
-            default:  // 改行以外の文字コード
-              charCodeList.add((char) charCode);
-              continue;
-          }
-        } else {
-          Thread.sleep(100);
-          continue;
-        }
-
-        if (readStr.endsWith(suffix)) {
-          break;
-        }
+      return future.get(timeout, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      onTimeout.run();
+      future.cancel(true);
+      throw e;
+    } catch (InterruptedException e) {
+      onTimeout.run();
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException ioe) {
+        throw ioe;
       }
-    } catch (InterruptedException  e) { /* do nothing */ }
-    readStr = readStr.substring(0, readStr.length() - suffix.length());
-    return readStr;
+      throw new IOException(e.getCause());
+    }
   }
 }
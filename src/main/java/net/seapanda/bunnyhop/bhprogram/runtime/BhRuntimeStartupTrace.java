@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.bhprogram.runtime;
+
+import net.seapanda.bunnyhop.service.LogManager;
+
+/**
+ * BhRuntime の起動から接続までの各段階の時刻を記録してログに出力するクラス.
+ *
+ * @author K.Koike
+ */
+class BhRuntimeStartupTrace {
+
+  /** 起動した BhRuntime の説明. */
+  private final String target;
+  /** BhRuntime を起動した時刻 (ns). */
+  private long spawned = System.nanoTime();
+  /** BhRuntime の RMI レジストリのポート番号が判明した時刻 (ns).  0 の場合は未到達. */
+  private long portKnown = 0;
+  /** BhRuntime の RMI オブジェクトを取得した時刻 (ns).  0 の場合は未到達. */
+  private long lookedUp = 0;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param target 起動する BhRuntime の説明
+   */
+  BhRuntimeStartupTrace(String target) {
+    this.target = target;
+  }
+
+  /** BhRuntime を起動した時刻を記録する. */
+  synchronized void markSpawned() {
+    spawned = System.nanoTime();
+  }
+
+  /** BhRuntime の RMI レジストリのポート番号が判明した時刻を記録する. */
+  synchronized void markPortKnown() {
+    portKnown = System.nanoTime();
+  }
+
+  /** BhRuntime の RMI オブジェクトを取得した時刻を記録する. */
+  synchronized void markLookedUp() {
+    lookedUp = System.nanoTime();
+  }
+
+  /** BhRuntime に接続したことを, それまでに記録した時刻と共にログに出力する. */
+  synchronized void logConnected() {
+    LogManager.logger().info(
+        "BhRuntime startup (%s): port known %s, RMI lookup %s, connected %s  (ms after spawn)"
+        .formatted(target, elapsed(portKnown), elapsed(lookedUp), elapsed(System.nanoTime())));
+  }
+
+  private String elapsed(long time) {
+    return (time == 0) ? "-" : Long.toString((time - spawned) / 1000_000);
+  }
+}
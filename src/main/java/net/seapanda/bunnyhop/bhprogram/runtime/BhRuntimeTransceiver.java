@@ -20,6 +20,7 @@ import java.rmi.RemoteException;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -45,12 +46,17 @@ import net.seapanda.bunnyhop.utility.concurrent.SynchronizingTimer;
 public class BhRuntimeTransceiver {
 
   private static final AtomicInteger nextId = new AtomicInteger(0);
+  /** BhProgram と通信するタスクの数. */
+  private static final int NUM_TASKS = 4;
   /** 接続状態. */
   private final AtomicBoolean connected = new AtomicBoolean(false);
-  /** BhProgram との通信用 {@link ExecutorService} のセット. */
-  private final ExecutorSet executors = new ExecutorSet();
+  /** BhProgram と通信するタスクを実行する {@link ExecutorService}. */
+  private ExecutorService executor;
   private FutureSet futures;
-  private final TaskEndFlags endFlags = new TaskEndFlags(false, false, false, false);
+  /** {@link #executor} に登録した BhProgram と通信するタスクのリスト. */
+  private List<CountDownTask> tasks;
+  /** BhProgram と通信するタスクが全て終了したときに 0 になるラッチ. */
+  private CountDownLatch taskEndLatch;
   private final SynchronizingTimer connectionWait = new SynchronizingTimer(1, true);
   /** {@link BhProgramMessage} を送受信するためのオブジェクト. */
   private final BhProgramMessageCarrierImpl carrier;
@@ -61,6 +67,8 @@ public class BhRuntimeTransceiver {
    * RMI Server が同じ TCP ポートでも新しく起動したプロセスと通信することはない.
    */
   private final BhRuntimeFacade runtimeFacade;
+  /** 最初の {@link BhProgramNotification} を受信したときに呼ぶ処理. */
+  private volatile Runnable onFirstNotifReceived;
   public final int id;
 
   /**
@@ -115,11 +123,20 @@ public class BhRuntimeTransceiver {
     if (futures != null) {
       return;
     }
+    executor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("bh-runtime-transceiver-%s-".formatted(id), 0).factory());
+    taskEndLatch = new CountDownLatch(NUM_TASKS);
+    tasks = List.of(
+        new CountDownTask(carrier::recvNotif, taskEndLatch),
+        new CountDownTask(carrier::sendNotif, taskEndLatch),
+        new CountDownTask(carrier::recvResp, taskEndLatch),
+        new CountDownTask(carrier::sendResp, taskEndLatch));
     futures = new FutureSet(
-        executors.recvNotifTask.submit(carrier::recvNotif),
-        executors.sendNotifTask.submit(carrier::sendNotif),
-        executors.recvRespTask.submit(carrier::recvResp),
-        executors.sendRespTask.submit(carrier::sendResp));
+        executor.submit(tasks.get(0)),
+        executor.submit(tasks.get(1)),
+        executor.submit(tasks.get(2)),
+        executor.submit(tasks.get(3)));
+    executor.shutdown();
   }
 
   /**
@@ -139,6 +156,9 @@ public class BhRuntimeTransceiver {
     for (Future<?> future : futures.toList()) {
       future.cancel(true);
     }
+    executor.shutdownNow();
+    // 開始前にキャンセルされたタスクは実行されないので, ここでカウントダウンする
+    tasks.forEach(CountDownTask::discardIfNotStarted);
 
     boolean success = true;
     timeout = Math.max(timeout, 0);
@@ -149,22 +169,29 @@ public class BhRuntimeTransceiver {
       }
     }
     futures = null;
+    tasks = null;
+    executor = null;
     return success;
   }
 
   private boolean waitForTasksCancelled(int timeout) {
-    long begin = System.currentTimeMillis();
-    while (true) {
-      boolean allDone = endFlags.toList().stream().allMatch(AtomicBoolean::get);
-      if (allDone) {
-        return true;
-      }
-      if ((System.currentTimeMillis() - begin) > timeout) {
-        return false;
-      }
+    try {
+      return taskEndLatch.await(timeout, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
     }
   }
 
+  /**
+   * 最初の {@link BhProgramNotification} を受信したときに 1 度だけ呼ぶ処理を設定する.
+   *
+   * @param handler 設定する処理.  null を指定した場合, 設定を解除する.
+   */
+  void setOnFirstNotifReceived(Runnable handler) {
+    onFirstNotifReceived = handler;
+  }
+
   /** {@link BhProgramMessage} の送受信機能を持ったオブジェクトを返す. */
   public BhProgramMessageCarrier getMessageCarrier() {
     return carrier;
@@ -182,46 +209,40 @@ public class BhRuntimeTransceiver {
     }
   }
 
-  /** BhProgram と通信するタスクの終了フラグのセット. */
-  private record TaskEndFlags(
-      AtomicBoolean recvNotif,
-      AtomicBoolean sendNotif,
-      AtomicBoolean recvResp,
-      AtomicBoolean sendResp) {
+  /**
+   * 終了時にラッチをカウントダウンするタスク.
+   *
+   * <p>開始前に破棄された場合も含めて, ラッチのカウントダウンは 1 度だけ行う.
+   */
+  private static class CountDownTask implements Runnable {
 
-    public TaskEndFlags(boolean recvNotif, boolean sendNotif, boolean recvResp, boolean sendResp) {
-      this(
-          new AtomicBoolean(recvNotif),
-          new AtomicBoolean(sendNotif),
-          new AtomicBoolean(recvResp),
-          new AtomicBoolean(sendResp));
-    }
+    private final Runnable task;
+    private final CountDownLatch latch;
+    /** タスクの実行を開始したか, 開始前に破棄されたときに true になる. */
+    private final AtomicBoolean claimed = new AtomicBoolean(false);
 
-    public List<AtomicBoolean> toList() {
-      return List.of(recvNotif, sendNotif, recvResp, sendResp);
+    CountDownTask(Runnable task, CountDownLatch latch) {
+      this.task = task;
+      this.latch = latch;
     }
-  }
 
-  /**
-   * BhProgram と通信するタスクを実行する {@link ExecutorService} オブジェクト.
-   *
-   * @param recvNotifTask コマンド受信用.
-   * @param sendNotifTask コマンド送信用.
-   * @param recvRespTask レスポンス受信用.
-   * @param sendRespTask レスポンス送信用.
-   */
-  private record ExecutorSet(
-      ExecutorService recvNotifTask,
-      ExecutorService sendNotifTask,
-      ExecutorService recvRespTask,
-      ExecutorService sendRespTask) {
+    @Override
+    public void run() {
+      if (!claimed.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        task.run();
+      } finally {
+        latch.countDown();
+      }
+    }
 
-    ExecutorSet() {
-      this(
-          Executors.newSingleThreadExecutor(),
-          Executors.newSingleThreadExecutor(),
-          Executors.newSingleThreadExecutor(),
-          Executors.newSingleThreadExecutor());
+    /** タスクの実行が開始されていない場合, 以降実行されないようにしてラッチをカウントダウンする. */
+    void discardIfNotStarted() {
+      if (claimed.compareAndSet(false, true)) {
+        latch.countDown();
+      }
     }
   }
 
@@ -247,6 +268,11 @@ public class BhRuntimeTransceiver {
         try {
           connectionWait.awaitInterruptibly();
           BhProgramNotification notif = runtimeFacade.recvNotifFromRuntime();
+          Runnable onFirstReceived = onFirstNotifReceived;
+          if (notif != null && onFirstReceived != null) {
+            onFirstNotifReceived = null;
+            onFirstReceived.run();
+          }
           if (notif != null) {
             onNotifReceived.get().accept(notif);
           }
@@ -258,7 +284,6 @@ public class BhRuntimeTransceiver {
           break;
         }
       }
-      endFlags.recvNotif().set(true);
     }
 
     /** BhProgram の実行環境に {@link BhProgramNotification} を送信し続ける. */
@@ -283,7 +308,6 @@ public class BhRuntimeTransceiver {
           break;
         }
       }
-      endFlags.sendNotif().set(true);
     }
 
     /** BhProgram の実行環境から {@link BhProgramResponse} を受信し続ける. */
@@ -302,7 +326,6 @@ public class BhRuntimeTransceiver {
           break;
         }
       }
-      endFlags.recvResp().set(true);
     }
 
     /** BhProgram の実行環境に {@link BhProgramResponse} を送信し続ける. */
@@ -327,7 +350,6 @@ public class BhRuntimeTransceiver {
           break;
         }
       }
-      endFlags.sendResp().set(true);
     }
 
     @Override
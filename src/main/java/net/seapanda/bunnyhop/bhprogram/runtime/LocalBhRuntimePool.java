@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.bhprogram.runtime;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import net.seapanda.bunnyhop.bhprogram.common.BhRuntimeFacade;
+import net.seapanda.bunnyhop.common.configuration.BhConstants;
+import net.seapanda.bunnyhop.service.LogManager;
+import net.seapanda.bunnyhop.utility.Utility;
+
+/**
+ * ローカル環境で BhRuntime を起動し, 起動済みの BhRuntime を待機させておくクラス.
+ *
+ * <p>待機中の BhRuntime が取り出されると, 代わりの BhRuntime をバックグラウンドで起動する.
+ *
+ * @author K.Koike
+ */
+class LocalBhRuntimePool {
+
+  /** 待機させておく BhRuntime の数. */
+  private final int numStandbys;
+  /** 待機中の BhRuntime. */
+  private final Deque<LocalBhRuntime> standbys = new ArrayDeque<>();
+  /** 待機させるために起動中の BhRuntime の数. */
+  private int numStarting = 0;
+  private boolean isShutdown = false;
+  /** 待機させる BhRuntime を起動する {@link ExecutorService}. */
+  private final ExecutorService executor =
+      Executors.newSingleThreadExecutor(Thread.ofVirtual().name("bh-runtime-pool").factory());
+
+  /**
+   * コンストラクタ.
+   *
+   * @param numStandbys 待機させておく BhRuntime の数.  0 の場合, BhRuntime を待機させない.
+   */
+  LocalBhRuntimePool(int numStandbys) {
+    this.numStandbys = Math.max(numStandbys, 0);
+    replenish();
+  }
+
+  /**
+   * 待機中の BhRuntime を取り出す.
+   *
+   * @return 待機中の BhRuntime.  待機中の BhRuntime が無い場合は empty.
+   */
+  Optional<LocalBhRuntime> takeStandby() {
+    LocalBhRuntime runtime;
+    synchronized (this) {
+      while ((runtime = standbys.poll()) != null && !runtime.process().isAlive()) {
+        LogManager.logger().error("A standby BhRuntime has exited unexpectedly.");
+      }
+    }
+    replenish();
+    return Optional.ofNullable(runtime);
+  }
+
+  /**
+   * BhRuntime を起動して, その RMI オブジェクトを取得する.
+   *
+   * @return 起動した BhRuntime.  起動に失敗した場合は empty.
+   */
+  Optional<LocalBhRuntime> start() {
+    var trace = new BhRuntimeStartupTrace("local");
+    Process process = startRuntimeProcess().orElse(null);
+    if (process == null) {
+      return Optional.empty();
+    }
+    trace.markSpawned();
+    BhRuntimeFacade facade = getBhRuntimeFacade(process, trace).orElse(null);
+    if (facade == null) {
+      BhRuntimeHelper.killProcess(process, BhConstants.BhRuntime.Timeout.PROC_END);
+      return Optional.empty();
+    }
+    return Optional.of(new LocalBhRuntime(process, facade, trace));
+  }
+
+  /** 待機中の BhRuntime を全て終了し, 以降 BhRuntime を待機させないようにする. */
+  void shutdown() {
+    synchronized (this) {
+      isShutdown = true;
+    }
+    executor.shutdownNow();
+    LocalBhRuntime runtime;
+    while ((runtime = pollStandby()) != null) {
+      BhRuntimeHelper.killProcess(runtime.process(), BhConstants.BhRuntime.Timeout.PROC_END);
+    }
+  }
+
+  private synchronized LocalBhRuntime pollStandby() {
+    return standbys.poll();
+  }
+
+  /** 待機中の BhRuntime と起動中の BhRuntime の合計が {@link #numStandbys} になるまで BhRuntime を起動する. */
+  private synchronized void replenish() {
+    while (!isShutdown && standbys.size() + numStarting < numStandbys) {
+      ++numStarting;
+      executor.execute(this::startStandby);
+    }
+  }
+
+  /** 待機させる BhRuntime を起動する. */
+  private void startStandby() {
+    LocalBhRuntime runtime = start().orElse(null);
+    synchronized (this) {
+      --numStarting;
+      if (runtime != null && !isShutdown) {
+        standbys.add(runtime);
+        return;
+      }
+    }
+    if (runtime != null) {
+      BhRuntimeHelper.killProcess(runtime.process(), BhConstants.BhRuntime.Timeout.PROC_END);
+    }
+  }
+
+  /**
+   * BhProgram のランタイムプロセスをスタートする.
+   *
+   * @return スタートしたプロセスのオブジェクト.
+   */
+  private static Optional<Process> startRuntimeProcess() {
+    // ""でパスを囲まない
+    Process proc = null;
+    List<String> cmd = new ArrayList<>();
+    cmd.add(Utility.javaPath);
+    // アーカイブが JVM や クラスパスと合わない場合, JVM はアーカイブを使わずに起動する.
+    Path cdsArchive = Paths.get(Utility.execPath,
+        BhConstants.Path.Dir.CDS, BhConstants.Path.File.BH_RUNTIME_CDS_ARCHIVE);
+    if (Files.isRegularFile(cdsArchive)) {
+      cmd.add("-XX:SharedArchiveFile=" + cdsArchive);
+    }
+    cmd.addAll(List.of(
+        "-cp",
+        Paths.get(Utility.execPath, "Jlib") + Utility.fs  + "*",
+        BhConstants.BhRuntime.BH_PROGRAM_EXEC_MAIN_CLASS));
+    var procBuilder = new ProcessBuilder(cmd);
+
+    procBuilder.redirectErrorStream(true);
+    try {
+      proc = procBuilder.start();
+    } catch (IOException e) {
+      LogManager.logger().error("Failed to start BhRuntime\n" +  e);
+    }
+    return Optional.ofNullable(proc);
+  }
+
+  private static Optional<BhRuntimeFacade> getBhRuntimeFacade(
+      Process process, BhRuntimeStartupTrace trace) {
+    BhRuntimeFacade facade = null;
+    try (var br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+      // タイムアウトした場合, プロセスを終了して br の読み出しを終わらせてから br を閉じる
+      facade = BhRuntimeHelper.getBhRuntimeFacade(
+          BhConstants.BhRuntime.LOCAL_HOST,
+          br,
+          BhConstants.BhRuntime.Timeout.LOCAL_START,
+          trace,
+          process::destroyForcibly);
+    } catch (Exception e) {
+      LogManager.logger().error("Failed to get BhRuntime facade.\n%s".formatted(e));
+    }
+    return Optional.ofNullable(facade);
+  }
+
+  /**
+   * ローカル環境で起動した BhRuntime.
+   *
+   * @param process BhRuntime のプロセス
+   * @param facade BhRuntime を操作するための RMI オブジェクト
+   * @param trace BhRuntime の起動過程を記録したオブジェクト
+   */
+  record LocalBhRuntime(Process process, BhRuntimeFacade facade, BhRuntimeStartupTrace trace) { }
+}
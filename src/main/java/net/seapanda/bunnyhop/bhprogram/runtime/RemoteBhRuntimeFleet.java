@@ -0,0 +1,290 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.bhprogram.runtime;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SequencedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import net.seapanda.bunnyhop.service.LogManager;
+
+/**
+ * 複数のリモート環境の BhRuntime をまとめて操作するクラス.
+ *
+ * <p>操作対象のホストの先頭を主ホストとし, 主ホストはコンストラクタで渡した {@link RemoteBhRuntimeController} で操作する.
+ * デバッガや標準入力の送信先は主ホストの BhRuntime となる.
+ * それ以外のホストはホストごとに作成した {@link RmiRemoteBhRuntimeController} で操作する.
+ * 各ホストに対する操作は, 同時に実行する数を制限した上で並列に行う.
+ *
+ * @author K.Koike
+ */
+public class RemoteBhRuntimeFleet {
+
+  /** 主ホストの BhRuntime を操作するオブジェクト. */
+  private final RemoteBhRuntimeController primary;
+  /** 主ホスト以外の BhRuntime を操作するオブジェクトを作成する関数. */
+  private final Function<String, RmiRemoteBhRuntimeController> ctrlFactory;
+  /** ホスト名と主ホスト以外の BhRuntime を操作するオブジェクトのマップ. */
+  private final Map<String, RmiRemoteBhRuntimeController> members = new ConcurrentHashMap<>();
+  /** ホスト名とそのホストの BhRuntime の状態のマップ. */
+  private final Map<String, TargetStatus> statuses = new ConcurrentHashMap<>();
+  /** 各ホストに対する操作を同時に実行する数の上限. */
+  private final int maxParallelism;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param primary 主ホストの BhRuntime を操作するオブジェクト
+   * @param ctrlFactory 引数で指定したホストの BhRuntime を操作するオブジェクトを作成する関数
+   * @param maxParallelism 各ホストに対する操作を同時に実行する数の上限
+   */
+  public RemoteBhRuntimeFleet(
+      RemoteBhRuntimeController primary,
+      Function<String, RmiRemoteBhRuntimeController> ctrlFactory,
+      int maxParallelism) {
+    this.primary = primary;
+    this.ctrlFactory = ctrlFactory;
+    this.maxParallelism = Math.max(1, maxParallelism);
+  }
+
+  /**
+   * カンマまたは空白で区切られたホスト名の一覧を分割する.
+   * 重複するホスト名は取り除く.
+   *
+   * @param hostnames カンマまたは空白で区切られたホスト名の一覧
+   * @return ホスト名のリスト.  ホスト名が含まれない場合は {@code hostnames} の前後の空白を取り除いたもの 1 つだけを含む.
+   */
+  public static List<String> parseHostnames(String hostnames) {
+    List<String> hosts = Arrays.stream(hostnames.split("[,\\s]+"))
+        .filter(host -> !host.isEmpty())
+        .distinct()
+        .toList();
+    return hosts.isEmpty() ? List.of(hostnames.strip()) : hosts;
+  }
+
+  /** 主ホストの BhRuntime を操作するオブジェクトを返す. */
+  public RemoteBhRuntimeController getPrimary() {
+    return primary;
+  }
+
+  /**
+   * {@code hostnames} の各ホストで BhRuntime を起動して BhProgram を実行する.
+   *
+   * @param filePath 実行するファイルのパス
+   * @param hostnames BhRuntime を起動するマシンのホスト名のリスト.  先頭が主ホストとなる.
+   * @param uname BhRuntime を起動するマシンにログインする際のユーザ名
+   * @param password BhRuntime を起動するマシンにログインする際のパスワード
+   * @return 各ホストに対する操作の結果.  {@code hostnames} と同じ順に並ぶ.
+   */
+  public List<TargetResult> start(
+      Path filePath, List<String> hostnames, String uname, String password) {
+    long begin = System.currentTimeMillis();
+    hostnames.forEach(host -> statuses.put(host, TargetStatus.DEPLOYING));
+    List<TargetResult> results = forEachTarget(
+        hostnames, (host, ctrl) -> ctrl.start(filePath, host, uname, password));
+    for (TargetResult result : results) {
+      statuses.put(
+          result.hostname(), result.success() ? TargetStatus.RUNNING : TargetStatus.FAILED);
+    }
+    logResults(
+        "Deploy of %s".formatted(filePath.getFileName()),
+        results,
+        System.currentTimeMillis() - begin);
+    return results;
+  }
+
+  /**
+   * {@code hostnames} の各ホストで動作中の BhRuntime を終了する.
+   *
+   * @param hostnames BhRuntime を終了するマシンのホスト名のリスト.  先頭が主ホストとなる.
+   * @param uname BhRuntime を終了するマシンにログインする際のユーザ名
+   * @param password BhRuntime を終了するマシンにログインする際のパスワード
+   * @return 各ホストに対する操作の結果.  {@code hostnames} と同じ順に並ぶ.
+   */
+  public List<TargetResult> terminate(List<String> hostnames, String uname, String password) {
+    long begin = System.currentTimeMillis();
+    List<TargetResult> results = forEachTarget(
+        hostnames, (host, ctrl) -> ctrl.terminate(host, uname, password));
+    for (TargetResult result : results) {
+      if (result.success()) {
+        statuses.put(result.hostname(), TargetStatus.TERMINATED);
+      }
+    }
+    logResults("Termination", results, System.currentTimeMillis() - begin);
+    return results;
+  }
+
+  /**
+   * 各ホストの BhRuntime の状態を返す.
+   *
+   * @return ホスト名とそのホストの BhRuntime の状態のマップ
+   */
+  public Map<String, TargetStatus> getStatuses() {
+    return Collections.unmodifiableMap(statuses);
+  }
+
+  /**
+   * 主ホスト以外の BhRuntime でプログラムが実行中かどうか調べる.
+   *
+   * @return 主ホスト以外のいずれかの BhRuntime でプログラムが実行中の場合 true
+   */
+  public boolean isProgramRunning() {
+    return members.values().stream().anyMatch(RmiRemoteBhRuntimeController::isProgramRunning);
+  }
+
+  /**
+   * 主ホスト以外の BhRuntime の終了処理をする.
+   *
+   * @param terminate 実行中のプログラムを終了する場合 true
+   * @param timeout 終了処理の開始を待つ時間 (ms).
+   */
+  public void end(boolean terminate, int timeout) {
+    List<String> hosts = new ArrayList<>(members.keySet());
+    runInParallel(hosts, host -> members.get(host).end(terminate, timeout));
+  }
+
+  /**
+   * {@code hostnames} の各ホストの BhRuntime を操作するオブジェクトに対して {@code operation} を並列に実行する.
+   *
+   * @param hostnames 操作対象のホスト名のリスト.  先頭が主ホストとなる.
+   * @param operation ホスト名とそのホストの BhRuntime を操作するオブジェクトを受け取って, 操作の成否を返す関数
+   * @return 各ホストに対する操作の結果.  {@code hostnames} と同じ順に並ぶ.
+   */
+  private List<TargetResult> forEachTarget(
+      List<String> hostnames, TargetOperation operation) {
+    if (hostnames.isEmpty()) {
+      return new ArrayList<>();
+    }
+    String primaryHost = hostnames.getFirst();
+    var elapsedTimes = new ConcurrentHashMap<String, Long>();
+    SequencedMap<String, Boolean> successes = runInParallel(hostnames, host -> {
+      long begin = System.currentTimeMillis();
+      try {
+        RemoteBhRuntimeController ctrl = host.equals(primaryHost)
+            ? primary : members.computeIfAbsent(host, ctrlFactory);
+        return operation.apply(host, ctrl);
+      } finally {
+        elapsedTimes.put(host, System.currentTimeMillis() - begin);
+      }
+    });
+    return successes.entrySet().stream()
+        .map(entry -> new TargetResult(
+            entry.getKey(), entry.getValue(), elapsedTimes.getOrDefault(entry.getKey(), 0L)))
+        .toList();
+  }
+
+  /**
+   * {@code hostnames} の各ホストに対して {@code operation} を並列に実行し, 全ての完了を待つ.
+   * 同時に実行する数は {@link #maxParallelism} 以下に制限する.
+   *
+   * @return ホスト名と操作の成否のマップ.  {@code hostnames} と同じ順に並ぶ.
+   */
+  private SequencedMap<String, Boolean> runInParallel(
+      List<String> hostnames, Predicate<String> operation) {
+    var semaphore = new Semaphore(maxParallelism);
+    var futures = new LinkedHashMap<String, Future<Boolean>>();
+    try (ExecutorService executor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("bh-runtime-fleet-", 0).factory())) {
+      for (String host : hostnames) {
+        futures.put(host, executor.submit(() -> {
+          semaphore.acquire();
+          try {
+            return operation.test(host);
+          } finally {
+            semaphore.release();
+          }
+        }));
+      }
+    }
+    var successes = new LinkedHashMap<String, Boolean>();
+    futures.forEach((host, future) -> successes.put(host, getResult(host, future)));
+    return successes;
+  }
+
+  /** 完了した {@code future} の結果を取得する. */
+  private static boolean getResult(String hostname, Future<Boolean> future) {
+    try {
+      return future.get();
+    } catch (ExecutionException | InterruptedException e) {
+      LogManager.logger().error("Failed to operate BhRuntime on %s.\n%s".formatted(hostname, e));
+      return false;
+    }
+  }
+
+  /**
+   * 各ホストに対する操作の結果をまとめてログに出力する.
+   *
+   * @param operationName 操作の名前
+   * @param results 各ホストに対する操作の結果
+   * @param elapsed 全てのホストに対する操作にかかった時間 (ms)
+   */
+  private void logResults(String operationName, List<TargetResult> results, long elapsed) {
+    long numSucceeded = results.stream().filter(TargetResult::success).count();
+    String details = results.stream()
+        .map(result -> "%s=%s(%d ms)".formatted(
+            result.hostname(), result.success() ? "ok" : "failed", result.elapsed()))
+        .collect(Collectors.joining(", "));
+    LogManager.logger().info("%s: %d of %d targets succeeded in %d ms (parallelism %d)\n  %s"
+        .formatted(
+            operationName,
+            numSucceeded,
+            results.size(),
+            elapsed,
+            maxParallelism,
+            details));
+  }
+
+  /** ホストの BhRuntime に対する操作. */
+  @FunctionalInterface
+  private interface TargetOperation {
+    boolean apply(String hostname, RemoteBhRuntimeController ctrl);
+  }
+
+  /**
+   * ホストの BhRuntime に対する操作の結果.
+   *
+   * @param hostname 操作したホストの名前
+   * @param success 操作に成功した場合 true
+   * @param elapsed 操作にかかった時間 (ms)
+   */
+  public record TargetResult(String hostname, boolean success, long elapsed) {}
+
+  /** ホストの BhRuntime の状態. */
+  public enum TargetStatus {
+    /** BhProgram を転送して BhRuntime を起動している途中. */
+    DEPLOYING,
+    /** BhProgram を実行中. */
+    RUNNING,
+    /** BhProgram の実行に失敗した. */
+    FAILED,
+    /** BhRuntime を終了した. */
+    TERMINATED,
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.bhprogram.runtime;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.ChannelSftp.LsEntry;
+import com.jcraft.jsch.SftpException;
+import com.jcraft.jsch.SftpProgressMonitor;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import net.seapanda.bunnyhop.service.LogManager;
+
+/**
+ * BhProgram のスクリプトをリモート環境にアップロードするクラス.
+ *
+ * <p>スクリプトを内容に応じて可変長のチャンクに分割し, リモート環境にキャッシュされていないチャンクだけを送信する.
+ * 送信後, リモート環境でチャンクを連結してスクリプトを再構成する.
+ * ライブラリ部分などの変化しない部分は同じチャンクになるので, 2 回目以降は送信されない.
+ * リモート環境のスクリプトが送信するものと同じ場合は何も送信しない.
+ *
+ * @author K.Koike
+ */
+class RemoteScriptUploader {
+
+  /** チャンクを置くディレクトリの名前.  スクリプトのコピー先と同じディレクトリに作る. */
+  private static final String CHUNK_DIR = ".bhchunks";
+  /** リモート環境のスクリプトのハッシュ値を保存するファイルの拡張子. */
+  private static final String HASH_FILE_SUFFIX = ".sha256";
+  /** 送信途中のファイルの拡張子. */
+  private static final String PARTIAL_FILE_SUFFIX = ".part";
+  private static final int MIN_CHUNK_SIZE = 4 * 1024;
+  private static final int MAX_CHUNK_SIZE = 64 * 1024;
+  /** チャンクの境界を決めるマスク.  チャンクの平均サイズは概ね MIN_CHUNK_SIZE + 8KiB になる. */
+  private static final long BOUNDARY_MASK = (1 << 13) - 1;
+  /** チャンクの境界を決めるローリングハッシュで使うテーブル. */
+  private static final long[] GEAR = new Random(0x42756e6e79L).longs(256).toArray();
+
+  /** リモート環境でコマンドを実行し, その終了コードを返す関数. */
+  private final Function<String, Optional<Integer>> cmdRunner;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param cmdRunner リモート環境でコマンドを実行し, その終了コードを返す関数
+   */
+  RemoteScriptUploader(Function<String, Optional<Integer>> cmdRunner) {
+    this.cmdRunner = cmdRunner;
+  }
+
+  /**
+   * {@code srcPath} のファイルをリモート環境の {@code destPath} にアップロードする.
+   *
+   * @param sftp アップロードに使う SFTP チャンネル
+   * @param srcPath アップロードするファイルのパス
+   * @param destPath アップロード先のパス
+   * @param monitor 転送の進捗を管理するオブジェクト
+   * @return アップロードが完了した場合 true.  キャンセルされた場合 false.
+   */
+  boolean upload(
+      ChannelSftp sftp, Path srcPath, String destPath, SftpProgressMonitorImpl monitor)
+      throws IOException, SftpException {
+    byte[] content = Files.readAllBytes(srcPath);
+    String hash = sha256(content, 0, content.length);
+    String fileName = srcPath.getFileName().toString();
+    var progress = new ProgressForwarder(monitor);
+    if (isUpToDate(sftp, destPath, hash, content.length)) {
+      monitor.init(SftpProgressMonitor.PUT, srcPath.toString(), destPath, 0);
+      monitor.end();
+      LogManager.logger().info("Upload of %s: unchanged, skipped".formatted(fileName));
+      return true;
+    }
+    List<Chunk> chunks = split(content);
+    String chunkDir = parentDir(destPath) + "/" + CHUNK_DIR;
+    Set<String> cached = listChunkDir(sftp, chunkDir);
+    List<Chunk> missing = chunks.stream()
+        .filter(chunk -> !cached.contains(chunk.hash()))
+        .collect(Collectors.toMap(Chunk::hash, chunk -> chunk, (a, b) -> a))
+        .values().stream().toList();
+    long numBytesToSend = missing.stream().mapToLong(Chunk::length).sum();
+    monitor.init(SftpProgressMonitor.PUT, srcPath.toString(), destPath, numBytesToSend);
+    for (Chunk chunk : missing) {
+      String partial = "%s/%s%s".formatted(chunkDir, chunk.hash(), PARTIAL_FILE_SUFFIX);
+      sftp.put(new ByteArrayInputStream(content, chunk.offset(), chunk.length()),
+          partial, progress, ChannelSftp.OVERWRITE);
+      if (monitor.isFileCopyCancelled()) {
+        return false;
+      }
+      sftp.rename(partial, "%s/%s".formatted(chunkDir, chunk.hash()));
+    }
+    boolean assembled = assemble(chunks, chunkDir, destPath);
+    if (!assembled) {
+      // チャンクを連結できない環境では, ファイル全体を送る
+      LogManager.logger().error("Failed to assemble %s remotely.".formatted(fileName));
+      monitor.init(SftpProgressMonitor.PUT, srcPath.toString(), destPath, content.length);
+      sftp.put(new ByteArrayInputStream(content), destPath, progress, ChannelSftp.OVERWRITE);
+      if (monitor.isFileCopyCancelled()) {
+        return false;
+      }
+    }
+    monitor.end();
+    sftp.put(new ByteArrayInputStream(hash.getBytes(StandardCharsets.UTF_8)),
+        destPath + HASH_FILE_SUFFIX, ChannelSftp.OVERWRITE);
+    removeUnusedChunks(sftp, chunkDir, cached, chunks);
+    LogManager.logger().info(
+        "Upload of %s: %d of %d chunks sent  (%d of %d bytes%s)".formatted(
+            fileName,
+            missing.size(),
+            chunks.size(),
+            assembled ? numBytesToSend : numBytesToSend + content.length,
+            content.length,
+            assembled ? "" : ", full copy"));
+    return true;
+  }
+
+  /** リモート環境の {@code destPath} のファイルが, ハッシュ値 {@code hash} のファイルと同じか調べる. */
+  private static boolean isUpToDate(ChannelSftp sftp, String destPath, String hash, long size) {
+    try {
+      if (sftp.stat(destPath).getSize() != size) {
+        return false;
+      }
+      var remoteHash = new ByteArrayOutputStream();
+      sftp.get(destPath + HASH_FILE_SUFFIX, remoteHash);
+      return remoteHash.toString(StandardCharsets.UTF_8).equals(hash);
+    } catch (SftpException e) {
+      return false;
+    }
+  }
+
+  /**
+   * {@code chunkDir} にあるチャンクのハッシュ値の一覧を返す.
+   * {@code chunkDir} が存在しない場合は作成する.
+   */
+  private static Set<String> listChunkDir(ChannelSftp sftp, String chunkDir)
+      throws SftpException {
+    try {
+      sftp.stat(chunkDir);
+    } catch (SftpException e) {
+      sftp.mkdir(chunkDir);
+      return new HashSet<>();
+    }
+    var names = new HashSet<String>();
+    for (Object entry : sftp.ls(chunkDir)) {
+      String name = ((LsEntry) entry).getFilename();
+      if (!name.startsWith(".")) {
+        names.add(name);
+      }
+    }
+    return names;
+  }
+
+  /** リモート環境で {@code chunks} を連結して {@code destPath} に保存する. */
+  private boolean assemble(List<Chunk> chunks, String chunkDir, String destPath) {
+    String partial = quote(destPath + PARTIAL_FILE_SUFFIX);
+    String cmd = "cd %s && cat %s > %s && mv -f %s %s".formatted(
+        quote(chunkDir),
+        chunks.stream().map(Chunk::hash).collect(Collectors.joining(" ")),
+        partial,
+        partial,
+        quote(destPath));
+    return cmdRunner.apply(cmd).map(status -> status == 0).orElse(false);
+  }
+
+  /** {@code cached} のうち, {@code chunks} に含まれないものと送信途中のものを削除する. */
+  private static void removeUnusedChunks(
+      ChannelSftp sftp, String chunkDir, Set<String> cached, List<Chunk> chunks) {
+    Set<String> used = chunks.stream().map(Chunk::hash).collect(Collectors.toSet());
+    for (String name : cached) {
+      if (used.contains(name)) {
+        continue;
+      }
+      try {
+        sftp.rm("%s/%s".formatted(chunkDir, name));
+      } catch (SftpException e) {
+        LogManager.logger().error("Failed to remove an unused chunk (%s).\n%s".formatted(name, e));
+      }
+    }
+  }
+
+  /** {@code content} を内容に応じた境界で分割する. */
+  private static List<Chunk> split(byte[] content) {
+    var chunks = new ArrayList<Chunk>();
+    int begin = 0;
+    long hash = 0;
+    for (int i = 0; i < content.length; ++i) {
+      hash = (hash << 1) + GEAR[content[i] & 0xff];
+      int size = i - begin + 1;
+      if ((size >= MIN_CHUNK_SIZE && (hash & BOUNDARY_MASK) == 0) || size >= MAX_CHUNK_SIZE) {
+        chunks.add(new Chunk(sha256(content, begin, size), begin, size));
+        begin = i + 1;
+        hash = 0;
+      }
+    }
+    if (begin < content.length) {
+      int size = content.length - begin;
+      chunks.add(new Chunk(sha256(content, begin, size), begin, size));
+    }
+    return chunks;
+  }
+
+  private static String sha256(byte[] data, int offset, int length) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(data, offset, length);
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static String parentDir(String path) {
+    int idx = path.lastIndexOf('/');
+    return (idx <= 0) ? "." : path.substring(0, idx);
+  }
+
+  /** {@code str} をシェルの単一引用符で囲む. */
+  private static String quote(String str) {
+    return "'" + str.replace("'", "'\\''") + "'";
+  }
+
+  /**
+   * スクリプトの一部分.
+   *
+   * @param hash チャンクの内容の SHA-256 ハッシュ値
+   * @param offset スクリプト中のチャンクの開始位置
+   * @param length チャンクのバイト数
+   */
+  private record Chunk(String hash, int offset, int length) { }
+
+  /** 送信したバイト数だけを {@link SftpProgressMonitorImpl} に伝える {@link SftpProgressMonitor}. */
+  private record ProgressForwarder(SftpProgressMonitorImpl monitor)
+      implements SftpProgressMonitor {
+
+    @Override
+    public void init(int op, String src, String dest, long max) { }
+
+    @Override
+    public boolean count(long count) {
+      return monitor.count(count);
+    }
+
+    @Override
+    public void end() { }
+  }
+}
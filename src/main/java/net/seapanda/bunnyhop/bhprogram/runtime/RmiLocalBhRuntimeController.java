@@ -16,11 +16,7 @@
 
 package net.seapanda.bunnyhop.bhprogram.runtime;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
@@ -28,13 +24,13 @@ import net.seapanda.bunnyhop.bhprogram.BhRuntimeController;
 import net.seapanda.bunnyhop.bhprogram.common.BhRuntimeFacade;
 import net.seapanda.bunnyhop.bhprogram.common.message.BhProgramEvent;
 import net.seapanda.bunnyhop.bhprogram.common.message.BhProgramMessage;
+import net.seapanda.bunnyhop.bhprogram.runtime.LocalBhRuntimePool.LocalBhRuntime;
 import net.seapanda.bunnyhop.common.configuration.BhConstants;
 import net.seapanda.bunnyhop.common.text.TextDefs;
 import net.seapanda.bunnyhop.compiler.ScriptIdentifiers;
 import net.seapanda.bunnyhop.service.LogManager;
 import net.seapanda.bunnyhop.service.message.MessageService;
 import net.seapanda.bunnyhop.simulator.SimulatorCmdProcessor;
-import net.seapanda.bunnyhop.utility.Utility;
 import net.seapanda.bunnyhop.utility.concurrent.event.ConcurrentConsumerInvoker;
 import net.seapanda.bunnyhop.utility.event.ConsumerInvoker;
 
@@ -48,6 +44,8 @@ public class RmiLocalBhRuntimeController implements LocalBhRuntimeController {
   private final MessageService msgService;
   private final CallbackRegistryImpl cbRegistry = new CallbackRegistryImpl();
   private final SimulatorCmdProcessor simCmdProcessor;
+  /** 起動済みの BhRuntime を待機させておくオブジェクト. */
+  private final LocalBhRuntimePool runtimePool;
   private Process process;
   /** BhRuntime との通信用オブジェクト. */
   private volatile BhRuntimeTransceiver transceiver;
@@ -55,11 +53,19 @@ public class RmiLocalBhRuntimeController implements LocalBhRuntimeController {
   private final AtomicReference<Boolean> programRunning = new AtomicReference<>(false);
   private final ReentrantLock lock = new ReentrantLock();
 
-  /** コンストラクタ. */
+  /**
+   * コンストラクタ.
+   *
+   * @param simCmdProcessor シミュレータコマンドを処理するオブジェクト
+   * @param msgService アプリケーションユーザにメッセージを出力するためのオブジェクト
+   * @param numStandbyRuntimes 起動して待機させておく BhRuntime の数.
+   *                           0 の場合, BhProgram の実行時に BhRuntime を起動する.
+   */
   public RmiLocalBhRuntimeController(
-      SimulatorCmdProcessor simCmdProcessor, MessageService msgService) {
+      SimulatorCmdProcessor simCmdProcessor, MessageService msgService, int numStandbyRuntimes) {
     this.simCmdProcessor = simCmdProcessor;
     this.msgService = msgService;
+    runtimePool = new LocalBhRuntimePool(numStandbyRuntimes);
   }
 
   @Override
@@ -78,9 +84,10 @@ public class RmiLocalBhRuntimeController implements LocalBhRuntimeController {
     if (programRunning.get()) {
       terminate();
     }
+    long begin = System.nanoTime();
     msgService.info(TextDefs.BhRuntime.Local.preparingToRun.get());
     try {
-      BhRuntimeFacade facade = startUpRuntime().orElseThrow();
+      BhRuntimeFacade facade = startUpRuntime(begin).orElseThrow();
       boolean success = facade.runScript(filePath.toAbsolutePath().toString());
       if (success) {
         return invokeStartMethod(filePath);
@@ -96,18 +103,26 @@ public class RmiLocalBhRuntimeController implements LocalBhRuntimeController {
 
   /**
    * BhRuntime を起動して初期化する.
+   * 待機中の BhRuntime がある場合はそれを使う.
    *
+   * @param begin BhProgram の実行を開始した時刻 (ns)
    * @return 起動した BhRuntime を操作するためのオブジェクト.
    *         処理に失敗した場合は empty.
    */
-  private Optional<BhRuntimeFacade> startUpRuntime() {
+  private Optional<BhRuntimeFacade> startUpRuntime(long begin) {
     try {
-      process = startRuntimeProcess().orElseThrow();
-      BhRuntimeFacade facade = getBhRuntimeFacade().orElseThrow();
+      Optional<LocalBhRuntime> standby = runtimePool.takeStandby();
+      LocalBhRuntime runtime = standby.or(runtimePool::start).orElseThrow();
+      process = runtime.process();
+      BhRuntimeFacade facade = runtime.facade();
       setupTransceiver(facade);
+      transceiver.setOnFirstNotifReceived(() -> LogManager.logger().info(
+          "BhProgram startup: %d ms from run request to first message  (standby runtime: %s)"
+          .formatted((System.nanoTime() - begin) / 1000_000, standby.isPresent())));
       if (!transceiver.connect()) {
         return Optional.empty();
       }
+      runtime.trace().logConnected();
       // BhProgram の開始前に実行したい処理に対応するため, イベントハンドラをここで呼ぶ
       cbRegistry.onConnCondChanged.invoke(new ConnectionEvent(this, true));
       return Optional.of(facade);
@@ -136,17 +151,6 @@ public class RmiLocalBhRuntimeController implements LocalBhRuntimeController {
     return true;
   }
 
-  private Optional<BhRuntimeFacade> getBhRuntimeFacade() {
-    BhRuntimeFacade facade = null;
-    try (var br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-      facade = BhRuntimeHelper.getBhRuntimeFacade(
-          BhConstants.BhRuntime.LOCAL_HOST, br, BhConstants.BhRuntime.Timeout.LOCAL_START);
-    } catch (Exception e) {
-      LogManager.logger().error("Failed to get BhRuntime facade.\n%s".formatted(e));
-    }
-    return Optional.ofNullable(facade);
-  }
-  
   @Override
   public boolean terminate() {
     if (!lock.tryLock()) {
@@ -239,29 +243,6 @@ public class RmiLocalBhRuntimeController implements LocalBhRuntimeController {
     return cbRegistry;
   }
 
-  /**
-   * BhProgram のランタイムプロセスをスタートする.
-   *
-   * @return スタートしたプロセスのオブジェクト.
-   */
-  private Optional<Process> startRuntimeProcess() {
-    // ""でパスを囲まない
-    Process proc = null;
-    var procBuilder = new ProcessBuilder(
-        Utility.javaPath,
-        "-cp",
-        Paths.get(Utility.execPath, "Jlib") + Utility.fs  + "*",
-        BhConstants.BhRuntime.BH_PROGRAM_EXEC_MAIN_CLASS);
-
-    procBuilder.redirectErrorStream(true);
-    try {
-      proc = procBuilder.start();
-    } catch (IOException e) {
-      LogManager.logger().error("Failed to start BhRuntime\n" +  e);
-    }
-    return Optional.ofNullable(proc);
-  }
-
   /**
    * {@link #transceiver} を破棄する.
    *
@@ -283,6 +264,7 @@ public class RmiLocalBhRuntimeController implements LocalBhRuntimeController {
    * @return 終了処理が正常に完了した場合 true
    */
   public boolean end() {
+    runtimePool.shutdown();
     return terminate();
   }
 
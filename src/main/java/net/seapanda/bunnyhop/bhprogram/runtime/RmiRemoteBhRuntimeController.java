@@ -19,16 +19,17 @@ package net.seapanda.bunnyhop.bhprogram.runtime;
 import com.jcraft.jsch.Channel;
 import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.ChannelSftp;
-import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 import net.seapanda.bunnyhop.bhprogram.BhRuntimeController;
@@ -54,6 +55,8 @@ import org.mozilla.javascript.Scriptable;
  */
 public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
   
+  /** SSH チャンネルが閉じたかどうかを確認する間隔 (ms). */
+  private static final int CHANNEL_CLOSE_CHECK_INTERVAL = 10;
   private final MessageService msgService;
   private final CallbackRegistryImpl cbRegistry = new CallbackRegistryImpl();
   /** BhRuntime との通信用オブジェクト. */
@@ -64,6 +67,8 @@ public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
   private final AtomicBoolean fileCopyIsCancelled = new AtomicBoolean(true);
   private final CmdGenScripts scripts;
   private final ReentrantLock lock = new ReentrantLock();
+  /** 認証済みの SSH セッションを再利用するためのオブジェクト. */
+  private final SshSessionPool sessionPool = new SshSessionPool();
 
   /** コンストラクタ. */
   public RmiRemoteBhRuntimeController(
@@ -95,11 +100,10 @@ public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
     }
     try {
       var userInfo = new UserInfoImpl(hostname, uname, password, msgService);
-      Session session = establishSshSession(userInfo).orElse(null);
+      long begin = System.currentTimeMillis();
+      Session session = acquireSshSession(userInfo).orElse(null);
       if (session != null) {
-        boolean success = execute(session, filePath);
-        session.disconnect();
-        return success;
+        return execute(session, filePath, System.currentTimeMillis() - begin);
       }
       return false;
     } finally {
@@ -108,19 +112,15 @@ public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
   }
 
   /**
-   * SSH セッションを確立する.
+   * SSH セッションを取得する.
+   * 接続先との認証済みのセッションがある場合はそれを再利用する.
    *
    * @param userInfo 接続先の情報を格納したオブジェクト
    * @return セッションを確率済みの {@link Session} オブジェクト.
    */
-  private Optional<Session> establishSshSession(UserInfoImpl userInfo) {
+  private Optional<Session> acquireSshSession(UserInfoImpl userInfo) {
     try {
-      Session session = new JSch().getSession(
-          userInfo.getUname(), userInfo.getHost(), BhConstants.BhRuntime.SSH_PORT);
-      session.setUserInfo(userInfo);
-      session.setConfig("StrictHostKeyChecking", "no");
-      session.connect(BhConstants.BhRuntime.Timeout.SSH_CONNECTION);
-      return Optional.of(session);
+      return Optional.of(sessionPool.acquire(userInfo));
     } catch (JSchException e) {
       msgService.error(TextDefs.BhRuntime.Communication.failedToEstablishConnection.get());
       LogManager.logger().error("Failed to establish SSH session.\n%s".formatted(e));
@@ -133,14 +133,22 @@ public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
    *
    * @param filePath このパスのファイルをリモート環境にコピーして実行する
    * @param session SSH セッションオブジェクト
+   * @param sshConnectionTime SSH セッションの取得にかかった時間 (ms)
    * @return 成功した場合 true, 失敗した場合 false
    */
-  private boolean execute(Session session, Path filePath) {
+  private boolean execute(Session session, Path filePath, long sshConnectionTime) {
     msgService.info(TextDefs.BhRuntime.Remote.preparingToRun.get());
     try {
       disconnectImpl(0);
       String destPath = genCopyDestPath(session.getUserName()).orElseThrow();
-      BhRuntimeFacade facade = prepareRemoteEnvironment(session, filePath, destPath).orElseThrow();
+      var trace = new BhRuntimeStartupTrace("remote %s".formatted(session.getHost()));
+      long begin = System.currentTimeMillis();
+      if (!copyFile(session, filePath.toString(), destPath)) {
+        throw new Exception();
+      }
+      long uploaded = System.currentTimeMillis();
+      BhRuntimeFacade facade = startBhRuntime(session, trace).orElseThrow();
+      long started = System.currentTimeMillis();
       var oldCarrier = (transceiver == null) ? null : transceiver.getMessageCarrier();
       transceiver = new BhRuntimeTransceiver(facade);
       currentDestInfo = new DestinationInfo(
@@ -153,6 +161,14 @@ public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
       transceiver.start();
       boolean success = transceiver.connect();
       if (success) {
+        trace.logConnected();
+        LogManager.logger().info(
+            "Remote run on %s: connect %d ms, upload %d ms, start %d ms, attach %d ms".formatted(
+                session.getHost(),
+                sshConnectionTime,
+                uploaded - begin,
+                started - uploaded,
+                System.currentTimeMillis() - started));
         // BhProgram の開始前に実行したい処理に対応するため, イベントハンドラをここで呼ぶ
         cbRegistry.onConnCondChanged.invoke(new ConnectionEvent(this, true));
         success = facade.runScript(destPath);
@@ -175,32 +191,23 @@ public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
     return false;
   }
 
-  /**
-   * リモート環境の準備をする.
-   *
-   * @return BhRuntime との通信用オブジェクト.
-   */
-  private Optional<BhRuntimeFacade> prepareRemoteEnvironment(
-      Session session, Path filePath, String destPath) {
-    boolean success = copyFile(session, filePath.toString(), destPath);
-    if (!success) {
-      return Optional.empty();
-    }
-    return startBhRuntime(session);
-  }
-
   /**
    * BhRuntime をスタートする.
    *
    * @param session SSH セッションオブジェクト
+   * @param trace BhRuntime の起動過程を記録するオブジェクト
    * @return BhRuntime との通信用オブジェクト.
    */
-  private Optional<BhRuntimeFacade> startBhRuntime(Session session) {
+  private Optional<BhRuntimeFacade> startBhRuntime(Session session, BhRuntimeStartupTrace trace) {
     try {
       String startCmd = genStartCmd(session.getHost()).orElseThrow();
+      trace.markSpawned();
       CmdResultProvider provider = execCmd(session, startCmd).orElseThrow();
       Optional<BhRuntimeFacade> facade = getBhRuntimeFacade(
-          provider.inputStream(), session.getHost(), BhConstants.BhRuntime.Timeout.REMOTE_START);
+          provider,
+          session.getHost(),
+          BhConstants.BhRuntime.Timeout.REMOTE_START,
+          trace);
       provider.channel().disconnect();
       return facade;
     } catch (Exception e) {
@@ -216,10 +223,9 @@ public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
     }
     try {
       var userInfo = new UserInfoImpl(hostname, uname, password, msgService);
-      Session session = establishSshSession(userInfo).orElse(null);
+      Session session = acquireSshSession(userInfo).orElse(null);
       if (session != null) {
         boolean success = terminate(session);
-        session.disconnect();
         cbRegistry.onBhProgramTerminated.invoke(new TerminationEvent(this));
         return success;
       }
@@ -271,11 +277,9 @@ public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
       // データを受信するのを避けるため, 接続時にトランシーバのタスク終了を待つ必要がある.
       disconnectImpl(BhConstants.BhRuntime.Timeout.HALT_TRANSCEIVER);      
       var userInfo = new UserInfoImpl(hostname, uname, password, msgService);
-      Session session = establishSshSession(userInfo).orElse(null);
+      Session session = acquireSshSession(userInfo).orElse(null);
       if (session != null) {
-        boolean success = connect(session);
-        session.disconnect();
-        return success;
+        return connect(session);
       }
     } finally {
       lock.unlock();
@@ -287,9 +291,13 @@ public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
   private boolean connect(Session session) {
     try {
       String cmd = genGetRuntimePortCmd().orElseThrow();
+      var trace = new BhRuntimeStartupTrace("remote %s, reconnect".formatted(session.getHost()));
       CmdResultProvider provider = execCmd(session, cmd).orElseThrow();
       BhRuntimeFacade facade = getBhRuntimeFacade(
-          provider.inputStream(), session.getHost(), BhConstants.BhRuntime.Timeout.REMOTE_CONNECT)
+          provider,
+          session.getHost(),
+          BhConstants.BhRuntime.Timeout.REMOTE_CONNECT,
+          trace)
           .orElseThrow();
       provider.channel().disconnect();
       BhRuntimeTransceiver oldTransceiver = transceiver;
@@ -305,6 +313,7 @@ public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
       transceiver.start();
       boolean success = transceiver.connect();
       if (success) {
+        trace.logConnected();
         cbRegistry.onConnCondChanged.invoke(new ConnectionEvent(this, true));
         msgService.info(TextDefs.BhRuntime.Remote.hasConnected.get());
         return true;
@@ -369,11 +378,13 @@ public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
 
   /** BhRuntime との通信用オブジェクトを取得する. */
   private Optional<BhRuntimeFacade> getBhRuntimeFacade(
-      InputStream is, String hostname, int timeout) {
+      CmdResultProvider provider, String hostname, int timeout, BhRuntimeStartupTrace trace) {
     msgService.info(TextDefs.BhRuntime.Communication.preparingToCommunicate.get());
     BhRuntimeFacade facade = null;
-    try (var br = new BufferedReader(new InputStreamReader(is))) {
-      facade = BhRuntimeHelper.getBhRuntimeFacade(hostname, br, timeout);
+    try (var br = new BufferedReader(new InputStreamReader(provider.inputStream()))) {
+      // タイムアウトした場合, チャンネルを切断して br の読み出しを終わらせてから br を閉じる
+      facade = BhRuntimeHelper.getBhRuntimeFacade(
+          hostname, br, timeout, trace, provider.channel()::disconnect);
     } catch (Exception e) {
       LogManager.logger().error("Failed to get BhRuntime facade.\n%s".formatted(e));
     }
@@ -492,6 +503,22 @@ public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
     return Optional.empty();
   }
 
+  /**
+   * リモート環境でコマンドを実行し, その終了を待つ.
+   *
+   * @param session SSH セッションオブジェクト
+   * @param cmd 実行するコマンド
+   * @return 実行したコマンドの終了コード.  コマンドの実行に失敗した場合 Optional.empty.
+   */
+  private Optional<Integer> runCmd(Session session, String cmd) {
+    return execCmd(session, cmd).flatMap(provider -> {
+      Optional<Integer> status = waitForChannelClosed(
+          provider.channel(), BhConstants.BhRuntime.Timeout.REMOTE_ASSEMBLE);
+      provider.channel().disconnect();
+      return status;
+    });
+  }
+
   /**
    * リモート環境にファイルをコピーする.
    *
@@ -503,13 +530,11 @@ public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
   private boolean copyFile(Session session, String srcPath, String destPath) {
     msgService.info(TextDefs.BhRuntime.Remote.transferring.get());
     try {
-      ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
-      channel.connect();
+      ChannelSftp channel = sessionPool.getSftpChannel(session);
       fileCopyIsCancelled.set(false);
       var monitor = new SftpProgressMonitorImpl(fileCopyIsCancelled, msgService);
-      channel.put(srcPath, destPath, monitor, ChannelSftp.OVERWRITE);
-      channel.disconnect();
-      if (monitor.isFileCopyCancelled()) {
+      var uploader = new RemoteScriptUploader(cmd -> runCmd(session, cmd));
+      if (!uploader.upload(channel, Path.of(srcPath), destPath, monitor)) {
         throw new Exception("File transfer has been cancelled.");
       }
     } catch (Exception e) {
@@ -533,19 +558,21 @@ public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
    * SSH チャンネルが閉じるのを待つ.
    *
    * @param channel 閉じるのを待つチャンネル
-   * @param timeout タイムアウト(sec)
+   * @param timeout タイムアウト (ms)
    * @return チャンネルで実行していたコマンドの終了コード. チャンネルのクローズに失敗した場合 Optiomal.empty.
    */
   private Optional<Integer> waitForChannelClosed(Channel channel, int timeout) {
-    long begin = System.currentTimeMillis();
-    try (var br = new BufferedReader(new InputStreamReader(channel.getInputStream()))) {
+    long deadline = System.currentTimeMillis() + timeout;
+    try (InputStream is = channel.getInputStream()) {
+      // コマンドの出力を EOF まで読み捨てる
+      BhRuntimeHelper.callWithTimeout(
+          () -> is.transferTo(OutputStream.nullOutputStream()), timeout, channel::disconnect);
+      // EOF の受信からチャンネルが閉じるまでの僅かな間だけ待つ
       while (!channel.isClosed()) {
-        if (br.ready()) {
-          br.read();
-        }
-        if ((System.currentTimeMillis() - begin) > timeout) {
-          throw new Exception("timeout");
+        if (System.currentTimeMillis() > deadline) {
+          throw new TimeoutException("timeout");
         }
+        Thread.sleep(CHANNEL_CLOSE_CHECK_INTERVAL);
       }
     } catch (Exception e) {
       LogManager.logger().error("channel close err " + e);
@@ -556,6 +583,7 @@ public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
 
   /**
    * 終了処理をする.
+   * SSH セッションのプールを閉じるので, このメソッドを呼んだ後は BhProgram を実行できない.
    *
    * @param terminate 実行中のプログラムを終了する場合 true
    * @param timeout 終了処理の開始を待つ時間 (sec).
@@ -579,6 +607,7 @@ public class RmiRemoteBhRuntimeController implements RemoteBhRuntimeController {
       }
       return disconnectImpl(BhConstants.BhRuntime.Timeout.HALT_TRANSCEIVER);
     } finally {
+      sessionPool.closeAll();
       lock.unlock();
     }
   }
@@ -89,6 +89,8 @@ class SftpProgressMonitorImpl implements SftpProgressMonitor {
     this.src = src;
     this.dest = dest;
     this.max = max;
+    allByteSent = 0;
+    rateOfDataSent = 0;
     msgService.info(TextDefs.BhRuntime.FileTransfer.start.get(src, dest, max));
   }
 
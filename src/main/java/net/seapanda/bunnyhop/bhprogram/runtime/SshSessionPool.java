@@ -0,0 +1,193 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.bhprogram.runtime;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import net.seapanda.bunnyhop.common.configuration.BhConstants;
+import net.seapanda.bunnyhop.service.LogManager;
+
+/**
+ * 認証済みの SSH セッションを接続先ごとに保持して再利用するクラス.
+ *
+ * <p>取り出す際に接続が切れているセッションは作り直す.
+ * 一定時間使われなかったセッションは切断して破棄する.
+ * {@link #closeAll} を呼んだ後は, セッションを取り出せない.
+ *
+ * @author K.Koike
+ */
+class SshSessionPool {
+
+  /** 接続先とそのセッションのマップ. */
+  private final Map<Destination, PooledSession> sessions = new HashMap<>();
+  /** 使われなくなったセッションを破棄する {@link ScheduledExecutorService}. */
+  private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(
+      Thread.ofVirtual().name("ssh-session-evictor").factory());
+  /** {@link #closeAll} が呼ばれたかどうか. */
+  private boolean closed = false;
+
+  /** コンストラクタ. */
+  SshSessionPool() {
+    long interval = BhConstants.BhRuntime.Timeout.SSH_SESSION_IDLE / 4;
+    evictor.scheduleWithFixedDelay(
+        this::evictIdleSessions, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * {@code userInfo} が示す接続先との認証済みのセッションを返す.
+   * 再利用可能なセッションが無い場合は, 新たにセッションを確立する.
+   *
+   * @param userInfo 接続先の情報を格納したオブジェクト
+   * @return 認証済みのセッション
+   * @throws JSchException セッションの確立に失敗した場合や, このオブジェクトが閉じられている場合
+   */
+  synchronized Session acquire(UserInfoImpl userInfo) throws JSchException {
+    if (closed) {
+      throw new JSchException("The SSH session pool has already been closed.");
+    }
+    var dest = new Destination(userInfo.getHost(), userInfo.getUname());
+    PooledSession pooled = sessions.get(dest);
+    if (pooled != null) {
+      if (isReusable(pooled, userInfo)) {
+        pooled.lastUsed = System.currentTimeMillis();
+        return pooled.session;
+      }
+      discard(dest);
+    }
+    long begin = System.currentTimeMillis();
+    Session session = new JSch().getSession(
+        userInfo.getUname(), userInfo.getHost(), BhConstants.BhRuntime.SSH_PORT);
+    session.setUserInfo(userInfo);
+    session.setConfig("StrictHostKeyChecking", "no");
+    // JSch は jzlib を使って SSH の転送データを圧縮する
+    session.setConfig("compression.s2c", "zlib@openssh.com,zlib,none");
+    session.setConfig("compression.c2s", "zlib@openssh.com,zlib,none");
+    session.setServerAliveInterval(BhConstants.BhRuntime.SSH_SERVER_ALIVE_INTERVAL);
+    session.setDaemonThread(true);
+    session.connect(BhConstants.BhRuntime.Timeout.SSH_CONNECTION);
+    sessions.put(dest, new PooledSession(session, userInfo.getPassword()));
+    LogManager.logger().info("SSH session to %s@%s: established in %d ms".formatted(
+        userInfo.getUname(), userInfo.getHost(), System.currentTimeMillis() - begin));
+    return session;
+  }
+
+  /**
+   * {@code session} を使う SFTP チャンネルを返す.
+   * {@code session} がこのオブジェクトで管理されている場合, 接続済みの SFTP チャンネルを再利用する.
+   *
+   * @param session このセッションの SFTP チャンネルを返す
+   * @return 接続済みの SFTP チャンネル
+   * @throws JSchException チャンネルの接続に失敗した場合や, このオブジェクトが閉じられている場合
+   */
+  synchronized ChannelSftp getSftpChannel(Session session) throws JSchException {
+    if (closed) {
+      throw new JSchException("The SSH session pool has already been closed.");
+    }
+    PooledSession pooled = sessions.values().stream()
+        .filter(entry -> entry.session == session)
+        .findFirst()
+        .orElse(null);
+    if (pooled != null && pooled.sftp != null && pooled.sftp.isConnected()) {
+      return pooled.sftp;
+    }
+    var sftp = (ChannelSftp) session.openChannel("sftp");
+    sftp.connect(BhConstants.BhRuntime.Timeout.SSH_CONNECTION);
+    if (pooled != null) {
+      pooled.sftp = sftp;
+    }
+    return sftp;
+  }
+
+  /**
+   * 全てのセッションを切断して破棄する.
+   * 以降, このオブジェクトからセッションを取り出すことはできない.
+   */
+  synchronized void closeAll() {
+    closed = true;
+    evictor.shutdownNow();
+    sessions.keySet().stream().toList().forEach(this::discard);
+  }
+
+  /** {@code pooled} を {@code userInfo} が示す接続先との通信に再利用できるか調べる. */
+  private static boolean isReusable(PooledSession pooled, UserInfoImpl userInfo) {
+    if (!pooled.session.isConnected() || !pooled.password.equals(userInfo.getPassword())) {
+      return false;
+    }
+    try {
+      pooled.session.sendKeepAliveMsg();
+      return true;
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+  /** 最後に使われてから一定時間が経過したセッションを破棄する. */
+  private synchronized void evictIdleSessions() {
+    long now = System.currentTimeMillis();
+    sessions.entrySet().stream()
+        .filter(entry ->
+            now - entry.getValue().lastUsed > BhConstants.BhRuntime.Timeout.SSH_SESSION_IDLE)
+        .map(Map.Entry::getKey)
+        .toList()
+        .forEach(this::discard);
+  }
+
+  /** {@code dest} に対応するセッションを切断して破棄する. */
+  private void discard(Destination dest) {
+    PooledSession pooled = sessions.remove(dest);
+    if (pooled == null) {
+      return;
+    }
+    if (pooled.sftp != null) {
+      pooled.sftp.disconnect();
+    }
+    pooled.session.disconnect();
+    LogManager.logger().info("SSH session to %s@%s: closed".formatted(dest.uname, dest.host));
+  }
+
+  /**
+   * セッションの接続先.
+   *
+   * @param host ホスト名
+   * @param uname ユーザ名
+   */
+  private record Destination(String host, String uname) { }
+
+  /** このオブジェクトが保持するセッションとその付随情報. */
+  private static class PooledSession {
+    final Session session;
+    /** セッションの認証に使ったパスワード. */
+    final String password;
+    /** セッションの SFTP チャンネル.  まだ開いていない場合 null. */
+    ChannelSftp sftp;
+    /** 最後にセッションを取り出した時刻 (ms). */
+    long lastUsed = System.currentTimeMillis();
+
+    PooledSession(Session session, String password) {
+      this.session = session;
+      this.password = Objects.requireNonNullElse(password, "");
+    }
+  }
+}
@@ -51,8 +51,8 @@ public class BhConstants {
   public static final AppVersion APP_VERSION = AppVersion.of("bh-0.7.8");
   /** セーブデータのバージョン. */
   public static final SaveDataVersion SAVE_DATA_VERSION = SaveDataVersion.of("bhsave-0.1.0");
-  /** undo 可能な最大回数. */
-  public static final int NUM_TIMES_MAX_UNDO = 128;
+  /** 1 回のトランザクションの終了時に, ノードのコンパイルエラーを調べる時間の上限 (ms). */
+  public static final long COMPILE_ERR_CHECK_TIME_BUDGET = 4;
 
   /** UI に関するパラメータ. */
   public static class Ui {
@@ -76,6 +76,8 @@ public class BhConstants {
     public static final int MAX_ZOOM_LEVEL = 30;
     /** 拡大レベルの最小値. */
     public static final int MIN_ZOOM_LEVEL = -40;
+    /** ノードビューを簡略表示する拡大レベルの最大値. */
+    public static final int MAX_LOW_DETAIL_ZOOM_LEVEL = -20;
     /** 四分木空間の分割数 (2 ^ NUM_DIV_OF_QTREE_SPACE) ^ 2. */
     public static final int NUM_DIV_OF_QTREE_SPACE = 4;
     /** ワークスペースの大きさレベルの最大値. */
@@ -89,6 +91,10 @@ public class BhConstants {
     public static final double BHNODE_SPACE_ON_SELECTION_VIEW = 2.0 * Ui.NODE_SCALE;
     /** ノードシフタの大きさ. */
     public static final double NODE_SHIFTER_SIZE = Rem.VAL * 5.6;
+    /** ノードビューを非表示にするかどうかを判定する範囲の, 可視領域の大きさに対する余白の割合. */
+    public static final double VIEWPORT_CULLING_MARGIN_RATE = 0.5;
+    /** ノード検索で取得する検索結果の上限. */
+    public static final int MAX_NODE_SEARCH_HITS = 10_000;
   }
 
   /** ファイルパス関連のパラメータ. */
@@ -133,6 +139,10 @@ public class BhConstants {
       public static final String SETTINGS = "Settings";
       /** ノード以外の GUI 部品の css ファイルが格納されたディレクトリ. */
       public static final String APP_GUI = "AppGUI";
+      /** コンパイルした外部スクリプトのキャッシュを置くディレクトリ. */
+      public static final String SCRIPT_CACHE = "ScriptCache";
+      /** JVM の Class Data Sharing のアーカイブを置くディレクトリ. */
+      public static final String CDS = "Cds";
     }
 
     /** ファイル名のリスト. */
@@ -179,6 +189,8 @@ public class BhConstants {
       public static final String LANGUAGE_FILE = "BunnyHop.json";
       /** 設定ファイルの名前. */
       public static final String BH_SETTINGS_JSON = "BhSettings.json";
+      /** BhRuntime の JVM 用の Class Data Sharing のアーカイブの名前. */
+      public static final String BH_RUNTIME_CDS_ARCHIVE = "BhRuntime.jsa";
 
       /** BhProgram のライブラリのパス. */
       public static class BhLibs {
@@ -431,6 +443,10 @@ public class BhConstants {
       public static final int LOCAL_START = 5000;
       /** アプリケーション終了時にリモートの BhRuntime の終了処理を開始するまでの待ち時間 (ms). */
       public static final int REMOTE_END_ON_EXIT = 3000;
+      /** 使われていない SSH セッションを切断するまでの時間 (ms). */
+      public static final int SSH_SESSION_IDLE = 300_000;
+      /** リモート環境でスクリプトを組み立てるコマンドの完了待ちのタイムアウト時間 (ms). */
+      public static final int REMOTE_ASSEMBLE = 6000;
     }
 
     public static final int MAX_REMOTE_CMD_QUEUE_SIZE = 2048;
@@ -438,12 +454,18 @@ public class BhConstants {
     public static final String RMI_TCP_PORT_SUFFIX = "@RmiTcpPort";
     public static final String LOCAL_HOST = "localhost";
     public static final int SSH_PORT = 22;
+    /** SSH セッションの接続を確認するメッセージを送る間隔 (ms). */
+    public static final int SSH_SERVER_ALIVE_INTERVAL = 15_000;
   }
 
   /** BunnyHop が出力するテキストメッセージに関するパラメータ. */
   public static class Message {
-    /** メインメッセージエリアの最大表示文字数. */
-    public static final int MAX_MAIN_MSG_AREA_CHARS = 131072;
+    /** メインメッセージエリアの最大表示行数. */
+    public static final int MAX_MAIN_MSG_AREA_LINES = 50_000;
+    /** メインメッセージエリアへの出力を待つメッセージの最大文字数. */
+    public static final int MAX_PENDING_MSG_CHARS = 4 * 1024 * 1024;
+    /** メインメッセージエリアの検索で保持する, 検索語に一致した行の最大数. */
+    public static final int MAX_MAIN_MSG_AREA_SEARCH_HITS = 10_000;
     /** ログファイルの最大個数. */
     public static final int MAX_LOG_FILE_NUM = 4;
     /** ログファイル1つあたりの最大バイト数. */
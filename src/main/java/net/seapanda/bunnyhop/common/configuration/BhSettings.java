@@ -58,6 +58,24 @@ public class BhSettings {
     /** 現在制御対象になっている BhRuntime の種類. */
     @PreventExport
     public static volatile BhRuntimeType currentBhRuntimeType = BhRuntimeType.LOCAL;
+    /** 起動して待機させておくローカル環境の BhRuntime の数.  0 の場合, BhProgram の実行時に BhRuntime を起動する. */
+    public static volatile int numStandbyLocalRuntimes = 1;
+    /** 複数のリモート環境で BhProgram を実行する際に, 同時に操作するリモート環境の数の上限. */
+    public static volatile int maxParallelRemoteOps = 4;
+  }
+
+  /** Undo / Redo に関するパラメータ. */
+  public static class Undo {
+    /** Undo / Redo 用に保持する操作の履歴が使うメモリ量の上限 (MiB). */
+    public static volatile int memoryBudget = 64;
+  }
+
+  /** 外部スクリプトに関するパラメータ. */
+  public static class Script {
+    /** 外部スクリプトをインタプリタで実行するかどうか.  false の場合は JVM のバイトコードにコンパイルする. */
+    public static volatile boolean interpretedMode = false;
+    /** コンパイルした外部スクリプトをファイルにキャッシュするかどうか. */
+    public static volatile boolean useBytecodeCache = true;
   }
 
   /** UI に関するパラメータ. */
@@ -72,6 +90,8 @@ public class BhSettings {
     public static volatile int currentNodeSelectionViewZoomLevel = -1;
     /** 現在のワークスペースの拡大・縮小レベル. */
     public static volatile int currentWorkspaceZoomLevel = -1;
+    /** ワークスペースの可視領域から離れたノードビューを非表示にするかどうか. */
+    public static volatile boolean cullNodeViewsOutsideViewport = true;
   }
 
   /** ウィンドウ関連のパラメータ. */
@@ -260,6 +260,24 @@ public class TextDefs {
           TextId.of("msg", "bh-runtime", "remote", "has-disconnected"), params);    
       public static Getter failedToDisconnect = params -> db.get(
           TextId.of("msg", "bh-runtime", "remote", "failed-to-disconnect"), params);
+      public static Getter fleetResult = params -> db.get(
+          TextId.of("msg", "bh-runtime", "remote", "fleet-result"), params);
+      public static Getter fleetFailedHosts = params -> db.get(
+          TextId.of("msg", "bh-runtime", "remote", "fleet-failed-hosts"), params);
+      public static Getter fleetHostStatus = params -> db.get(
+          TextId.of("msg", "bh-runtime", "remote", "fleet-host-status"), params);
+
+      /** 複数のホストを操作した際の各ホストの BhRuntime の状態. */
+      public static class FleetStatus {
+        public static Getter deploying = params -> db.get(
+            TextId.of("msg", "bh-runtime", "remote", "fleet-status", "deploying"), params);
+        public static Getter running = params -> db.get(
+            TextId.of("msg", "bh-runtime", "remote", "fleet-status", "running"), params);
+        public static Getter failed = params -> db.get(
+            TextId.of("msg", "bh-runtime", "remote", "fleet-status", "failed"), params);
+        public static Getter terminated = params -> db.get(
+            TextId.of("msg", "bh-runtime", "remote", "fleet-status", "terminated"), params);
+      }
 
       /** リモート環境の BhProgram を停止するか確認する際のメッセージ. */
       public static class AskIfStop {
@@ -313,6 +331,8 @@ public class TextDefs {
       public static Getter otherOpsAreInProgress = params -> db.get(
           TextId.of("msg", "bh-runtime", "communication", "other-ops-are-in-progress"),
           params);
+      public static Getter messagesDropped = params -> db.get(
+          TextId.of("msg", "bh-runtime", "communication", "messages-dropped"), params);
     }
   }
 
@@ -25,17 +25,22 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.SequencedCollection;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import net.seapanda.bunnyhop.bhprogram.common.message.BhProgramEvent;
-import net.seapanda.bunnyhop.node.model.BhNode;
+import net.seapanda.bunnyhop.compiler.nodecollector.NodeSnapshot;
 import net.seapanda.bunnyhop.node.model.syntaxsymbol.InstanceId;
 import net.seapanda.bunnyhop.node.model.syntaxsymbol.SyntaxSymbol;
 import net.seapanda.bunnyhop.node.model.traverse.BhNodeWalker;
+import net.seapanda.bunnyhop.service.LogManager;
+import net.seapanda.bunnyhop.utility.SerialNumber;
 
 /**
  * BhNode をコンパイルするクラス.
@@ -51,8 +56,18 @@ public class BhCompilerImpl implements BhCompiler {
   private final EventHandlerCodeGenerator eventHandlerCodeGen;
   private final CommonCodeGenerator common;
   private final GlobalDataDeclCodeGenerator globalDataDeclCodeGen;
-  private final List<String> commonCodeList;
+  /** ライブラリのコード. */
+  private final String libCode;
   private final InstanceId mainRoutineId = InstanceId.of(ScriptIdentifiers.Funcs.BH_MAIN);
+  /**
+   * 前回のコンパイルで生成したルートノードごとのコード.
+   *
+   * <p>ノードツリーのスナップショットは, フィンガープリントが変わるか, 派生ノードのオリジナルノードのスナップショットが
+   * 作り直された場合に作り直される.  よって, 同じスナップショットからは同じコードが生成される.
+   */
+  private Map<NodeSnapshot, RootCode> rootToCode = new HashMap<>();
+  /** {@link #rootToCode} のコードを生成したときのコンパイルオプション. */
+  private CompileOption cachedOption;
 
   /**
    * コンストラクタ.
@@ -67,7 +82,7 @@ public class BhCompilerImpl implements BhCompiler {
     funcDefCodeGen = new FuncDefCodeGenerator(common, statCodeGen, varDeclCodeGen);
     eventHandlerCodeGen = new EventHandlerCodeGenerator(common, statCodeGen, varDeclCodeGen);
     globalDataDeclCodeGen = new GlobalDataDeclCodeGenerator(common, expCodeGen);
-    commonCodeList = readLibCode(libs);
+    libCode = String.join("", readLibCode(libs));
   }
 
   private List<String> readLibCode(Path... libPaths) throws IOException {
@@ -80,14 +95,8 @@ public class BhCompilerImpl implements BhCompiler {
   }
 
   @Override
-  public Path compile(SourceSet sourceSet, CompileOption option)
+  public synchronized Path compile(SourceSet sourceSet, CompileOption option)
       throws CompileError {
-    var targets = new ArrayList<>(sourceSet.getRootNodes());
-    BhNode mainEntryPoint = sourceSet.getMainEntryPoint();
-    if (mainEntryPoint != null && !targets.contains(mainEntryPoint)) {
-      targets.add(mainEntryPoint);
-    }
-    Preprocessor.process(targets);
     StringBuilder code = new StringBuilder();
     genCode(sourceSet, code, option);
 
@@ -119,17 +128,19 @@ public class BhCompilerImpl implements BhCompiler {
       SourceSet sourceSet,
       StringBuilder code,
       CompileOption option) {
-    String libCode = commonCodeList.stream().reduce("", (a, b) -> a + b);
+    List<RootCode> rootCodes = genRootCodes(sourceSet.getRootNodes(), option);
     code.append(libCode).append(Keywords.newLine);
-    var targets = sourceSet.getRootNodes();
-    SequencedCollection<SyntaxSymbol> globalVars =
-        varDeclCodeGen.genVarDecls(targets, code, 0, option);
+    var globalVars = new ArrayList<SyntaxSymbol>();
+    for (RootCode rootCode : rootCodes) {
+      code.append(rootCode.varDecls);
+      globalVars.addAll(rootCode.globalVars);
+    }
     genSetGlobalVars(globalVars, code, 0, option);
-    globalDataDeclCodeGen.genGlobalDataDecls(targets, code, 0, option);
+    rootCodes.forEach(rootCode -> code.append(rootCode.globalDataDecls));
     genSetEntryPointIds(sourceSet, code, 0);
     code.append(Keywords.newLine);
-    funcDefCodeGen.genFuncDefs(targets, code, 0, option);
-    eventHandlerCodeGen.genEventHandlers(targets, code, 0, option);
+    rootCodes.forEach(rootCode -> code.append(rootCode.funcDefs));
+    rootCodes.forEach(rootCode -> code.append(rootCode.eventHandlers));
     genMainMethod(sourceSet.getMainEntryPoint(), code, option);
     genAddEventFuncCall(
         BhProgramEvent.Name.PROGRAM_START, ScriptIdentifiers.Funcs.BH_MAIN, code, 0);
@@ -137,6 +148,70 @@ public class BhCompilerImpl implements BhCompiler {
 
   }
 
+  /**
+   * ルートノードごとのコードを生成する.
+   *
+   * <p>{@link CompileOption#incremental} が true の場合, 前回のコンパイルから変化の無いルートノードのコードは再利用する.
+   *
+   * @param targets コンパイル対象のルートノード一式
+   * @param option コンパイルオプション
+   * @return {@code targets} の各ルートノードから生成したコードのリスト
+   */
+  private List<RootCode> genRootCodes(Set<NodeSnapshot> targets, CompileOption option) {
+    long begin = System.nanoTime();
+    if (!option.incremental
+        || cachedOption == null
+        || !cachedOption.generatesSameCodeAs(option)) {
+      rootToCode = new HashMap<>();
+    }
+    var newRootToCode = new HashMap<NodeSnapshot, RootCode>();
+    var rootCodes = new ArrayList<RootCode>();
+    int numReused = 0;
+    for (NodeSnapshot root : targets) {
+      RootCode rootCode = rootToCode.get(root);
+      if (rootCode == null) {
+        rootCode = genRootCode(root, option);
+      } else {
+        ++numReused;
+      }
+      newRootToCode.put(root, rootCode);
+      rootCodes.add(rootCode);
+    }
+    rootToCode = option.incremental ? newRootToCode : new HashMap<>();
+    cachedOption = option;
+    LogManager.logger().info("Code generation: %d roots (%d reused) in %d ms".formatted(
+        targets.size(),
+        numReused,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin)));
+    return rootCodes;
+  }
+
+  /**
+   * {@code root} 以下のノードツリーのコードを生成する.
+   *
+   * @param root コードを生成するノードツリーのルートノード
+   * @param option コンパイルオプション
+   * @return {@code root} 以下のノードツリーから生成したコード
+   */
+  private RootCode genRootCode(NodeSnapshot root, CompileOption option) {
+    List<NodeSnapshot> target = List.of(root);
+    var varDecls = new StringBuilder();
+    SequencedCollection<SyntaxSymbol> globalVars =
+        varDeclCodeGen.genVarDecls(target, varDecls, 0, option);
+    var globalDataDecls = new StringBuilder();
+    globalDataDeclCodeGen.genGlobalDataDecls(target, globalDataDecls, 0, option);
+    var funcDefs = new StringBuilder();
+    funcDefCodeGen.genFuncDefs(target, funcDefs, 0, option);
+    var eventHandlers = new StringBuilder();
+    eventHandlerCodeGen.genEventHandlers(target, eventHandlers, 0, option);
+    return new RootCode(
+        varDecls.toString(),
+        List.copyOf(globalVars),
+        globalDataDecls.toString(),
+        funcDefs.toString(),
+        eventHandlers.toString());
+  }
+
   /**
    * メインエントリポイントのコードを生成する.
    *
@@ -144,7 +219,8 @@ public class BhCompilerImpl implements BhCompiler {
    * @param code 生成したソースコードの格納先
    * @param option コンパイルオプション
    */
-  private void genMainMethod(BhNode mainEntryPoint, StringBuilder code, CompileOption option) {
+  private void genMainMethod(
+      NodeSnapshot mainEntryPoint, StringBuilder code, CompileOption option) {
     if (mainEntryPoint == null) {
       code.append("function %s() {}\n".formatted(ScriptIdentifiers.Funcs.BH_MAIN));
       return;
@@ -229,7 +305,7 @@ public class BhCompilerImpl implements BhCompiler {
       SourceSet sourceSet,
       StringBuilder code,
       int nestLevel) {
-    Set<BhNode> entryPoints = sourceSet.getRootNodes().stream()
+    Set<NodeSnapshot> entryPoints = sourceSet.getRootNodes().stream()
         .filter(node -> SymbolNames.EntryPoint.AUTO_LIST.contains(node.getSymbolName()))
         .collect(Collectors.toCollection(HashSet::new));
     Optional.ofNullable(sourceSet.getMainEntryPoint()).ifPresent(entryPoints::add);
@@ -246,7 +322,7 @@ public class BhCompilerImpl implements BhCompiler {
 
   /** メインエントリポイントとなるノードの処理を呼ぶ関数の {@link SyntaxSymbol} を作成する. */
   private SyntaxSymbol createMainRoutineSymbol() {
-    var symbol = new SyntaxSymbol("") {
+    return new SyntaxSymbol("", mainRoutineId, SerialNumber.newNumber()) {
       @Override
       public boolean isDescendantOf(SyntaxSymbol ancestor) {
         return false;
@@ -269,12 +345,26 @@ public class BhCompilerImpl implements BhCompiler {
       public void accept(BhNodeWalker visitor) {
       }
     };
-    symbol.setInstanceId(mainRoutineId);
-    return symbol;
   }
 
   @Override
   public InstanceId mainRoutineId() {
     return mainRoutineId;
   }
+
+  /**
+   * 1 つのルートノード以下のノードツリーから生成したコード.
+   *
+   * @param varDecls 変数宣言のコード
+   * @param globalVars コードを生成したグローバル変数の変数定義ノード一覧
+   * @param globalDataDecls グローバルデータ定義のコード
+   * @param funcDefs 関数定義のコード
+   * @param eventHandlers イベントハンドラのコード
+   */
+  private record RootCode(
+      String varDecls,
+      List<SyntaxSymbol> globalVars,
+      String globalDataDecls,
+      String funcDefs,
+      String eventHandlers) {}
 }
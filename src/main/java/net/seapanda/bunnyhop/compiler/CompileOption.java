@@ -40,6 +40,8 @@ public class CompileOption {
   public final boolean withComments;
   /** 出力ファイルのパス. */
   public final Path outFile;
+  /** 前回のコンパイルから変化の無いルートノードのコードを再利用する場合 true. */
+  public final boolean incremental;
 
   private CompileOption(Builder builder) {
     addNodeInstIdToContext = builder.isDebug;
@@ -48,6 +50,21 @@ public class CompileOption {
     addConditionalWait = builder.isDebug;
     this.withComments = builder.withComments;
     this.outFile = builder.outFile;
+    this.incremental = builder.incremental;
+  }
+
+  /**
+   * このオプションと {@code other} で, 同じノードから同じコードが生成されるか調べる.
+   *
+   * @param other 比較するコンパイルオプション
+   * @return このオプションと {@code other} で, 同じノードから同じコードが生成される場合 true
+   */
+  boolean generatesSameCodeAs(CompileOption other) {
+    return addNodeInstIdToContext == other.addNodeInstIdToContext
+        && addNodeInstIdToCallStack == other.addNodeInstIdToCallStack
+        && addVarAccessorToVarStack == other.addVarAccessorToVarStack
+        && addConditionalWait == other.addConditionalWait
+        && withComments == other.withComments;
   }
 
   /** {@link CompileOption} のビルダークラス. */
@@ -55,6 +72,7 @@ public class CompileOption {
 
     private boolean isDebug = true;
     private boolean withComments = true;
+    private boolean incremental = true;
     public Path outFile = Paths.get(
         Utility.execPath, BhConstants.Path.Dir.COMPILED, BhConstants.Path.File.APP_FILE_NAME_JS);
 
@@ -68,6 +86,11 @@ public class CompileOption {
       return this;
     }
 
+    public Builder incremental(boolean incremental) {
+      this.incremental = incremental;
+      return this;
+    }
+
     public CompileOption build() {
       return new CompileOption(this);
     }
@@ -21,8 +21,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import net.seapanda.bunnyhop.bhprogram.common.message.BhProgramEvent;
-import net.seapanda.bunnyhop.node.model.BhNode;
-import net.seapanda.bunnyhop.node.model.TextNode;
+import net.seapanda.bunnyhop.compiler.nodecollector.NodeSnapshot;
+import net.seapanda.bunnyhop.compiler.nodecollector.TextNodeSnapshot;
 import net.seapanda.bunnyhop.node.model.syntaxsymbol.SyntaxSymbol;
 
 /**
@@ -135,8 +135,8 @@ class EventHandlerCodeGenerator {
     genHeaderSnippetOfEventCall(code, eventNode, genCondWait, funcName, lockVar, nestLevel, option);
     // _sleep(...)
     if (eventNode.getSymbolName().equals(SymbolNames.Event.DELAYED_START_EVENT)) {
-      TextNode delayTimeNode =
-          (TextNode) eventNode.findDescendantOf("*", "*", SymbolNames.Event.DELAY_TIME);
+      TextNodeSnapshot delayTimeNode =
+          (TextNodeSnapshot) eventNode.findDescendantOf("*", "*", SymbolNames.Event.DELAY_TIME);
       code.append(common.indent(nestLevel + 4))
           .append(common.genFuncCall(ScriptIdentifiers.Funcs.SLEEP, delayTimeNode.getText()))
           .append(";" + Keywords.newLine);
@@ -172,8 +172,8 @@ class EventHandlerCodeGenerator {
   private Optional<BhProgramEvent.Name> getEventType(SyntaxSymbol eventNode) {
     return switch (eventNode.getSymbolName()) {
       case SymbolNames.Event.KEY_PRESS_EVENT -> {
-        TextNode eventTypeNode =
-            (TextNode) eventNode.findDescendantOf("*", "*", SymbolNames.Event.KEY_CODE);
+        TextNodeSnapshot eventTypeNode =
+            (TextNodeSnapshot) eventNode.findDescendantOf("*", "*", SymbolNames.Event.KEY_CODE);
         yield Optional.ofNullable(KEY_TO_PRESSED_EVENT.get(eventTypeNode.getText()));
       }
       case SymbolNames.Event.DELAYED_START_EVENT -> Optional.of(BhProgramEvent.Name.PROGRAM_START);
@@ -315,7 +315,7 @@ class EventHandlerCodeGenerator {
   }
 
   private boolean checkIfGenerateConditionalWait(SyntaxSymbol symbol) {
-    if (symbol instanceof BhNode node) {
+    if (symbol instanceof NodeSnapshot node) {
       return node.isBreakpointGroupLeader();
     }
     return false;
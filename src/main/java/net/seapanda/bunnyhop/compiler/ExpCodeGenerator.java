@@ -19,8 +19,8 @@ package net.seapanda.bunnyhop.compiler;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import net.seapanda.bunnyhop.node.model.BhNode;
-import net.seapanda.bunnyhop.node.model.TextNode;
+import net.seapanda.bunnyhop.compiler.nodecollector.NodeSnapshot;
+import net.seapanda.bunnyhop.compiler.nodecollector.TextNodeSnapshot;
 import net.seapanda.bunnyhop.node.model.syntaxsymbol.SyntaxSymbol;
 import net.seapanda.bunnyhop.utility.Utility;
 
@@ -64,7 +64,7 @@ class ExpCodeGenerator {
       return genVarExp(expNode);
 
     } else if (SymbolNames.GlobalData.VAR_LIST.contains(expSymbolName)) {
-      var varNode = (BhNode) expNode;
+      var varNode = (NodeSnapshot) expNode;
       return common.genVarName(varNode.getOriginal());
 
     } else if (SymbolNames.Literal.LIST.contains(expSymbolName)) {
@@ -127,8 +127,8 @@ class ExpCodeGenerator {
         binaryExpNode.findDescendantOf("*", SymbolNames.BinaryExp.RIGHT_EXP, "*");
     String rightExpCode = genExpression(rightExp, code, nestLevel, option);
 
-    TextNode operator =
-        (TextNode) binaryExpNode.findDescendantOf("*", SymbolNames.BinaryExp.OPERATOR, "*");
+    TextNodeSnapshot operator =
+        (TextNodeSnapshot) binaryExpNode.findDescendantOf("*", SymbolNames.BinaryExp.OPERATOR, "*");
     String operatorCode = SymbolNames.BinaryExp.OPERATOR_MAP.get(operator.getText());    
 
     String tmpVar = common.genVarName(binaryExpNode);
@@ -164,8 +164,8 @@ class ExpCodeGenerator {
         binaryExpNode.findDescendantOf("*",  SymbolNames.BinaryExp.LEFT_EXP, "*");
     String leftExpCode = genExpression(leftExp, code, nestLevel, option);
     String tmpVar = common.genVarName(binaryExpNode);
-    TextNode operator =
-        (TextNode) binaryExpNode.findDescendantOf("*", SymbolNames.BinaryExp.OPERATOR, "*");
+    TextNodeSnapshot operator =
+        (TextNodeSnapshot) binaryExpNode.findDescendantOf("*", SymbolNames.BinaryExp.OPERATOR, "*");
     String cond =
         operator.getText().equals(SymbolNames.BinaryExp.OP_AND) ? tmpVar : ("!" + tmpVar);
 
@@ -244,7 +244,7 @@ class ExpCodeGenerator {
       int nestLevel,
       CompileOption option) {
     String inputText = "";
-    if (literal instanceof TextNode textNode) {
+    if (literal instanceof TextNodeSnapshot textNode) {
       inputText = textNode.getText();
     }
     return switch (literal.getSymbolName()) {
@@ -358,7 +358,7 @@ class ExpCodeGenerator {
       if (optionExp == null) {
         break;
       }
-      if (optionExp instanceof TextNode textNode) {
+      if (optionExp instanceof TextNodeSnapshot textNode) {
         funcIdentifier.add(textNode.getText());
       }
       ++idOption;
@@ -388,7 +388,7 @@ class ExpCodeGenerator {
     List<String> outArgList = genArgList(outArg, code, true, nestLevel, option);
     argList.addAll(outArgList);
     argList.addFirst(ScriptIdentifiers.Vars.THREAD_CONTEXT);
-    String funcName = common.genFuncName(((BhNode) funcCallNode).getOriginal());
+    String funcName = common.genFuncName(((NodeSnapshot) funcCallNode).getOriginal());
     String[] argArray = argList.toArray(new String[0]);
     final String funcCallCode = common.genFuncCall(funcName, argArray);
 
@@ -460,7 +460,7 @@ class ExpCodeGenerator {
       int nestLevel,
       CompileOption option) {
     if (SymbolNames.VarDecl.VAR_LIST.contains(varNode.getSymbolName())) {
-      BhNode varDecl = ((BhNode) varNode).getOriginal();
+      NodeSnapshot varDecl = ((NodeSnapshot) varNode).getOriginal();
       if (common.isOutputParam(varDecl)) {
         return common.genVarName(varDecl); // out -> out
       } else {
@@ -600,7 +600,7 @@ class ExpCodeGenerator {
       SyntaxSymbol colorLiteralNode,
       StringBuilder code,
       int nestLevel) {
-    String colorName = "'" + ((TextNode) colorLiteralNode).getText() + "'";
+    String colorName = "'" + ((TextNodeSnapshot) colorLiteralNode).getText() + "'";
     String colorVar = common.genVarName(colorLiteralNode);
     String rightExp = common.genFuncCall(
         ScriptIdentifiers.Funcs.CREATE_COLOR_FROM_NAME, colorName);
@@ -625,7 +625,7 @@ class ExpCodeGenerator {
 
   /** 変数ノードから式を生成する. */
   private String genVarExp(SyntaxSymbol expNode) {
-    var varNode = (BhNode) expNode;
+    var varNode = (NodeSnapshot) expNode;
     if (common.isOutputParam(varNode.getOriginal())) {
       return "(" + common.genGetOutputParamVal(varNode.getOriginal()) + ")";
     } else {
@@ -647,7 +647,7 @@ class ExpCodeGenerator {
       CompileOption option) {
     String instVar = common.genAssignNodeInstId(symbol, code, nestLevel, option);
     common.genSetInstIdToThreadContext(instVar, code, nestLevel, option);
-    if (!(symbol instanceof BhNode node)) {
+    if (!(symbol instanceof NodeSnapshot node)) {
       return;
     }
     if (node.isBreakpointGroupLeader()) {
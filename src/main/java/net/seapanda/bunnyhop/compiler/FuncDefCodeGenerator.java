@@ -19,7 +19,7 @@ package net.seapanda.bunnyhop.compiler;
 import java.util.Collection;
 import java.util.List;
 import net.seapanda.bunnyhop.compiler.VarDeclCodeGenerator.ParamList;
-import net.seapanda.bunnyhop.node.model.TextNode;
+import net.seapanda.bunnyhop.compiler.nodecollector.TextNodeSnapshot;
 import net.seapanda.bunnyhop.node.model.syntaxsymbol.SyntaxSymbol;
 
 /**
@@ -85,7 +85,7 @@ class FuncDefCodeGenerator {
         .append(funcName)
         .append("(");
     if (option.withComments) {
-      TextNode funcNameNode = (TextNode) funcDefNode.findDescendantOf(
+      TextNodeSnapshot funcNameNode = (TextNodeSnapshot) funcDefNode.findDescendantOf(
           "*", "*", SymbolNames.UserDefFunc.FUNC_NAME, "*");
       code.append(" /*").append(funcNameNode.getText()).append("*/");
     }
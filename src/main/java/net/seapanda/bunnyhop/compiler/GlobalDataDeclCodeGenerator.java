@@ -18,7 +18,7 @@ package net.seapanda.bunnyhop.compiler;
 
 import java.util.Collection;
 import java.util.Objects;
-import net.seapanda.bunnyhop.node.model.TextNode;
+import net.seapanda.bunnyhop.compiler.nodecollector.TextNodeSnapshot;
 import net.seapanda.bunnyhop.node.model.syntaxsymbol.SyntaxSymbol;
 
 /**
@@ -75,10 +75,10 @@ class GlobalDataDeclCodeGenerator {
     if (option.withComments) {
       SymbolNames.GlobalData.DATA_NAME_CNCTR_LIST.stream()
           .map(cnctrName ->
-              (TextNode) globalDataDeclNode.findDescendantOf("*", cnctrName, "*"))
+              (TextNodeSnapshot) globalDataDeclNode.findDescendantOf("*", cnctrName, "*"))
           .filter(Objects::nonNull)
           .findFirst()
-          .map(TextNode::getText)
+          .map(TextNodeSnapshot::getText)
           .ifPresent(comment -> {
             code.append(common.indent(nestLevel))
                 .append(" /*")
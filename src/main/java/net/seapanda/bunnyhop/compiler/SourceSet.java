@@ -17,7 +17,7 @@
 package net.seapanda.bunnyhop.compiler;
 
 import java.util.Set;
-import net.seapanda.bunnyhop.node.model.BhNode;
+import net.seapanda.bunnyhop.compiler.nodecollector.NodeSnapshot;
 
 /**
  * コンパイルの対象となるノード一覧を提供する機能を規定したインタフェース.
@@ -31,12 +31,12 @@ public interface SourceSet {
    *
    * @return プログラム開始時に実行されるノード.  存在しない場合は null.
    */
-  BhNode getMainEntryPoint();
+  NodeSnapshot getMainEntryPoint();
 
   /**
    * コンパイルの対象となるノード群のうち, ルートノードであるものの一覧を取得する.
    *
    * @return コンパイルの対象となるノード群うち, ルートノードであるものの一覧
    */
-  Set<BhNode> getRootNodes();
+  Set<NodeSnapshot> getRootNodes();
 }
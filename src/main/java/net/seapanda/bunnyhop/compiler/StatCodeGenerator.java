@@ -19,7 +19,7 @@ package net.seapanda.bunnyhop.compiler;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.SequencedCollection;
-import net.seapanda.bunnyhop.node.model.BhNode;
+import net.seapanda.bunnyhop.compiler.nodecollector.NodeSnapshot;
 import net.seapanda.bunnyhop.node.model.syntaxsymbol.SyntaxSymbol;
 
 /**
@@ -136,7 +136,7 @@ class StatCodeGenerator {
     if (!SymbolNames.VarDecl.VAR_LIST.contains(varSymbol.getSymbolName())) {
       return;
     }
-    BhNode varDecl = ((BhNode) varSymbol).getOriginal();
+    NodeSnapshot varDecl = ((NodeSnapshot) varSymbol).getOriginal();
     if (common.isOutputParam(varDecl)) {
       if (isAddAssign) {
         rightExp = "(%s + %s)".formatted(common.genGetOutputParamVal(varDecl), rightExp);
@@ -400,7 +400,7 @@ class StatCodeGenerator {
       StringBuilder code,
       int nestLevel,
       CompileOption option) {
-    BhNode lockVarNode = ((BhNode) mutexBlockNode).getOriginal();
+    NodeSnapshot lockVarNode = ((NodeSnapshot) mutexBlockNode).getOriginal();
     String lockVar = common.genVarName(lockVarNode);
     // try {
     code.append(common.indent(nestLevel))
@@ -511,7 +511,7 @@ class StatCodeGenerator {
       CompileOption option) {
     String instVar = common.genAssignNodeInstId(symbol, code, nestLevel, option);
     common.genSetInstIdToThreadContext(instVar, code, nestLevel, option);
-    if (!(symbol instanceof BhNode node)) {
+    if (!(symbol instanceof NodeSnapshot node)) {
       return;
     }
     if (node.isBreakpointGroupLeader()) {
@@ -22,7 +22,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.SequencedCollection;
 import java.util.stream.Collectors;
-import net.seapanda.bunnyhop.node.model.TextNode;
+import net.seapanda.bunnyhop.compiler.nodecollector.TextNodeSnapshot;
 import net.seapanda.bunnyhop.node.model.syntaxsymbol.InstanceId;
 import net.seapanda.bunnyhop.node.model.syntaxsymbol.SyntaxSymbol;
 
@@ -161,10 +161,10 @@ class VarDeclCodeGenerator {
   private VarDeclInfo toVarDeclInfo(SyntaxSymbol varDecl) {
     String comment =
         SymbolNames.VarDecl.VAR_NAME_CNCTR_LIST.stream()
-        .map(cnctrName -> (TextNode) varDecl.findDescendantOf("*", cnctrName, "*"))
+        .map(cnctrName -> (TextNodeSnapshot) varDecl.findDescendantOf("*", cnctrName, "*"))
         .filter(Objects::nonNull)
         .findFirst()
-        .map(TextNode::getText).orElse("");
+        .map(TextNodeSnapshot::getText).orElse("");
     String varName = common.genVarName(varDecl);
     String outArgName = common.genVarAccessorName(varDecl);
     String initVal = SymbolNames.VarDecl.INIT_VAL_MAP.get(varDecl.getSymbolName());
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.compiler.nodecollector;
+
+import java.util.List;
+import net.seapanda.bunnyhop.node.model.BhNode;
+
+/**
+ * {@link BhNode} の不変なスナップショット.
+ *
+ * @author K.Koike
+ */
+public class NodeSnapshot extends SymbolSnapshot {
+
+  private static final long serialVersionUID = 1L;
+
+  /** 元になったノードがブレークポイントグループのリーダーかどうか. */
+  private final boolean isBreakpointGroupLeader;
+  /** オリジナルノードのスナップショット.  元になったノードが派生ノードでない場合 null. */
+  private NodeSnapshot original;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param org スナップショットの元になるノード
+   * @param children 子シンボルのスナップショット
+   */
+  NodeSnapshot(BhNode org, List<SymbolSnapshot> children) {
+    super(org, children);
+    isBreakpointGroupLeader = org.isBreakpointGroupLeader();
+  }
+
+  /**
+   * オリジナルノードのスナップショットを取得する.
+   *
+   * @return オリジナルノードのスナップショット.  元になったノードが派生ノードでない場合 null.
+   */
+  public NodeSnapshot getOriginal() {
+    return original;
+  }
+
+  /** オリジナルノードのスナップショットを設定する.  スナップショットの作成中にだけ呼ぶこと. */
+  void setOriginal(NodeSnapshot original) {
+    this.original = original;
+  }
+
+  /**
+   * 元になったノードがブレークポイントグループのリーダかどうか調べる.
+   *
+   * @return 元になったノードがブレークポイントグループのリーダである場合 true.
+   */
+  public boolean isBreakpointGroupLeader() {
+    return isBreakpointGroupLeader;
+  }
+}
@@ -14,12 +14,12 @@
  * limitations under the License.
  */
 
-package net.seapanda.bunnyhop.compiler;
+package net.seapanda.bunnyhop.compiler.nodecollector;
 
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Consumer;
+import java.util.function.BiConsumer;
+import net.seapanda.bunnyhop.compiler.SymbolNames;
 import net.seapanda.bunnyhop.node.model.BhNode;
 import net.seapanda.bunnyhop.node.model.TextNode;
 import net.seapanda.bunnyhop.node.model.syntaxsymbol.SyntaxSymbol;
@@ -28,11 +28,14 @@ import net.seapanda.bunnyhop.node.model.traverse.CallbackInvoker;
 /**
  * コード生成前の処理を行うクラス.
  *
+ * <p>ワークスペース上のノードは変更せず, スナップショットに反映すべき変更内容を返す.
+ *
  * @author K.Koike
  */
 class Preprocessor {
 
-  private static final Map<String, Consumer<SyntaxSymbol>> NODE_NAME_TO_PREPROCESSOR =
+  private static final
+      Map<String, BiConsumer<SyntaxSymbol, Map<TextNode, String>>> NODE_NAME_TO_PREPROCESSOR =
       new HashMap<>() {{
           put(SymbolNames.PreDefFunc.ANY_LIST_TO_STR_EXP, Preprocessor::procAnyListToStrExp);
         }
@@ -41,16 +44,19 @@ class Preprocessor {
   /**
    * コンパイル前の処理を行う.
    *
-   * @param nodesToPreprocess 処理するノードのリスト
+   * @param nodeToPreprocess このノード以下を処理する
+   * @return スナップショットに設定するテキストを元のノードのテキストの代わりに指定するマップ
    */
-  static void process(Collection<BhNode> nodesToPreprocess) {
-
+  static Map<TextNode, String> process(BhNode nodeToPreprocess) {
+    var textOverrides = new HashMap<TextNode, String>();
     // コールバック登録
     CallbackInvoker.CallbackRegistry callbacks = CallbackInvoker.newCallbackRegistry();
-    NODE_NAME_TO_PREPROCESSOR.forEach(callbacks::set);
+    NODE_NAME_TO_PREPROCESSOR.forEach((symbolName, preprocessor) ->
+        callbacks.set(symbolName, symbol -> preprocessor.accept(symbol, textOverrides)));
 
     // コールバック呼び出し
-    nodesToPreprocess.forEach(node -> CallbackInvoker.invoke(callbacks, node));
+    CallbackInvoker.invoke(callbacks, nodeToPreprocess);
+    return textOverrides;
   }
 
 
@@ -58,13 +64,14 @@ class Preprocessor {
    * AnyListToStrExp ノードの前処理を行う.
    *
    * @param node AnyListToStrExp ノード
+   * @param textOverrides スナップショットに設定するテキストの格納先
    */
-  private static void procAnyListToStrExp(SyntaxSymbol node) {
+  private static void procAnyListToStrExp(SyntaxSymbol node, Map<TextNode, String> textOverrides) {
     SyntaxSymbol listNode = node.findDescendantOf("*", "Arg0", "*");
     SyntaxSymbol listNameNode =
         listNode.findDescendantOf("*", SymbolNames.VarDecl.LIST_NAME, "*");
     String listName = (listNameNode instanceof TextNode textNode) ? textNode.getText() : "";
     SyntaxSymbol dest = node.findDescendantOf("*", "Arg1", "*");
-    ((TextNode) dest).setText(listName);
+    textOverrides.put((TextNode) dest, listName);
   }
 }
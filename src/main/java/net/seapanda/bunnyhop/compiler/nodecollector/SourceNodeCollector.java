@@ -27,11 +27,12 @@ import javafx.scene.control.ButtonType;
 import net.seapanda.bunnyhop.common.text.TextDefs;
 import net.seapanda.bunnyhop.compiler.SourceSet;
 import net.seapanda.bunnyhop.compiler.SymbolNames;
+import net.seapanda.bunnyhop.linter.model.CompileErrorChecker;
 import net.seapanda.bunnyhop.linter.model.CompileErrorNodeCache;
 import net.seapanda.bunnyhop.node.model.BhNode;
-import net.seapanda.bunnyhop.node.model.syntaxsymbol.InstanceId;
 import net.seapanda.bunnyhop.node.model.syntaxsymbol.SyntaxSymbol;
 import net.seapanda.bunnyhop.service.message.MessageService;
+import net.seapanda.bunnyhop.service.undo.UserOperation;
 import net.seapanda.bunnyhop.workspace.model.WorkspaceSet;
 
 /**
@@ -44,22 +45,27 @@ public class SourceNodeCollector {
   /** このワークスペースセットからコンパイル対象ノードを集める. */
   private final WorkspaceSet wss;
   private final CompileErrorNodeCache compileErrorNodeCache;
+  private final CompileErrorChecker compileErrorChecker;
   private final MessageService msgService;
   private final SequencedSet<BhNode> selectedNodes = new LinkedHashSet<>();
+  private final SourceSetSnapshotFactory snapshotFactory = new SourceSetSnapshotFactory();
 
   /**
    * コンストラクタ.
    *
    * @param wss このワークスペースセットからコンパイル対象ノードを集める
    * @param compileErrorNodeCache コンパイルエラーノードを管理するオブジェクト
+   * @param compileErrorChecker ノードのコンパイルエラーを調べるオブジェクト
    * @param msgService アプリケーションユーザにメッセージを出力するためのオブジェクト
    */
   public SourceNodeCollector(
       WorkspaceSet wss,
       CompileErrorNodeCache compileErrorNodeCache,
+      CompileErrorChecker compileErrorChecker,
       MessageService msgService) {
     this.wss = wss;
     this.compileErrorNodeCache = compileErrorNodeCache;
+    this.compileErrorChecker = compileErrorChecker;
     this.msgService = msgService;
     setEventHandlers();
   }
@@ -78,16 +84,19 @@ public class SourceNodeCollector {
 
   /**
    * 実行可能なノードを集める.
-   * 返されるノードは, ワークスペースに存在するノードのディープコピー.
+   * 返されるノードは, ワークスペースに存在するノードの不変なスナップショット.
    *
+   * @param userOpe undo 用コマンドオブジェクト
    * @return コンパイル対象の全ノードとプログラム開始時に実行されるノードのセット
    */
-  public Optional<SourceSet> collect() {
-    return collectNodes();
+  public Optional<SourceSet> collect(UserOperation userOpe) {
+    return collectNodes(userOpe);
   }
 
   /** コンパイルの対象となるノード一式のスナップショットを作成する. */
-  private Optional<SourceSet> collectNodes() {
+  private Optional<SourceSet> collectNodes(UserOperation userOpe) {
+    // 未検査のノードが残っている可能性があるので, 全てのノードのコンパイルエラーを調べ終えてから判定する
+    compileErrorChecker.checkAll(userOpe);
     if (compileErrorNodesExit()) {
       return Optional.empty();
     }
@@ -107,8 +116,7 @@ public class SourceNodeCollector {
           TextDefs.Compile.InformSelectNodeToExecute.body.get());
       return Optional.empty();
     }
-    InstanceId mainEntryPointId = (mainEntryPoint == null) ? null : mainEntryPoint.getInstanceId();
-    return Optional.of(new SourceSetSnapshot(mainEntryPointId, rootNodes));
+    return Optional.of(snapshotFactory.create(mainEntryPoint, rootNodes));
   }
 
   /**
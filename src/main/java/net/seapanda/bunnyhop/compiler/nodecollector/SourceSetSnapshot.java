@@ -16,15 +16,10 @@
 
 package net.seapanda.bunnyhop.compiler.nodecollector;
 
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 import net.seapanda.bunnyhop.compiler.SourceSet;
 import net.seapanda.bunnyhop.node.model.BhNode;
-import net.seapanda.bunnyhop.node.model.syntaxsymbol.InstanceId;
-import net.seapanda.bunnyhop.node.model.traverse.CallbackInvoker;
-import org.apache.commons.lang3.SerializationUtils;
 
 /**
  * コンパイルの対象となる {@link BhNode} のスナップショット.
@@ -33,38 +28,28 @@ import org.apache.commons.lang3.SerializationUtils;
  */
 class SourceSetSnapshot implements SourceSet {
 
-  private final Set<BhNode> rootNodes;
+  private final Set<NodeSnapshot> rootNodes;
   /** プログラム開始時に実行されるノード. */
-  private final BhNode mainEntryPoint;
+  private final NodeSnapshot mainEntryPoint;
 
   /**
    * コンストラクタ.
    *
-   * @param mainEntryPointId プログラム開始時に実行されるノードの {@link InstanceId}.  (nullable)
-   * @param rootNodes コンパイルの対象となる {@link BhNode} 一式のルートノード.
+   * @param mainEntryPoint プログラム開始時に実行されるノードのスナップショット.  (nullable)
+   * @param rootNodes コンパイルの対象となる {@link BhNode} 一式のルートノードのスナップショット.
    */
-  SourceSetSnapshot(InstanceId mainEntryPointId, Set<BhNode> rootNodes) {
-    this.rootNodes = SerializationUtils.clone(new HashSet<>(rootNodes));
-    Map<InstanceId, BhNode> symbolIdToNode = collectNode(rootNodes);
-    mainEntryPoint = (mainEntryPointId == null) ? null : symbolIdToNode.get(mainEntryPointId);
-  }
-
-  /** {@code rootNodeList} から辿れるノードをインスタンス ID と共に集めて返す. */
-  private Map<InstanceId, BhNode> collectNode(Set<BhNode> rootNodes) {
-    var symbolIdToNode = new HashMap<InstanceId, BhNode>();
-    var registry = CallbackInvoker.newCallbackRegistry().setForAllNodes(
-        node -> symbolIdToNode.put(node.getInstanceId(), node));
-    rootNodes.forEach(rootNode -> CallbackInvoker.invoke(registry, rootNode));
-    return symbolIdToNode;
+  SourceSetSnapshot(NodeSnapshot mainEntryPoint, Set<NodeSnapshot> rootNodes) {
+    this.rootNodes = new HashSet<>(rootNodes);
+    this.mainEntryPoint = mainEntryPoint;
   }
 
   @Override
-  public Set<BhNode> getRootNodes() {
+  public Set<NodeSnapshot> getRootNodes() {
     return new HashSet<>(rootNodes);
   }
 
   @Override
-  public BhNode getMainEntryPoint() {
+  public NodeSnapshot getMainEntryPoint() {
     return mainEntryPoint;
   }
 }
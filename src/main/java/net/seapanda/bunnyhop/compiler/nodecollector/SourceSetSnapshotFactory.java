@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.compiler.nodecollector;
+
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import net.seapanda.bunnyhop.compiler.nodecollector.SymbolSnapshotBuilder.OriginalLink;
+import net.seapanda.bunnyhop.compiler.nodecollector.SymbolSnapshotBuilder.Result;
+import net.seapanda.bunnyhop.node.model.BhNode;
+import net.seapanda.bunnyhop.service.LogManager;
+
+/**
+ * {@link SourceSetSnapshot} を作成するクラス.
+ *
+ * <p>前回作成したスナップショットを保持しておき, 前回から変化の無いノードツリーのスナップショットは再利用する.
+ * ノードツリーに変化があったかどうかは, ノードツリーを符号化したバイト列の SHA-256 ダイジェストで判断する.
+ * ノードツリーに変化が無くても, その中の派生ノードのオリジナルノードを含むノードツリーのスナップショットを作り直した場合は,
+ * そのノードツリーのスナップショットも作り直す.
+ *
+ * @author K.Koike
+ */
+class SourceSetSnapshotFactory {
+
+  /** 前回作成したスナップショットのルートノードとその作成結果のマップ. */
+  private Map<BhNode, Result> rootToResult = new HashMap<>();
+
+  /**
+   * スナップショットを作成する.
+   *
+   * @param mainEntryPoint プログラム開始時に実行されるノード.  (nullable)
+   * @param rootNodes コンパイルの対象となる {@link BhNode} 一式のルートノード.
+   * @return {@code rootNodes} のスナップショット
+   */
+  SourceSetSnapshot create(BhNode mainEntryPoint, Set<BhNode> rootNodes) {
+    long begin = System.nanoTime();
+    Map<BhNode, Result> reused = findReusableResults(rootNodes);
+    var newRootToResult = new HashMap<BhNode, Result>(reused);
+    Map<BhNode, Result> others = new HashMap<>();
+    Deque<Result> resultsToLink = new ArrayDeque<>();
+    for (BhNode root : rootNodes) {
+      if (!reused.containsKey(root)) {
+        Result result = build(root);
+        newRootToResult.put(root, result);
+        resultsToLink.add(result);
+      }
+    }
+    if (mainEntryPoint != null && !newRootToResult.containsKey(mainEntryPoint)) {
+      Result result = build(mainEntryPoint);
+      others.put(mainEntryPoint, result);
+      resultsToLink.add(result);
+    }
+    // コンパイル対象でないノードツリーにあるオリジナルノードのスナップショットも作成してリンクする
+    while (!resultsToLink.isEmpty()) {
+      for (OriginalLink link : resultsToLink.removeFirst().links()) {
+        BhNode root = link.original().findRootNode();
+        Result result = newRootToResult.getOrDefault(root, others.get(root));
+        if (result == null) {
+          result = build(root);
+          others.put(root, result);
+          resultsToLink.add(result);
+        }
+        link.derivative().setOriginal(result.nodeToSnapshot().get(link.original()));
+      }
+    }
+    rootToResult = newRootToResult;
+
+    NodeSnapshot mainEntryPointSnapshot = (mainEntryPoint == null)
+        ? null : newRootToResult.getOrDefault(mainEntryPoint, others.get(mainEntryPoint)).root();
+    Set<NodeSnapshot> rootSnapshots = new HashSet<>();
+    rootNodes.forEach(root -> rootSnapshots.add(newRootToResult.get(root).root()));
+    LogManager.logger().info("Source snapshot: %d roots (%d reused) in %d ms".formatted(
+        rootNodes.size(),
+        reused.size(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin)));
+    return new SourceSetSnapshot(mainEntryPointSnapshot, rootSnapshots);
+  }
+
+  /** {@code root} 以下のノードツリーの前処理を行った後, スナップショットを作成する. */
+  private static Result build(BhNode root) {
+    return SymbolSnapshotBuilder.build(root, Preprocessor.process(root));
+  }
+
+  /**
+   * 前回作成したスナップショットのうち, 再利用できるものを探す.
+   *
+   * @param rootNodes コンパイルの対象となる {@link BhNode} 一式のルートノード.
+   * @return 再利用可能なスナップショットのルートノードとその作成結果のマップ
+   */
+  private Map<BhNode, Result> findReusableResults(Set<BhNode> rootNodes) {
+    var reusable = new HashMap<BhNode, Result>();
+    for (BhNode root : rootNodes) {
+      Result result = rootToResult.get(root);
+      if (result != null
+          && MessageDigest.isEqual(result.digest(), SymbolSnapshotBuilder.digest(root))) {
+        reusable.put(root, result);
+      }
+    }
+    // オリジナルノードのスナップショットが作り直される派生ノードを含むスナップショットは再利用しない
+    boolean removed = true;
+    while (removed) {
+      removed = reusable.values().removeIf(result -> !areLinksValid(result, reusable));
+    }
+    return reusable;
+  }
+
+  /** {@code result} の派生ノードのスナップショットが, 再利用可能なオリジナルノードのスナップショットとリンクしているか調べる. */
+  private static boolean areLinksValid(Result result, Map<BhNode, Result> reusable) {
+    for (OriginalLink link : result.links()) {
+      Result originalResult = reusable.get(link.original().findRootNode());
+      if (originalResult == null
+          || originalResult.nodeToSnapshot().get(link.original())
+              != link.derivative().getOriginal()) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.compiler.nodecollector;
+
+import java.util.List;
+import net.seapanda.bunnyhop.node.model.syntaxsymbol.SyntaxSymbol;
+import net.seapanda.bunnyhop.node.model.traverse.BhNodeWalker;
+
+/**
+ * コード生成に必要な情報だけを保持する {@link SyntaxSymbol} の不変なスナップショット.
+ *
+ * <p>コネクタとセクションはこのクラスで, ノードはサブクラスで表す.
+ * 元になった {@link SyntaxSymbol} のシンボル名, インスタンス ID, シリアルナンバーを引き継ぐ.
+ * {@link SyntaxSymbol} はインスタンス ID を変更するメソッドを公開しないので, コード生成器からは変更できない.
+ *
+ * <p>スナップショットはシリアライズしない.
+ *
+ * @author K.Koike
+ */
+public class SymbolSnapshot extends SyntaxSymbol {
+
+  private static final long serialVersionUID = 1L;
+
+  /** 子シンボルの配列. */
+  private final SymbolSnapshot[] children;
+  /** 親シンボル.  ルートの場合 null. */
+  private SymbolSnapshot parent;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param org スナップショットの元になるシンボル
+   * @param children 子シンボルのスナップショット
+   */
+  SymbolSnapshot(SyntaxSymbol org, List<SymbolSnapshot> children) {
+    super(org.getSymbolName(), org.getInstanceId(), org.getSerialNo());
+    this.children = children.toArray(new SymbolSnapshot[0]);
+    for (SymbolSnapshot child : this.children) {
+      child.parent = this;
+    }
+  }
+
+  @Override
+  public void findDescendantOf(
+      int generation,
+      boolean toBottom,
+      List<SyntaxSymbol> foundSymbolList,
+      String... symbolNames) {
+    if (generation == 0) {
+      for (String symbolName : symbolNames) {
+        if (symbolNameMatches(symbolName)) {
+          foundSymbolList.add(this);
+        }
+      }
+      if (!toBottom) {
+        return;
+      }
+    }
+    for (SymbolSnapshot child : children) {
+      child.findDescendantOf(Math.max(0, generation - 1), toBottom, foundSymbolList, symbolNames);
+    }
+  }
+
+  @Override
+  public SyntaxSymbol findAncestorOf(String symbolName, int generation, boolean toTop) {
+    if (generation == 0) {
+      if (symbolNameMatches(symbolName)) {
+        return this;
+      }
+      if (!toTop) {
+        return null;
+      }
+    }
+    if (parent == null) {
+      return null;
+    }
+    return parent.findAncestorOf(symbolName, Math.max(0, generation - 1), toTop);
+  }
+
+  @Override
+  public boolean isDescendantOf(SyntaxSymbol ancestor) {
+    if (this == ancestor) {
+      return true;
+    }
+    if (parent == null) {
+      return false;
+    }
+    return parent.isDescendantOf(ancestor);
+  }
+
+  /** スナップショットは {@link BhNodeWalker} の走査対象にならないので何もしない. */
+  @Override
+  public void accept(BhNodeWalker visitor) {}
+}
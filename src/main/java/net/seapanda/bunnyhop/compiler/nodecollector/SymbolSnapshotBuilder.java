@@ -0,0 +1,240 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.compiler.nodecollector;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.seapanda.bunnyhop.node.model.BhNode;
+import net.seapanda.bunnyhop.node.model.ConnectiveNode;
+import net.seapanda.bunnyhop.node.model.Connector;
+import net.seapanda.bunnyhop.node.model.TextNode;
+import net.seapanda.bunnyhop.node.model.section.ConnectorSection;
+import net.seapanda.bunnyhop.node.model.section.Subsection;
+import net.seapanda.bunnyhop.node.model.syntaxsymbol.SyntaxSymbol;
+import net.seapanda.bunnyhop.node.model.traverse.BhNodeWalker;
+
+/**
+ * ノードツリーを走査して, そのダイジェストとスナップショットを作成するクラス.
+ *
+ * <p>ダイジェストは, ノードツリーを構成するシンボルのシンボル名, シリアルナンバー, インスタンス ID,
+ * テキスト, オリジナルノードなど, コード生成の結果に影響するものを曖昧さなく符号化したバイト列の SHA-256 である.
+ *
+ * @author K.Koike
+ */
+class SymbolSnapshotBuilder implements BhNodeWalker {
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+  /** {@link ConnectiveNode} の開始を表すタグ. */
+  private static final byte TAG_CONNECTIVE_NODE = 1;
+  /** {@link TextNode} の開始を表すタグ. */
+  private static final byte TAG_TEXT_NODE = 2;
+  /** ノード以外のシンボルの開始を表すタグ. */
+  private static final byte TAG_INNER_SYMBOL = 3;
+  /** 子シンボルの終わりを表すタグ. */
+  private static final byte TAG_END = 4;
+
+  /** スナップショットを作成する場合 true.  ダイジェストだけを計算する場合 false. */
+  private final boolean buildsSnapshot;
+  /** スナップショットに設定するテキストを元のノードのテキストの代わりに指定するマップ. */
+  private final Map<TextNode, String> textOverrides;
+  /** 走査中のシンボルの子要素のスナップショットを格納するスタック. */
+  private final Deque<List<SymbolSnapshot>> stack = new ArrayDeque<>();
+  /** 走査したノードとそのスナップショットのマップ. */
+  private final Map<BhNode, NodeSnapshot> nodeToSnapshot = new HashMap<>();
+  /** 派生ノードのスナップショットとその元になった派生ノードのオリジナルノードのリスト. */
+  private final List<OriginalLink> links = new ArrayList<>();
+  /** 走査したノードツリーのダイジェストを計算するオブジェクト. */
+  private final MessageDigest digest = newDigest();
+  /** {@link #digest} に long 値を渡すためのバッファ. */
+  private final byte[] longBuf = new byte[Long.BYTES];
+
+  /**
+   * {@code root} 以下のノードツリーのダイジェストを計算する.
+   *
+   * @param root このノード以下のダイジェストを計算する
+   * @return {@code root} 以下のノードツリーのダイジェスト
+   */
+  static byte[] digest(BhNode root) {
+    var builder = new SymbolSnapshotBuilder(false, Map.of());
+    builder.stack.push(new ArrayList<>());
+    root.accept(builder);
+    return builder.digest.digest();
+  }
+
+  /**
+   * {@code root} 以下のノードツリーのスナップショットを作成する.
+   * 作成したスナップショットには, オリジナルノードのスナップショットが設定されていない.
+   *
+   * <p>作成結果のダイジェストは, {@link #digest} が {@code root} に対して返す値と同じである.
+   *
+   * @param root このノード以下のスナップショットを作成する
+   * @param textOverrides スナップショットに設定するテキストを元のノードのテキストの代わりに指定するマップ
+   * @return スナップショットの作成結果
+   */
+  static Result build(BhNode root, Map<TextNode, String> textOverrides) {
+    var builder = new SymbolSnapshotBuilder(true, textOverrides);
+    builder.stack.push(new ArrayList<>());
+    root.accept(builder);
+    return new Result(
+        (NodeSnapshot) builder.stack.pop().getFirst(),
+        builder.digest.digest(),
+        builder.nodeToSnapshot,
+        builder.links);
+  }
+
+  private SymbolSnapshotBuilder(boolean buildsSnapshot, Map<TextNode, String> textOverrides) {
+    this.buildsSnapshot = buildsSnapshot;
+    this.textOverrides = textOverrides;
+  }
+
+  @Override
+  public void visit(ConnectiveNode node) {
+    updateNode(TAG_CONNECTIVE_NODE, node);
+    stack.push(new ArrayList<>());
+    node.sendToSections(this);
+    List<SymbolSnapshot> children = stack.pop();
+    digest.update(TAG_END);
+    if (buildsSnapshot) {
+      var snapshot = new NodeSnapshot(node, children);
+      register(node, snapshot);
+      stack.peek().add(snapshot);
+    }
+  }
+
+  @Override
+  public void visit(TextNode node) {
+    updateNode(TAG_TEXT_NODE, node);
+    // 前処理で置き換えるテキストは元のテキストから決まるので, ダイジェストには元のテキストを使う
+    update(node.getText());
+    if (buildsSnapshot) {
+      var snapshot = new TextNodeSnapshot(node, textOverrides.getOrDefault(node, node.getText()));
+      register(node, snapshot);
+      stack.peek().add(snapshot);
+    }
+  }
+
+  @Override
+  public void visit(Subsection section) {
+    updateSymbol(TAG_INNER_SYMBOL, section);
+    stack.push(new ArrayList<>());
+    section.sendToSubsections(this);
+    addInnerSymbol(section, stack.pop());
+  }
+
+  @Override
+  public void visit(ConnectorSection section) {
+    updateSymbol(TAG_INNER_SYMBOL, section);
+    stack.push(new ArrayList<>());
+    section.sendToConnectors(this);
+    addInnerSymbol(section, stack.pop());
+  }
+
+  @Override
+  public void visit(Connector connector) {
+    updateSymbol(TAG_INNER_SYMBOL, connector);
+    stack.push(new ArrayList<>());
+    connector.sendToConnectedNode(this);
+    addInnerSymbol(connector, stack.pop());
+  }
+
+  /** ノード以外の {@link SyntaxSymbol} の子シンボルの終わりを記録し, そのスナップショットを親に追加する. */
+  private void addInnerSymbol(SyntaxSymbol symbol, List<SymbolSnapshot> children) {
+    digest.update(TAG_END);
+    if (buildsSnapshot) {
+      stack.peek().add(new SymbolSnapshot(symbol, children));
+    }
+  }
+
+  /** {@code node} とそのスナップショットを記録する. */
+  private void register(BhNode node, NodeSnapshot snapshot) {
+    nodeToSnapshot.put(node, snapshot);
+    if (node.getOriginal() != null) {
+      links.add(new OriginalLink(snapshot, node.getOriginal()));
+    }
+  }
+
+  /** {@code node} 自身の情報で {@link #digest} を更新する. */
+  private void updateNode(byte tag, BhNode node) {
+    updateSymbol(tag, node);
+    digest.update((byte) (node.isBreakpointGroupLeader() ? 1 : 0));
+    BhNode original = node.getOriginal();
+    digest.update((byte) ((original == null) ? 0 : 1));
+    if (original != null) {
+      update(original.getSerialNo().value());
+    }
+  }
+
+  /** {@code symbol} 自身の情報で {@link #digest} を更新する. */
+  private void updateSymbol(byte tag, SyntaxSymbol symbol) {
+    digest.update(tag);
+    update(symbol.getSymbolName());
+    update(symbol.getSerialNo().value());
+    update(symbol.getInstanceId().toString());
+  }
+
+  /** 長さを前に付けた {@code str} で {@link #digest} を更新する. */
+  private void update(String str) {
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    update(bytes.length);
+    digest.update(bytes);
+  }
+
+  private void update(long val) {
+    for (int i = 0; i < Long.BYTES; ++i) {
+      longBuf[i] = (byte) (val >>> (i * Byte.SIZE));
+    }
+    digest.update(longBuf);
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      // 全ての Java プラットフォームは SHA-256 をサポートしている
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * 派生ノードのスナップショットとその元になったノードのオリジナルノード.
+   *
+   * @param derivative 派生ノードのスナップショット
+   * @param original {@code derivative} の元になったノードのオリジナルノード
+   */
+  record OriginalLink(NodeSnapshot derivative, BhNode original) {}
+
+  /**
+   * スナップショットの作成結果.
+   *
+   * @param root 作成したスナップショットのルート
+   * @param digest {@code root} の元になったノードツリーのダイジェスト
+   * @param nodeToSnapshot 走査したノードとそのスナップショットのマップ
+   * @param links 派生ノードのスナップショットとその元になったノードのオリジナルノードのリスト
+   */
+  record Result(
+      NodeSnapshot root,
+      byte[] digest,
+      Map<BhNode, NodeSnapshot> nodeToSnapshot,
+      List<OriginalLink> links) {}
+}
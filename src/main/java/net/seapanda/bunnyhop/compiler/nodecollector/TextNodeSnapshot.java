@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.compiler.nodecollector;
+
+import java.util.List;
+import net.seapanda.bunnyhop.node.model.TextNode;
+
+/**
+ * {@link TextNode} の不変なスナップショット.
+ *
+ * @author K.Koike
+ */
+public class TextNodeSnapshot extends NodeSnapshot {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String text;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param org スナップショットの元になるノード
+   * @param text このスナップショットが保持するテキスト
+   */
+  TextNodeSnapshot(TextNode org, String text) {
+    super(org, List.of());
+    this.text = text;
+  }
+
+  /**
+   * このスナップショットが保持している文字列を返す.
+   *
+   * @return このスナップショットが保持している文字列
+   */
+  public String getText() {
+    return text;
+  }
+}
@@ -29,6 +29,7 @@ import static net.seapanda.bunnyhop.common.configuration.BhConstants.Path.Dir.LO
 import static net.seapanda.bunnyhop.common.configuration.BhConstants.Path.Dir.NODE_DEF;
 import static net.seapanda.bunnyhop.common.configuration.BhConstants.Path.Dir.NODE_STYLE_DEF;
 import static net.seapanda.bunnyhop.common.configuration.BhConstants.Path.Dir.REMOTE;
+import static net.seapanda.bunnyhop.common.configuration.BhConstants.Path.Dir.SCRIPT_CACHE;
 import static net.seapanda.bunnyhop.common.configuration.BhConstants.Path.Dir.SETTINGS;
 import static net.seapanda.bunnyhop.common.configuration.BhConstants.Path.Dir.TEMPLATE_NODE_LIST;
 import static net.seapanda.bunnyhop.common.configuration.BhConstants.Path.Dir.VIEW;
@@ -62,6 +63,8 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
@@ -70,7 +73,9 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.function.Supplier;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Rectangle2D;
+import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.ButtonType;
@@ -83,6 +88,7 @@ import net.seapanda.bunnyhop.bhprogram.common.message.BhProgramEvent;
 import net.seapanda.bunnyhop.bhprogram.message.BhProgramMessageDispatcher;
 import net.seapanda.bunnyhop.bhprogram.message.IoMessageProcessorImpl;
 import net.seapanda.bunnyhop.bhprogram.runtime.BhRuntimeType;
+import net.seapanda.bunnyhop.bhprogram.runtime.RemoteBhRuntimeFleet;
 import net.seapanda.bunnyhop.bhprogram.runtime.RmiLocalBhRuntimeController;
 import net.seapanda.bunnyhop.bhprogram.runtime.RmiRemoteBhRuntimeController;
 import net.seapanda.bunnyhop.common.configuration.BhConstants;
@@ -127,6 +133,7 @@ import net.seapanda.bunnyhop.service.LogManager;
 import net.seapanda.bunnyhop.service.accesscontrol.TransactionNotificationServiceImpl;
 import net.seapanda.bunnyhop.service.message.BhMessageService;
 import net.seapanda.bunnyhop.service.message.MessageService;
+import net.seapanda.bunnyhop.service.message.TaggedMessageService;
 import net.seapanda.bunnyhop.service.script.BhScriptRepositoryImpl;
 import net.seapanda.bunnyhop.service.undo.UndoRedoAgent;
 import net.seapanda.bunnyhop.simulator.BhSimulator;
@@ -143,6 +150,7 @@ import net.seapanda.bunnyhop.workspace.control.TrashCanController;
 import net.seapanda.bunnyhop.workspace.control.WorkspaceSetController;
 import net.seapanda.bunnyhop.workspace.model.CopyAndPaste;
 import net.seapanda.bunnyhop.workspace.model.CutAndPaste;
+import net.seapanda.bunnyhop.workspace.model.NodeSearchIndex;
 import net.seapanda.bunnyhop.workspace.model.WorkspaceSet;
 import net.seapanda.bunnyhop.workspace.model.factory.WorkspaceFactoryImpl;
 import org.apache.commons.lang3.mutable.MutableBoolean;
@@ -156,6 +164,9 @@ import org.apache.commons.lang3.mutable.MutableInt;
  */
 public class AppMain extends Application {
 
+  /** 最初のフレームを表示した後にアプリケーションを終了するかどうかを指定するシステムプロパティ (起動時間の計測用). */
+  private static final String EXIT_AFTER_STARTUP = "bunnyhop.exitAfterStartup";
+
   public static void main(String[] args) {
     launch(args);
   }
@@ -208,18 +219,22 @@ public class AppMain extends Application {
 
       final var wss = new WorkspaceSet();
       final var compileErrorNodeCache = new CompileErrorNodeCache(wss);
-      final var executableNodeCollector =
-          new SourceNodeCollector(wss, compileErrorNodeCache, msgService);
+      final var nodeSearchIndex = new NodeSearchIndex(wss);
       final var compileErrChecker = new CompileErrorChecker(wss);
+      final var executableNodeCollector = new SourceNodeCollector(
+          wss, compileErrorNodeCache, compileErrChecker, msgService);
       final var undoRedoAgent = new UndoRedoAgent(wss);
       final var derivativeCache = new DerivativeCache();
       final var nodeViewSuperVisor = new BhNodeViewSupervisor(wss);
-      final var mediator =
-          new TransactionNotificationServiceImpl(derivativeCache, compileErrChecker, undoRedoAgent);
+      final var mediator = new TransactionNotificationServiceImpl(
+          derivativeCache, compileErrChecker, undoRedoAgent, Platform::runLater);
       final var wssCtrl = new WorkspaceSetController(wss, mediator);
       final var nodeSelViewProxy =
           new BhNodeSelectionViewProxyImpl(nodeSelectionViewFile, wssCtrl::addNodeSelectionView);
-      final var scriptRepository = new BhScriptRepositoryImpl(scriptDirs);
+      final Path scriptCacheDir =
+          BhSettings.Script.useBytecodeCache ? Paths.get(execPath, SCRIPT_CACHE) : null;
+      final var scriptRepository = new BhScriptRepositoryImpl(
+          BhSettings.Script.interpretedMode, scriptCacheDir, scriptDirs);
       final var viewStyleFactory = new JsonBhNodeViewStyleFactory(viewStyleDir);
       final var buttonFactory = new PrivateTemplateButtonFactoryImpl(
           btnFile, viewStyleFactory, mediator, nodeSelViewProxy);
@@ -256,13 +271,12 @@ public class AppMain extends Application {
       final var localCompiler = genCompiler(true);
       final var remoteCompiler = genCompiler(false);
 
-      final var localRuntimeCtrl = new RmiLocalBhRuntimeController(simCmdProcessor, msgService);
+      final var localRuntimeCtrl = new RmiLocalBhRuntimeController(
+          simCmdProcessor, msgService, BhSettings.BhRuntime.numStandbyLocalRuntimes);
       final var localBhProgramCtrl =
           new LocalBhProgramLauncherImpl(localCompiler, localRuntimeCtrl, msgService);
       final var remoteRuntimeCtrl =
           new RmiRemoteBhRuntimeController(msgService, scriptRepository);
-      final var remoteBhProgramCtrl =
-          new RemoteBhProgramControllerImpl(remoteCompiler, remoteRuntimeCtrl, msgService);
       final var searchBoxCtrl = new SearchBoxController();
       final var breakpointCache = new BreakpointCache(wss);
       final var debugger = new BhDebugger(localRuntimeCtrl, remoteRuntimeCtrl, breakpointCache);
@@ -285,6 +299,19 @@ public class AppMain extends Application {
           msgProcessor, debugMsgProcessor, simCmdProcessor, localRuntimeCtrl, mediator);
       new BhProgramMessageDispatcher(
           msgProcessor, debugMsgProcessor, simCmdProcessor, remoteRuntimeCtrl, mediator);
+      final var remoteFleet = new RemoteBhRuntimeFleet(
+          remoteRuntimeCtrl,
+          hostname -> {
+            var hostMsgService = new TaggedMessageService(msgService, hostname);
+            var ctrl = new RmiRemoteBhRuntimeController(hostMsgService, scriptRepository);
+            // デバッガとシミュレータは主たる BhRuntime 専用なので, 他のホストとは IO だけをやりとりする
+            new BhProgramMessageDispatcher(
+                new IoMessageProcessorImpl(hostMsgService), ctrl, mediator);
+            return ctrl;
+          },
+          BhSettings.BhRuntime.maxParallelRemoteOps);
+      final var remoteBhProgramCtrl =
+          new RemoteBhProgramControllerImpl(remoteCompiler, remoteFleet, msgService);
       final var pastePosOffsetCount = new MutableInt(-2);
       final var copyAndPaste = new CopyAndPaste(nodeFactory, pastePosOffsetCount);
       final var cutAndPaste = new CutAndPaste(pastePosOffsetCount);
@@ -313,6 +340,7 @@ public class AppMain extends Application {
           msgService,
           breakpointCache,
           compileErrorNodeCache,
+          nodeSearchIndex,
           debugger,
           executableNodeCollector,
           wssCtrl,
@@ -325,16 +353,18 @@ public class AppMain extends Application {
           stage,
           localRuntimeCtrl,
           remoteRuntimeCtrl,
+          remoteFleet,
           msgService,
           windowManager,
-          remoteRuntimeCtrl::isProgramRunning,
+          () -> remoteRuntimeCtrl.isProgramRunning() || remoteFleet.isProgramRunning(),
           wss::isDirty,
           () -> sceneBuilder.menuBarCtrl.save(wss));
       simulator.setOnKeyPressed(
           keyCode -> onKeyPressed(keyCode, localRuntimeCtrl, remoteRuntimeCtrl));
       msgService.setWindowStyle(sceneBuilder.scene.getStylesheets());
-      msgService.setMainMsgArea(sceneBuilder.msgViewCtrl.getMsgArea());
+      msgService.setMainMsgArea(sceneBuilder.msgViewCtrl.getMsgBuffer());
       sceneBuilder.createWindows(stage, debugStage, wsFactory);
+      traceFirstFrame(stage);
       undoRedoAgent.deleteCommands();
 
       if (SplashScreen.getSplashScreen() != null) {
@@ -352,6 +382,30 @@ public class AppMain extends Application {
     }
   }
 
+  /**
+   * プロセスの開始から最初のフレームのレイアウトが終わるまでの時間をログに出力する.
+   * システムプロパティ {@link #EXIT_AFTER_STARTUP} が true の場合, 時間を標準出力にも出力してアプリケーションを終了する.
+   */
+  private static void traceFirstFrame(Stage stage) {
+    Scene scene = stage.getScene();
+    var onFirstPulse = new Runnable() {
+      @Override
+      public void run() {
+        scene.removePostLayoutPulseListener(this);
+        long elapsed = ProcessHandle.current().info().startInstant()
+            .map(start -> Duration.between(start, Instant.now()).toMillis())
+            .orElse(-1L);
+        LogManager.logger().info(
+            "Startup: first frame %d ms after process start".formatted(elapsed));
+        if (Boolean.getBoolean(EXIT_AFTER_STARTUP)) {
+          System.out.println("first-frame-ms=" + elapsed);
+          Platform.runLater(stage::close);
+        }
+      }
+    };
+    scene.addPostLayoutPulseListener(onFirstPulse);
+  }
+
   private BhSimulator createSimulator() throws AppInitializationException {
     BhSimulator simulator = newSimulator();
     simFuture = simExecutor.submit(() -> startSimulator(simulator));
@@ -402,6 +456,7 @@ public class AppMain extends Application {
       Stage stage,
       RmiLocalBhRuntimeController localCtrl,
       RmiRemoteBhRuntimeController remoteCtrl,
+      RemoteBhRuntimeFleet remoteFleet,
       BhMessageService msgService,
       WindowManager windowManager,
       Supplier<Boolean> fnIsProgramRunning,
@@ -419,6 +474,7 @@ public class AppMain extends Application {
     stage.showingProperty().addListener((observable, oldValue, newValue) -> terminate(
         localCtrl,
         remoteCtrl,
+        remoteFleet,
         msgService,
         killRemoteProcess.getValue(),
         oldValue,
@@ -509,6 +565,7 @@ public class AppMain extends Application {
   private void terminate(
       RmiLocalBhRuntimeController localCtrl,
       RmiRemoteBhRuntimeController remoteCtrl,
+      RemoteBhRuntimeFleet remoteFleet,
       BhMessageService msgService,
       boolean killRemoteRuntime,
       Boolean oldVal,
@@ -516,6 +573,7 @@ public class AppMain extends Application {
     if (oldVal == true && newVal == false) {
       localCtrl.end();
       remoteCtrl.end(killRemoteRuntime, BhConstants.BhRuntime.Timeout.REMOTE_END_ON_EXIT);
+      remoteFleet.end(killRemoteRuntime, BhConstants.BhRuntime.Timeout.REMOTE_END_ON_EXIT);
       msgService.close();
       Gdx.app.exit();
       try {
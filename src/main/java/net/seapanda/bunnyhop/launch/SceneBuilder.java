@@ -73,11 +73,13 @@ import net.seapanda.bunnyhop.ui.service.window.WindowManager;
 import net.seapanda.bunnyhop.ui.view.ViewConstructionException;
 import net.seapanda.bunnyhop.utility.Utility;
 import net.seapanda.bunnyhop.utility.math.Vec2D;
+import net.seapanda.bunnyhop.workspace.control.NodeSearchController;
 import net.seapanda.bunnyhop.workspace.control.TrashCanController;
 import net.seapanda.bunnyhop.workspace.control.WorkspaceSelectorController;
 import net.seapanda.bunnyhop.workspace.control.WorkspaceSetController;
 import net.seapanda.bunnyhop.workspace.model.CopyAndPaste;
 import net.seapanda.bunnyhop.workspace.model.CutAndPaste;
+import net.seapanda.bunnyhop.workspace.model.NodeSearchIndex;
 import net.seapanda.bunnyhop.workspace.model.Workspace;
 import net.seapanda.bunnyhop.workspace.model.WorkspaceSet;
 import net.seapanda.bunnyhop.workspace.model.factory.WorkspaceFactory;
@@ -115,6 +117,7 @@ public class SceneBuilder {
   private final TrashCanController trashCanCtrl;
   private final WindowManager windowManager;
   private final VisualEffectManager effectManager;
+  private final NodeSearchController nodeSearchCtrl;
   public final MenuBarController menuBarCtrl;
   public final MessageViewController msgViewCtrl;
 
@@ -144,6 +147,7 @@ public class SceneBuilder {
       BhMessageService msgService,
       BreakpointCache breakpointCache,
       CompileErrorNodeCache compileErrorNodeCache,
+      NodeSearchIndex nodeSearchIndex,
       Debugger debugger,
       SourceNodeCollector executableNodeCollector,
       WorkspaceSetController wssCtrl,
@@ -173,6 +177,8 @@ public class SceneBuilder {
     this.trashCanCtrl = trashCanCtrl;
     this.windowManager = windowManager;
     this.effectManager = visualEffectManager;
+    this.nodeSearchCtrl =
+        new NodeSearchController(nodeSearchIndex, searchBoxCtrl, visualEffectManager);
     this.wssCtrl = wssCtrl;
     this.debugWindowCtrl = new DebugWindowController(debugger);
     this.menuBarCtrl = new MenuBarController(
@@ -260,7 +266,7 @@ public class SceneBuilder {
       return wssCtrl;
     }
     if (type == FoundationController.class) {
-      return new FoundationController(localCtrl, remoteCtrl);
+      return new FoundationController(localCtrl, remoteCtrl, nodeSearchCtrl);
     }
     return null;
   }
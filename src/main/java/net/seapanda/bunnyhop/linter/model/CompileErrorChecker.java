@@ -20,21 +20,33 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Optional;
+import java.util.SequencedSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import net.seapanda.bunnyhop.common.configuration.BhConstants;
 import net.seapanda.bunnyhop.node.model.BhNode;
 import net.seapanda.bunnyhop.node.model.traverse.CallbackInvoker;
+import net.seapanda.bunnyhop.service.LogManager;
 import net.seapanda.bunnyhop.service.undo.UserOperation;
 import net.seapanda.bunnyhop.workspace.model.WorkspaceSet;
 
 /**
  * ワークスペースセットのノードのコンパイルエラーを調べる機能を提供するクラス.
  *
+ * <p>ノードのコンパイルエラーの有無は, そのノードの先祖, 子孫, およびオリジナルノードと派生ノードの位置関係によって変わる.
+ * よって, 変更のあったノードの先祖ノードと子孫ノード, およびそれらから派生関係で辿れるノードだけを調べる.
+ *
+ * <p>1 回の {@link #check} でコンパイルエラーを調べる時間には上限があり,
+ * 時間内に調べられなかったノードは次回以降の {@link #check} で調べる.
+ *
  * @author K.Koike
  */
 public class CompileErrorChecker {
 
   /** これらのノードから親子関係または派生関係でたどれるノード群を, コンパイルエラーが発生しているか調べる対象とする. */
   private final Set<BhNode> startingPoints = new HashSet<>();
+  /** コンパイルエラーを調べる必要があるが, まだ調べていないノード. */
+  private final SequencedSet<BhNode> pendingNodes = new LinkedHashSet<>();
 
   /**
    * コンストラクタ.
@@ -57,52 +69,102 @@ public class CompileErrorChecker {
   /**
    * ワークスペースセットのノードのコンパイルエラーの状態を更新する.
    *
+   * <p>{@link BhConstants#COMPILE_ERR_CHECK_TIME_BUDGET} で指定した時間を超えた場合, 残りのノードは次回以降に調べる.
+   *
    * @param userOpe undo 用コマンドオブジェクト
    */
   public void check(UserOperation userOpe) {
-    Set<BhNode> targetNodes = collectTargetNodes();
-    targetNodes.stream()
-        .filter(node -> !node.isTemplate())
-        .forEach(node -> node.checkCompileError(userOpe));
+    pendingNodes.addAll(collectTargetNodes());
     startingPoints.clear();
+    checkPendingNodes(
+        userOpe, TimeUnit.MILLISECONDS.toNanos(BhConstants.COMPILE_ERR_CHECK_TIME_BUDGET));
   }
 
-  /** {@link #startingPoints} のノードから親子関係または派生関係で推移的に辿れるノードを取得する. */
-  private Set<BhNode> collectTargetNodes() {
-    var liveStartingPoints = startingPoints.stream().filter(node -> !node.isDeleted()).toList();
-    Set<BhNode> rootNodes = collectRootNodes(liveStartingPoints);
-    var descendants = new HashSet<BhNode>();
-    rootNodes.forEach(node -> collectDescendants(node, descendants));
+  /**
+   * ワークスペースセットのノードのコンパイルエラーの状態を, 時間の上限を設けずに全て更新する.
+   *
+   * @param userOpe undo 用コマンドオブジェクト
+   */
+  public void checkAll(UserOperation userOpe) {
+    pendingNodes.addAll(collectTargetNodes());
+    startingPoints.clear();
+    checkPendingNodes(userOpe, Long.MAX_VALUE);
+  }
 
-    Set<BhNode> rootOriginals = collectRootOriginals(descendants);
-    var derivatives = new HashSet<BhNode>();
-    rootOriginals.forEach(node -> collectDerivatives(node, derivatives));
-    
-    descendants.addAll(derivatives);
-    return descendants;
+  /**
+   * コンパイルエラーを調べる必要があるが, まだ調べていないノードが存在するか調べる.
+   *
+   * @return コンパイルエラーを調べる必要があるが, まだ調べていないノードが存在する場合 true
+   */
+  public boolean hasPendingNodes() {
+    return !pendingNodes.isEmpty() || !startingPoints.isEmpty();
   }
 
-  /** {@code nodes} のルートノードを全て集める. */
-  private static Set<BhNode> collectRootNodes(Collection<BhNode> nodes) {
-    var rootNodes = new HashSet<BhNode>();
-    var targets = new LinkedHashSet<>(nodes);
-    while (!targets.isEmpty()) {
-      BhNode target = targets.removeFirst();
-      if (!target.isDeleted()) {
-        BhNode root = findRootNode(target, targets);
-        rootNodes.add(root);
+  /**
+   * {@link #pendingNodes} のノードのコンパイルエラーを調べる.
+   * ノードを調べた場合は, 調べたノードの数と残りのノードの数をログに出力する.
+   *
+   * @param userOpe undo 用コマンドオブジェクト
+   * @param timeBudget この時間 (ns) を超えた場合, 残りのノードは調べずに終了する
+   */
+  private void checkPendingNodes(UserOperation userOpe, long timeBudget) {
+    long begin = System.nanoTime();
+    int numCheckedNodes = 0;
+    while (!pendingNodes.isEmpty() && System.nanoTime() - begin < timeBudget) {
+      BhNode node = pendingNodes.removeFirst();
+      if (!node.isDeleted() && !node.isTemplate()) {
+        node.checkCompileError(userOpe);
+        ++numCheckedNodes;
       }
     }
-    return rootNodes;
+    if (numCheckedNodes > 0 || !pendingNodes.isEmpty()) {
+      LogManager.logger().info(
+          "Compile error check: %d nodes checked in %.3f ms, %d nodes pending".formatted(
+              numCheckedNodes, (System.nanoTime() - begin) / 1e6, pendingNodes.size()));
+    }
   }
 
-  /** {@code node} のルートノードを探し, 途中のノードを {@code collection} から除外する. */
-  private static BhNode findRootNode(BhNode node, Set<BhNode> collection) {
-    while (!node.isRoot()) {
-      node = node.findParentNode();
-      collection.remove(node); // 余分な走査を省略する
+  /**
+   * {@link #startingPoints} のノードの先祖ノードと子孫ノード,
+   * およびそれらから派生関係で推移的に辿れるノードを取得する.
+   */
+  private SequencedSet<BhNode> collectTargetNodes() {
+    var ancestors = new HashSet<BhNode>();
+    var descendants = new HashSet<BhNode>();
+    var targets = new LinkedHashSet<BhNode>();
+    for (BhNode node : startingPoints) {
+      if (node.isDeleted()) {
+        continue;
+      }
+      collectAncestors(node, ancestors, targets);
+      if (!descendants.contains(node)) {
+        var collected = new LinkedHashSet<BhNode>();
+        collectDescendants(node, collected);
+        descendants.addAll(collected);
+        targets.addAll(collected);
+      }
+    }
+    Set<BhNode> rootOriginals = collectRootOriginals(targets);
+    var derivatives = new LinkedHashSet<BhNode>();
+    rootOriginals.forEach(node -> collectDerivatives(node, derivatives));
+    targets.addAll(derivatives);
+    return targets;
+  }
+
+  /**
+   * {@code node} の先祖ノードを {@code collection} に格納する.
+   *
+   * @param node このノードの先祖ノードを集める
+   * @param visited 既に先祖ノードを集めたノードのセット
+   * @param collection 先祖ノードの格納先
+   */
+  private static void collectAncestors(
+      BhNode node, Set<BhNode> visited, Set<BhNode> collection) {
+    BhNode parent = node.findParentNode();
+    while (parent != null && visited.add(parent)) {
+      collection.add(parent);
+      parent = parent.findParentNode();
     }
-    return node;
   }
 
   /** {@code node} とその子孫ノードを {@code collection} に格納する. */
@@ -49,6 +49,7 @@ import net.seapanda.bunnyhop.node.view.BhNodeView;
 import net.seapanda.bunnyhop.node.view.BhNodeView.MouseEventInfo;
 import net.seapanda.bunnyhop.node.view.effect.VisualEffectManager;
 import net.seapanda.bunnyhop.node.view.service.BhNodeLocation;
+import net.seapanda.bunnyhop.service.LogManager;
 import net.seapanda.bunnyhop.service.accesscontrol.ExclusionId;
 import net.seapanda.bunnyhop.service.accesscontrol.TransactionContext;
 import net.seapanda.bunnyhop.service.accesscontrol.TransactionNotificationService;
@@ -185,13 +186,16 @@ public class DefaultBhNodeController implements BhNodeController {
         return;
       }
       if (ddInfo.isDragDetected && isInNodeMoveMode(info.event)) {
+        long begin = System.nanoTime();
         double diffX = event.getX() - ddInfo.mousePressedPos.x;
         double diffY = event.getY() - ddInfo.mousePressedPos.y;
-        view.getGeometry().moveTree(diffX, diffY);
+        // 子孫ノードの位置はドロップ時にまとめて更新する
+        view.getGeometry().translateTree(diffX, diffY);
         // ドラッグ検出されていない場合, 強調は行わない.
         // 子ノードがワークスペース直下にいないのに, 重なったノード (入れ替え候補) が検出されるのを防ぐ
         highlightOverlappedNode();
         trashCan.auto(event.getSceneX(), event.getSceneY());
+        ddInfo.dragStats.add(System.nanoTime() - begin);
       }
     } catch (Throwable e) {
       terminateDnd(info);
@@ -237,6 +241,8 @@ public class DefaultBhNodeController implements BhNodeController {
       return;
     }
     try {
+      view.getGeometry().commitTranslation();
+      ddInfo.dragStats.log();
       jumpToRelatedNode(info);
       if (ddInfo.forwardEvent) {
         invokeOnUiEventReceived(event, false);
@@ -424,6 +430,7 @@ public class DefaultBhNodeController implements BhNodeController {
 
   /** D&D を終えたときの処理. */
   private void terminateDnd(MouseEventInfo info) {
+    view.getGeometry().commitTranslation();
     trashCan.close();
     mouseCtrlLock.unlock();
     ddInfo = new DndEventInfo();
@@ -608,6 +615,31 @@ public class DefaultBhNodeController implements BhNodeController {
     private BhNode latestRoot = null;
     /** モデルの操作に伴うコンテキスト. */
     private TransactionContext context;
+    /** ドラッグ中のイベント処理にかかった時間の統計. */
+    private final DragStats dragStats = new DragStats();
+  }
+
+  /** ドラッグ中の 1 イベントあたりの処理時間の統計を取るクラス. */
+  private static class DragStats {
+    private int numEvents = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    /** 1 イベントの処理時間 {@code nanos} を統計に加える. */
+    void add(long nanos) {
+      ++numEvents;
+      totalNanos += nanos;
+      maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /** 統計をログに出力する. */
+    void log() {
+      if (numEvents == 0) {
+        return;
+      }
+      LogManager.logger().info("Node drag: %d events, %.3f ms/event on average, %.3f ms at most"
+          .formatted(numEvents, totalNanos / 1e6 / numEvents, maxNanos / 1e6));
+    }
   }
 
   /**
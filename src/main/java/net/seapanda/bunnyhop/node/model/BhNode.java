@@ -38,6 +38,7 @@ import net.seapanda.bunnyhop.node.model.parameter.BhNodeVersion;
 import net.seapanda.bunnyhop.node.model.parameter.BhNodeViewStyleId;
 import net.seapanda.bunnyhop.node.model.parameter.BreakpointSetting;
 import net.seapanda.bunnyhop.node.model.parameter.DerivationId;
+import net.seapanda.bunnyhop.node.model.syntaxsymbol.InstanceId;
 import net.seapanda.bunnyhop.node.model.syntaxsymbol.SyntaxSymbol;
 import net.seapanda.bunnyhop.node.view.BhNodeView;
 import net.seapanda.bunnyhop.service.undo.UserOperation;
@@ -613,6 +614,11 @@ public abstract class BhNode extends SyntaxSymbol {
     this.isDefault = isDefault;
   }
 
+  @Override
+  public void setInstanceId(InstanceId id) {
+    super.setInstanceId(id);
+  }
+
   /**
    * このノードが外部ノードかどうか調べる.
    *
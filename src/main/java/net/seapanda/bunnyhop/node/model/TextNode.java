@@ -118,7 +118,10 @@ public class TextNode extends Derivative<TextNode> {
     }
     String oldText = this.text;
     this.text = text;
-    userOpe.pushCmd(ope -> setText(oldText, ope));
+    userOpe.pushValueChangeCmd(
+        new UserOperation.Target(this, "text"),
+        ope -> setText(oldText, ope),
+        UserOperation.BYTES_PER_SUB_OP + 2L * oldText.length());
     getCallbackRegistry().onTextChangedInvoker.invoke(new TextChangedEvent(oldText, text, userOpe));
   }
 
@@ -46,6 +46,7 @@ import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Function;
 import org.mozilla.javascript.NativeObject;
 import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 
 /**
@@ -61,6 +62,11 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
   private final BhNodeFactory factory;
   private final TextDatabase textDb;
   private final BhNodePlacer nodePlacer = new BhNodePlacer();
+  /**
+   * 全てのイベントハンドラで共有する, 標準オブジェクトを格納したスコープ.
+   * 封印されているので変更できない.
+   */
+  private final ScriptableObject sharedScope;
 
   /** コンストラクタ. */
   public ScriptNodeEventInvokerImpl(
@@ -72,6 +78,12 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
     this.supplier = supplier;
     this.factory = factory;
     this.textDb = textDb;
+    Context cx = Context.enter();
+    try {
+      sharedScope = cx.initStandardObjects(null, true);
+    } finally {
+      Context.exit();
+    }
   }
 
   @Override
@@ -92,11 +104,9 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
     if (defined == null) {
       return;
     }
-    Map<String, Object> nameToObj = new HashMap<>() {{
-        put(BhConstants.JsIdName.BH_REPLACED_OLD_NODE, oldReplaced);
-      }};
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, userOpe, nameToObj);
+    Scriptable scope = createScriptScope(cx, target, userOpe);
+    putToScope(scope, BhConstants.JsIdName.BH_REPLACED_OLD_NODE, oldReplaced);
     try {
       defined.script().exec(cx, scope);
     } catch (Exception e) {
@@ -117,13 +127,11 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
     if (defined == null) {
       return;
     }
-    Map<String, Object> nameToObj = new HashMap<>() {{
-        put(BhConstants.JsIdName.BH_OLD_PARENT, oldParent);
-        put(BhConstants.JsIdName.BH_OLD_ROOT, oldRoot);
-        put(BhConstants.JsIdName.BH_REPLACED_NEW_NODE, newReplaced);
-      }};
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, userOpe, nameToObj);
+    Scriptable scope = createScriptScope(cx, target, userOpe);
+    putToScope(scope, BhConstants.JsIdName.BH_OLD_PARENT, oldParent);
+    putToScope(scope, BhConstants.JsIdName.BH_OLD_ROOT, oldRoot);
+    putToScope(scope, BhConstants.JsIdName.BH_REPLACED_NEW_NODE, newReplaced);
     try {
       defined.script().exec(cx, scope);
     } catch (Exception e) {
@@ -144,13 +152,11 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
     if (defined == null) {
       return;
     }
-    Map<String, Object> nameToObj = new HashMap<>() {{
-        put(BhConstants.JsIdName.BH_REPLACED_NEW_NODE, newChild);
-        put(BhConstants.JsIdName.BH_REPLACED_OLD_NODE, oldChild);
-        put(BhConstants.JsIdName.BH_PARENT_CONNECTOR, parentCnctr);
-      }};
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, userOpe, nameToObj);
+    Scriptable scope = createScriptScope(cx, target, userOpe);
+    putToScope(scope, BhConstants.JsIdName.BH_REPLACED_NEW_NODE, newChild);
+    putToScope(scope, BhConstants.JsIdName.BH_REPLACED_OLD_NODE, oldChild);
+    putToScope(scope, BhConstants.JsIdName.BH_PARENT_CONNECTOR, parentCnctr);
     try {
       defined.script().exec(cx, scope);
     } catch (Exception e) {
@@ -170,12 +176,10 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
     if (defined == null) {
       return true;
     }
-    Map<String, Object> nameToObj = new HashMap<>() {{
-        put(BhConstants.JsIdName.BH_TARGET_NODES, new ArrayList<>(nodesToDelete));
-        put(BhConstants.JsIdName.BH_CAUSE_OF_DELETION, causeOfDeletion);
-      }};
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, userOpe, nameToObj);
+    Scriptable scope = createScriptScope(cx, target, userOpe);
+    putToScope(scope, BhConstants.JsIdName.BH_TARGET_NODES, new ArrayList<>(nodesToDelete));
+    putToScope(scope, BhConstants.JsIdName.BH_CAUSE_OF_DELETION, causeOfDeletion);
     try {
       return (Boolean) defined.script().exec(cx, scope);
     } catch (Exception e) {
@@ -193,11 +197,9 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
     if (defined == null) {
       return true;
     }
-    Map<String, Object> nameToObj = new HashMap<>() {{
-        put(BhConstants.JsIdName.BH_TARGET_NODES, new ArrayList<>(nodesToCut));
-      }};
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, userOpe, nameToObj);
+    Scriptable scope = createScriptScope(cx, target, userOpe);
+    putToScope(scope, BhConstants.JsIdName.BH_TARGET_NODES, new ArrayList<>(nodesToCut));
     try {
       return (Boolean) defined.script().exec(cx, scope);
     } catch (Exception e) {
@@ -218,11 +220,9 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
     if (defined == null) {
       return node -> true;
     }
-    Map<String, Object> nameToObj = new HashMap<>() {{
-        put(BhConstants.JsIdName.BH_TARGET_NODES, new ArrayList<>(nodesToCopy));
-      }};
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, userOpe, nameToObj);
+    Scriptable scope = createScriptScope(cx, target, userOpe);
+    putToScope(scope, BhConstants.JsIdName.BH_TARGET_NODES, new ArrayList<>(nodesToCopy));
     try {
       Function copyCheckFunc = (Function) defined.script().exec(cx, scope);
       if (copyCheckFunc == null) {
@@ -248,9 +248,8 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
    */
   private boolean isNodeToCopy(BhNode node, Function copyCheckFunc, String scriptName) {
     Context cx = Context.enter();
-    ScriptableObject scope = cx.initStandardObjects();
     try {
-      return (Boolean) copyCheckFunc.call(cx, scope, scope, new Object[] {node});
+      return (Boolean) copyCheckFunc.call(cx, sharedScope, sharedScope, new Object[] {node});
     } catch (Exception e) {
       LogManager.logger().error(String.format(
           "'%s' must return null or a function that returns a boolean value.\n%s", scriptName, e));
@@ -266,9 +265,8 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
     if (defined == null) {
       return;
     }
-    Map<String, Object> nameToObj = new HashMap<>();
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, userOpe, nameToObj);
+    Scriptable scope = createScriptScope(cx, target, userOpe);
     try {
       defined.script().exec(cx, scope);
     } catch (Exception e) {
@@ -284,11 +282,9 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
     if (defined == null) {
       return;
     }
-    Map<String, Object> nameToObj = new HashMap<>() {{
-        put(BhConstants.JsIdName.BH_UI_EVENT, event);
-      }};
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, userOpe, nameToObj);
+    Scriptable scope = createScriptScope(cx, target, userOpe);
+    putToScope(scope, BhConstants.JsIdName.BH_UI_EVENT, event);
     try {
       defined.script().exec(cx, scope);
     } catch (Exception e) {
@@ -311,11 +307,9 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
     if (defined == null) {
       return true;
     }
-    Map<String, Object> nameToObj = new HashMap<>() {{
-        put(BhConstants.JsIdName.BH_TEXT, text);
-      }};
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, nameToObj);
+    Scriptable scope = createScriptScope(cx, target);
+    putToScope(scope, BhConstants.JsIdName.BH_TEXT, text);
     try {
       return (Boolean) defined.script().exec(cx, scope);
     } catch (Exception e) {
@@ -333,12 +327,10 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
     if (defined == null) {
       return new FormatResult(false, addedText);
     }
-    Map<String, Object> nameToObj = new HashMap<>() {{
-        put(BhConstants.JsIdName.BH_TEXT, text);
-        put(BhConstants.JsIdName.BH_ADDED_TEXT, addedText);
-      }};
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, nameToObj);
+    Scriptable scope = createScriptScope(cx, target);
+    putToScope(scope, BhConstants.JsIdName.BH_TEXT, text);
+    putToScope(scope, BhConstants.JsIdName.BH_ADDED_TEXT, addedText);
     try {
       NativeObject jsObj = (NativeObject) defined.script().exec(cx, scope);
       Boolean isWholeFormatted =
@@ -361,7 +353,7 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
       return new ArrayList<>();
     }
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, new HashMap<>());
+    Scriptable scope = createScriptScope(cx, target);
     try {
       List<?> contents = (List<?>) defined.script().exec(cx, scope);
       var options = new ArrayList<TextOption>();
@@ -384,11 +376,9 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
     if (defined == null) {
       return new ArrayList<>();
     }
-    Map<String, Object> nameToObj = new HashMap<>() {{
-        put(BhConstants.JsIdName.BH_USER_OPE, userOpe);
-      }};
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, userOpe, nameToObj);
+    Scriptable scope = createScriptScope(cx, target, userOpe);
+    putToScope(scope, BhConstants.JsIdName.BH_USER_OPE, userOpe);
     try {
       List<BhNode> companionNodes = ((Collection<?>) defined.script().exec(cx, scope)).stream()
           .filter(elem -> elem instanceof BhNode)
@@ -412,7 +402,7 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
       return new ArrayList<>();
     }
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, new HashMap<>());
+    Scriptable scope = createScriptScope(cx, target);
     try {
       return ((Collection<?>) defined.script().exec(cx, scope)).stream()
           .map(Object::toString)
@@ -432,7 +422,7 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
       return "";
     }
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, new HashMap<>());
+    Scriptable scope = createScriptScope(cx, target);
     try {
       return (String) defined.script().exec(cx, scope);
     } catch (Exception e) {
@@ -451,7 +441,7 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
       return Optional.empty();
     }
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, new HashMap<>());
+    Scriptable scope = createScriptScope(cx, target);
     try {
       return Optional.of((String) defined.script().exec(cx, scope));
     } catch (Exception e) {
@@ -470,7 +460,7 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
       return new ArrayList<>();
     }
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, new HashMap<>());
+    Scriptable scope = createScriptScope(cx, target);
     try {
       return ((Collection<?>) defined.script().exec(cx, scope)).stream()
           .filter(obj -> obj instanceof BhNode)
@@ -492,7 +482,7 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
       return null;
     }
     Context cx = Context.enter();
-    ScriptableObject scope = createScriptScope(cx, target, new HashMap<>());
+    Scriptable scope = createScriptScope(cx, target);
     try {
       // 外部スクリプトが null を返した場合 null が返る.
       return (BhNode) Context.jsToJava(defined.script().exec(cx, scope), BhNode.class);
@@ -510,38 +500,44 @@ public class ScriptNodeEventInvokerImpl implements ScriptNodeEventInvoker {
    *
    * @param cx スコープを作成するのに使用する {@link Context} オブジェクト
    * @param target イベントハンドラに, そのハンドラが定義された {@link BhNode} として渡すオブジェクト
-   * @param nameToObj 変数名とその変数に格納されるオブジェクトのマップ
    */
-  private ScriptableObject createScriptScope(
-      Context cx, BhNode target, Map<String, Object> nameToObj) {
-    return createScriptScope(cx, target, null, nameToObj);
+  private Scriptable createScriptScope(Context cx, BhNode target) {
+    return createScriptScope(cx, target, null);
   }
 
   /**
    * スクリプト実行時のスコープ (スクリプトのトップレベルの変数から参照できるオブジェクト群) を作成する.
    *
+   * <p>標準オブジェクトは {@link #sharedScope} をプロトタイプとして参照し, 作成したスコープには
+   * イベントハンドラごとに異なるオブジェクトだけを格納する.
+   * 作成したスコープはトップレベルのスコープとなるので, スクリプトが定義したグローバル変数は {@link #sharedScope} ではなく,
+   * 作成したスコープに格納される.
+   * イベントハンドラ固有の変数は, 呼び出し側が {@link #putToScope} で作成したスコープに直接格納する.
+   *
    * @param cx スコープを作成するのに使用する {@link Context} オブジェクト
    * @param target イベントハンドラに, そのハンドラが定義された {@link BhNode} として渡すオブジェクト
    * @param userOpe イベントハンドラに渡す {@link UserOperation} オブジェクト
-   * @param nameToObj 変数名とその変数に格納されるオブジェクトのマップ
    */
-  private ScriptableObject createScriptScope(
-      Context cx, BhNode target, UserOperation userOpe, Map<String, Object> nameToObj) {
-    ScriptableObject scope = cx.initStandardObjects();
-    new HashMap<>(nameToObj) {{
-        put(BhConstants.JsIdName.BH_THIS, target);
-        put(BhConstants.JsIdName.BH_NODE_PLACER, nodePlacer);
-        put(BhConstants.JsIdName.BH_UTIL, supplier.getCommonObj());
-        put(BhConstants.JsIdName.BH_NODE_FACTORY, factory);
-        put(BhConstants.JsIdName.BH_TEXT_DB, textDb);
-        if (userOpe != null) {
-          put(BhConstants.JsIdName.BH_USER_OPE, userOpe);
-        }
-      }}
-      .forEach((key, val) -> scope.put(key, scope, Context.javaToJS(val, scope)));
+  private Scriptable createScriptScope(Context cx, BhNode target, UserOperation userOpe) {
+    Scriptable scope = cx.newObject(sharedScope);
+    scope.setPrototype(sharedScope);
+    scope.setParentScope(null);
+    putToScope(scope, BhConstants.JsIdName.BH_THIS, target);
+    putToScope(scope, BhConstants.JsIdName.BH_NODE_PLACER, nodePlacer);
+    putToScope(scope, BhConstants.JsIdName.BH_UTIL, supplier.getCommonObj());
+    putToScope(scope, BhConstants.JsIdName.BH_NODE_FACTORY, factory);
+    putToScope(scope, BhConstants.JsIdName.BH_TEXT_DB, textDb);
+    if (userOpe != null) {
+      putToScope(scope, BhConstants.JsIdName.BH_USER_OPE, userOpe);
+    }
     return scope;
   }
 
+  /** {@code scope} に {@code name} という名前で {@code obj} を格納する. */
+  private static void putToScope(Scriptable scope, String name, Object obj) {
+    scope.put(name, scope, Context.javaToJS(obj, scope));
+  }
+
   /**
    * {@code nodeId} と {@code type} から, 対応するスクリプト名と {@link Script} オブジェクトを取得する.
    * 見つからない場合は null を返す.
@@ -30,6 +30,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -54,6 +55,12 @@ import org.xml.sax.SAXException;
  */
 public class XmlBhNodeRepository implements BhNodeRepository {
 
+  private static final DocumentBuilderFactory docBuilderFactory =
+      DocumentBuilderFactory.newInstance();
+  /** XML ファイルのパーサ.  {@link DocumentBuilder} はスレッドセーフでないので, スレッドごとに用意する. */
+  private static final ThreadLocal<DocumentBuilder> docBuilder =
+      ThreadLocal.withInitial(XmlBhNodeRepository::newDocumentBuilder);
+
   private final ModelArchive archive;
   private final BhScriptRepository repository;
 
@@ -83,6 +90,7 @@ public class XmlBhNodeRepository implements BhNodeRepository {
       Path cnctrDirPath,
       ModelGenerator generator,
       TextDatabase textDb) throws NodeConstructionException {
+    long begin = System.nanoTime();
     boolean success = true;
     var builder = new BhNodeBuilder(archive, repository, generator, textDb);
     success &= genCnctrParamSet(cnctrDirPath);
@@ -95,6 +103,9 @@ public class XmlBhNodeRepository implements BhNodeRepository {
     if (!success) {
       throw new NodeConstructionException(msg);
     }
+    LogManager.logger().info("Template nodes: %d nodes in %d ms".formatted(
+        archive.getAllNodes().size(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin)));
     return true;
   }
 
@@ -110,8 +121,11 @@ public class XmlBhNodeRepository implements BhNodeRepository {
              Files.walk(dirPath, FOLLOW_LINKS).filter(path -> path.toString().endsWith(".xml"))) {
       // コネクタ設定ファイル読み込み & 登録
       boolean success = true;
-      for (Path file : files.toList()) {
-        Element rootElem = toRootElem(file);
+      List<Path> fileList = files.toList();
+      List<Optional<Document>> docs = parse(fileList);
+      for (int i = 0; i < fileList.size(); ++i) {
+        Path file = fileList.get(i);
+        Element rootElem = docs.get(i).map(Document::getDocumentElement).orElse(null);
         if (rootElem == null) {
           success = false;
           continue;
@@ -169,14 +183,38 @@ public class XmlBhNodeRepository implements BhNodeRepository {
     return true;
   }
 
-  private Element toRootElem(Path file) {
+  /**
+   * XML ファイルを並列にパースする.
+   *
+   * @param files パースするファイルのリスト
+   * @return {@code files} の各ファイルをパースした結果のリスト.  要素の順序は {@code files} と同じ.
+   *         パースに失敗したファイルに対応する要素は空.
+   */
+  private static List<Optional<Document>> parse(List<Path> files) {
+    return files.parallelStream().map(XmlBhNodeRepository::parse).toList();
+  }
+
+  /** XML ファイルをパースする. */
+  private static Optional<Document> parse(Path file) {
     try {
-      DocumentBuilderFactory dbfactory = DocumentBuilderFactory.newInstance();
-      DocumentBuilder builder = dbfactory.newDocumentBuilder();
-      return builder.parse(file.toFile()).getDocumentElement();
-    } catch (IOException | ParserConfigurationException | SAXException e) {
+      DocumentBuilder builder = docBuilder.get();
+      builder.reset();
+      return Optional.of(builder.parse(file.toFile()));
+    } catch (IOException | SAXException e) {
       LogManager.logger().error(e + "\n" + file.toAbsolutePath());
-      return null;
+      return Optional.empty();
+    }
+  }
+
+  /** {@link DocumentBuilder} を作成する. */
+  private static DocumentBuilder newDocumentBuilder() {
+    // DocumentBuilderFactory はスレッドセーフでない
+    synchronized (docBuilderFactory) {
+      try {
+        return docBuilderFactory.newDocumentBuilder();
+      } catch (ParserConfigurationException e) {
+        throw new IllegalStateException(e);
+      }
     }
   }
 
@@ -192,9 +230,10 @@ public class XmlBhNodeRepository implements BhNodeRepository {
     try (Stream<Path> files =
              Files.walk(dirPath, FOLLOW_LINKS).filter(path -> path.toString().endsWith(".xml"))) {
       // ノード設定ファイル読み込み
-      boolean success = files
-          .allMatch(file -> {
-            Optional<? extends BhNode> nodeOpt = genNodeFromFile(file, builder);
+      // パースは並列に行い, ノードの作成はファイルの順に行う.
+      boolean success = parse(files.toList()).stream()
+          .allMatch(doc -> {
+            Optional<? extends BhNode> nodeOpt = doc.flatMap(builder::build);
             nodeOpt.ifPresent(node -> archive.putNode(node.getId(), node));
             return nodeOpt.isPresent();
           });
@@ -206,25 +245,6 @@ public class XmlBhNodeRepository implements BhNodeRepository {
     }
   }
 
-  /**
-   * ファイルからノードを作成する.
-   *
-   * @param file ノードが定義されたファイル
-   * @param builder ノード生成用オブジェクト
-   * @return {@code file} から作成したノード
-   */
-  private Optional<? extends BhNode> genNodeFromFile(Path file, BhNodeBuilder builder) {
-    try {
-      DocumentBuilderFactory dbfactory = DocumentBuilderFactory.newInstance();
-      DocumentBuilder docBuilder = dbfactory.newDocumentBuilder();
-      Document doc = docBuilder.parse(file.toFile());
-      return builder.build(doc);
-    } catch (IOException | ParserConfigurationException | SAXException e) {
-      LogManager.logger().error(e + "\n" + file.toAbsolutePath());
-      return Optional.empty();
-    }
-  }
-
   /** すべてのコネクタのデフォルトノードが存在するかチェックする. */
   private boolean checkIfAllDefaultNodesExist() {
     List<Connector> errCnctrs = archive.getConnectorIdToConnector().values().stream()
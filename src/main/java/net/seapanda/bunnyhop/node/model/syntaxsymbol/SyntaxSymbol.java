@@ -34,8 +34,8 @@ public abstract class SyntaxSymbol implements Serializable {
 
   /** 終端, 非終端記号名. */
   private final String symbolName;
-  private InstanceId instanceId = InstanceId.newId();
-  private final SerialNumber serialNo = SerialNumber.newNumber();
+  private InstanceId instanceId;
+  private final SerialNumber serialNo;
 
   /**
    * 引数で指定したシンボル名を持つ {@link SyntaxSymbol} を {@code generation} もしくは
@@ -167,8 +167,25 @@ public abstract class SyntaxSymbol implements Serializable {
    * @param symbolName シンボル名.
    */
   protected SyntaxSymbol(String symbolName) {
+    this(symbolName, InstanceId.newId(), SerialNumber.newNumber());
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * <p>インスタンス ID とシリアルナンバーを引き継ぐ必要があるオブジェクト (スナップショット等) を作成するときに使う.
+   *
+   * @param symbolName シンボル名.
+   * @param instanceId インスタンス ID
+   * @param serialNo シリアルナンバー
+   */
+  protected SyntaxSymbol(String symbolName, InstanceId instanceId, SerialNumber serialNo) {
     Objects.requireNonNull(symbolName);
+    Objects.requireNonNull(instanceId);
+    Objects.requireNonNull(serialNo);
     this.symbolName = symbolName;
+    this.instanceId = instanceId;
+    this.serialNo = serialNo;
   }
 
   /**
@@ -192,9 +209,11 @@ public abstract class SyntaxSymbol implements Serializable {
   /**
    * オブジェクト固有の ID を設定する.
    *
+   * <p>ID を変更できるシンボルは, このメソッドを公開するサブクラスに限る.
+   *
    * @param id 設定する ID
    */
-  public void setInstanceId(InstanceId id) {
+  protected void setInstanceId(InstanceId id) {
     instanceId = id;
   }
 
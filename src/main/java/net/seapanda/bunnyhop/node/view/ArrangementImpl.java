@@ -19,14 +19,17 @@ package net.seapanda.bunnyhop.node.view;
 import static net.seapanda.bunnyhop.common.configuration.BhConstants.Css.Pseudo.IS_EVEN;
 import static net.seapanda.bunnyhop.common.configuration.BhConstants.Css.Pseudo.UNFIXED_DEFAULT;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.LinkedHashSet;
+import java.util.SequencedSet;
 import javafx.application.Platform;
 import net.seapanda.bunnyhop.node.model.BhNode;
+import net.seapanda.bunnyhop.node.model.Connector;
 import net.seapanda.bunnyhop.node.view.bodyshape.BodyShape;
 import net.seapanda.bunnyhop.node.view.bodyshape.BodyShapeType;
 import net.seapanda.bunnyhop.node.view.connectorshape.ConnectorShape;
 import net.seapanda.bunnyhop.node.view.style.BhNodeViewStyle;
+import net.seapanda.bunnyhop.node.view.traverse.NodeViewWalker;
+import net.seapanda.bunnyhop.service.LogManager;
 import net.seapanda.bunnyhop.utility.math.Vec2D;
 
 /**
@@ -36,14 +39,25 @@ import net.seapanda.bunnyhop.utility.math.Vec2D;
  */
 class ArrangementImpl implements BhNodeView.Arrange {
 
+  /** ノードの整列処理の統計をログに出力する間隔 (回). */
+  private static final int ARRANGEMENT_STATS_INTERVAL = 64;
+
   private final BhNodeViewBase view;
   /** 現在描画されているノードのポリゴンの大きさ. */
   private final Vec2D currentPolygonSize = new Vec2D(Double.MIN_VALUE, Double.MIN_VALUE);
   /** ルートを 0 として, ノードビューの階層が偶数であった場合 true. ただし, 外部ノードは親と同階層とする. */
   private boolean isEven = false;
+  /** 一度でも配置を更新した場合 true. */
+  private boolean isLaidOut = false;
+  /** 最後に配置を更新したときの親グループ. */
+  private BhNodeViewGroup laidOutGroup;
+  /** 最後に配置を更新したときの親コネクタ. */
+  private Connector laidOutConnector;
   private final SizeChangeNotifier notif;
-  /** ノードの整列を待っている {@link BhNodeView} のセット. */
-  private static final Set<BhNodeView> viewsAwaitingArrangement = new HashSet<>();
+  /** ノードの整列を待っている {@link BhNodeViewBase} のセット. */
+  private static SequencedSet<BhNodeViewBase> viewsAwaitingArrangement = new LinkedHashSet<>();
+  /** キューイングされたノードの整列処理の統計. */
+  private static final ArrangementStats stats = new ArrangementStats();
 
   /** コンストラクタ. */
   ArrangementImpl(BhNodeViewBase view, SizeChangeNotifier notif) {
@@ -53,12 +67,59 @@ class ArrangementImpl implements BhNodeView.Arrange {
 
   @Override
   public void arrange() {
+    layOut();
+  }
+
+  /**
+   * {@link #view} 以下のノードビューの位置と配置を更新する.
+   *
+   * @return 配置を更新したノードビューの数
+   */
+  private int layOut() {
     view.getGeometry().updateDescendantRelativePositions();
     Vec2D pos = view.getGeometry().getPosition();
     view.getGeometry().setTreePosition(pos.x, pos.y);
-    NvbCallbackInvoker.invoke(view -> view.getArrangement().updateViewLayout(), view);
-    NvbCallbackInvoker.invoke(view -> view.getArrangement().updateEvenFlag(), view);
-    notif.markSubtreeSizeUpToDate();
+    var walker = new LayoutWalker();
+    view.accept(walker);
+    return walker.numLaidOut;
+  }
+
+  /**
+   * {@link #view} の配置を更新する必要があるか調べる.
+   *
+   * <p>前回の配置の更新以降, 部分木のサイズと接続先が変わっておらず, 親の奇遇フラグも変わっていない場合,
+   * {@link #view} 以下のノードビューの配置は最新である.
+   *
+   * @param isParentEvenChanged 親ノードビューの奇遇フラグが変わった場合 true
+   * @return 配置を更新する必要がある場合 true
+   */
+  private boolean needsLayout(boolean isParentEvenChanged) {
+    return !isLaidOut
+        || isParentEvenChanged
+        || !notif.isSubtreeSizeUpToDate()
+        || laidOutGroup != view.getTreeControl().getParentGroup()
+        || laidOutConnector != getParentConnector();
+  }
+
+  /**
+   * {@link #view} の配置を更新する.
+   *
+   * @return 奇遇フラグが変わった場合 true
+   */
+  private boolean updateLayout() {
+    boolean wasEven = isEven;
+    updateViewLayout();
+    updateEvenFlag();
+    notif.markNodeSizeUpToDate();
+    boolean isEvenChanged = !isLaidOut || (wasEven != isEven);
+    isLaidOut = true;
+    laidOutGroup = view.getTreeControl().getParentGroup();
+    laidOutConnector = getParentConnector();
+    return isEvenChanged;
+  }
+
+  private Connector getParentConnector() {
+    return view.getModel().map(BhNode::getParentConnector).orElse(null);
   }
 
   private void updateViewLayout() {
@@ -82,14 +143,42 @@ class ArrangementImpl implements BhNodeView.Arrange {
   @Override
   public void requestArrangement() {
     if (viewsAwaitingArrangement.isEmpty()) {
-      Platform.runLater(() -> {
-        viewsAwaitingArrangement.forEach(view -> view.getArrangement().arrange());
-        viewsAwaitingArrangement.clear();
-      });
+      Platform.runLater(ArrangementImpl::arrangeAwaitingViews);
     }
     viewsAwaitingArrangement.add(view);
   }
 
+  /**
+   * 整列を待っているノードビューをまとめて整列する.
+   *
+   * <p>整列を要求した後に他のノードツリーに接続されたノードビューは, 現在のルートノードビューに置き換えてから整列する.
+   * これにより, 同じノードツリーの整列は 1 回の呼び出しにつき 1 度だけ行われる.
+   */
+  private static void arrangeAwaitingViews() {
+    long begin = System.nanoTime();
+    // 整列中に要求された整列は次の呼び出しで処理する
+    SequencedSet<BhNodeViewBase> views = viewsAwaitingArrangement;
+    viewsAwaitingArrangement = new LinkedHashSet<>();
+    var roots = new LinkedHashSet<BhNodeViewBase>();
+    for (BhNodeViewBase view : views) {
+      roots.add(getRootView(view));
+    }
+    int numLaidOut = 0;
+    for (BhNodeViewBase root : roots) {
+      numLaidOut += root.getArrangement().layOut();
+    }
+    stats.add(views.size(), roots.size(), numLaidOut, System.nanoTime() - begin);
+  }
+
+  private static BhNodeViewBase getRootView(BhNodeViewBase view) {
+    BhNodeViewBase parent = view.getTreeControl().getParentView();
+    while (parent != null) {
+      view = parent;
+      parent = view.getTreeControl().getParentView();
+    }
+    return view;
+  }
+
   /**
    * ノードを形作るポリゴンを更新する.
    *
@@ -130,4 +219,112 @@ class ArrangementImpl implements BhNodeView.Arrange {
     }
     view.getVisual().setPseudoClassState(isEven, IS_EVEN);
   }
+
+  /**
+   * 配置の更新が必要なノードビューだけを辿って配置を更新するクラス.
+   * 配置が最新のノードビューに到達した場合, その部分木は辿らない.
+   */
+  private static class LayoutWalker implements NodeViewWalker {
+    /** 現在辿っているノードビューの親の奇遇フラグが変わった場合 true. */
+    private boolean isParentEvenChanged = false;
+    /** 配置を更新したノードビューの数. */
+    private int numLaidOut = 0;
+
+    @Override
+    public void visit(ConnectiveNodeView view) {
+      ArrangementImpl arrangement = view.getArrangement();
+      if (!arrangement.needsLayout(isParentEvenChanged)) {
+        return;
+      }
+      boolean isEvenChanged = arrangement.updateLayout();
+      ++numLaidOut;
+      boolean isParentEvenChangedSaved = isParentEvenChanged;
+      isParentEvenChanged = isEvenChanged;
+      view.sendToInnerGroup(this);
+      view.sendToOuterGroup(this);
+      isParentEvenChanged = isParentEvenChangedSaved;
+    }
+
+    @Override
+    public void visit(TextFieldNodeView view) {
+      layOutLeaf(view);
+    }
+
+    @Override
+    public void visit(TextAreaNodeView view) {
+      layOutLeaf(view);
+    }
+
+    @Override
+    public void visit(LabelNodeView view) {
+      layOutLeaf(view);
+    }
+
+    @Override
+    public void visit(ComboBoxNodeView view) {
+      layOutLeaf(view);
+    }
+
+    @Override
+    public void visit(NoContentNodeView view) {
+      layOutLeaf(view);
+    }
+
+    private void layOutLeaf(BhNodeViewBase view) {
+      if (view.getArrangement().needsLayout(isParentEvenChanged)) {
+        view.getArrangement().updateLayout();
+        ++numLaidOut;
+      }
+    }
+  }
+
+  /** キューイングされたノードの整列処理の統計を集計し, 一定回数ごとにログに出力するクラス. */
+  private static class ArrangementStats {
+    private int numPasses = 0;
+    private int numRequests = 0;
+    private int numRoots = 0;
+    private int numLaidOut = 0;
+    private int maxLaidOut = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    /**
+     * 1 回分の整列処理の結果を統計に加える.
+     *
+     * @param requests 整列を要求されたノードビューの数
+     * @param roots 整列したノードツリーの数
+     * @param laidOut 配置を更新したノードビューの数
+     * @param nanos 処理時間
+     */
+    void add(int requests, int roots, int laidOut, long nanos) {
+      ++numPasses;
+      numRequests += requests;
+      numRoots += roots;
+      numLaidOut += laidOut;
+      maxLaidOut = Math.max(maxLaidOut, laidOut);
+      totalNanos += nanos;
+      maxNanos = Math.max(maxNanos, nanos);
+      if (numPasses < ARRANGEMENT_STATS_INTERVAL) {
+        return;
+      }
+      LogManager.logger().info(
+          ("Node arrangement: %d passes, %d requests for %d trees, "
+              + "%.1f node views laid out/pass on average, %d at most, "
+              + "%.3f ms/pass on average, %.3f ms at most").formatted(
+              numPasses,
+              numRequests,
+              numRoots,
+              (double) numLaidOut / numPasses,
+              maxLaidOut,
+              totalNanos / 1e6 / numPasses,
+              maxNanos / 1e6));
+      numPasses = 0;
+      numRequests = 0;
+      numRoots = 0;
+      numLaidOut = 0;
+      maxLaidOut = 0;
+      totalNanos = 0;
+      maxNanos = 0;
+    }
+  }
 }
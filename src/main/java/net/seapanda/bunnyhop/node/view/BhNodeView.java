@@ -142,6 +142,27 @@ public interface BhNodeView {
     /** 関連するノードビュー以下のノードの可視性を変更する. */
     void setVisible(boolean visible);
 
+    /**
+     * 可視領域から離れていることを理由に, 関連するノードビューだけを非表示にするかどうかを設定する.
+     *
+     * <p>子孫のノードビューの表示状態は変えない.
+     * {@link #setVisible} で非表示にしたノードビューは, このメソッドで表示されることはない.
+     *
+     * @param culled 関連するノードビューを非表示にする場合 true
+     */
+    void setCulled(boolean culled);
+
+    /**
+     * 関連するノードビューだけを簡略表示するかどうかを設定する.
+     *
+     * <p>簡略表示中は, ラベルやテキストフィールドなどの GUI コンポーネントを描画せず,
+     * CSS で色付けされたノードの外形だけを描画する.
+     * GUI コンポーネントはレイアウトの対象のままなので, ノードビューの大きさは変わらない.
+     *
+     * @param lowDetail 簡略表示する場合 true
+     */
+    void setLowDetail(boolean lowDetail);
+
     /**
      * 関連するノードビューの視覚効果の有効 / 無効を切り替える.
      *
@@ -293,6 +314,33 @@ public interface BhNodeView {
      */
     void moveTree(Vec2D diff);
 
+    /**
+     * 関連するノードビュー以下のノードビューをワークスペースからはみ出さないように平行移動させる.
+     *
+     * <p>子孫のノードビューの位置と四分木空間上での位置は更新せず, 表示位置だけを共通の平行移動量でずらす.
+     * 四分木空間上での位置は関連するノードビューのものだけを更新する.
+     * {@link #commitTranslation} を呼ぶまで, 子孫のノードビューの位置は移動前のままとなる.
+     * 移動のたびに, 関連するノードビューの位置が変わったときのイベントハンドラだけを呼ぶ.
+     *
+     * @param diffX X 方向移動量
+     * @param diffY Y 方向移動量
+     */
+    void translateTree(double diffX, double diffY);
+
+    /**
+     * {@link #translateTree} による移動を確定し,
+     * 関連するノードビュー以下のノードビューのワークスペース上での位置と四分木空間上での位置を更新する.
+     * 平行移動中でない場合は何もしない.
+     */
+    void commitTranslation();
+
+    /**
+     * 関連するノードビュー以下のノードビューが {@link #translateTree} で平行移動中かどうか調べる.
+     *
+     * @return {@link #translateTree} を呼んでから, 移動を確定していない場合 true
+     */
+    boolean isTranslating();
+
     /**
      * シーンの座標空間の位置 {@code pos} を 関連するノードビューのローカル座標空間の位置に変換する.
      *
@@ -20,10 +20,13 @@ import static net.seapanda.bunnyhop.node.view.BhNodeViewBase.Panes;
 import static net.seapanda.bunnyhop.node.view.BhNodeViewBase.ViewOrderOffset;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import javafx.geometry.BoundingBox;
 import javafx.geometry.Bounds;
+import javafx.scene.transform.Translate;
 import net.seapanda.bunnyhop.node.view.BhNodeView.Geometry;
 import net.seapanda.bunnyhop.node.view.bodyshape.BodyShapeType;
 import net.seapanda.bunnyhop.node.view.style.BhNodeViewStyle;
@@ -49,6 +52,12 @@ abstract class GeometryBase implements Geometry {
   private final QuadTreeItem cnctrItem;
   /** 親 {@link BhNodeViewGroup} からの相対位置. */
   private final Vec2D relativePos = new Vec2D();
+  /** {@link #translateTree} で移動中のノードビューの表示位置をずらす変換.  移動中でない場合は null. */
+  private Translate translation;
+  /** {@link #translateTree} で移動を始めたときの位置. */
+  private Vec2D translationOrigin;
+  /** {@link #translation} を適用しているノードビュー. */
+  private Set<BhNodeViewBase> translatedViews = Set.of();
 
   /** 関連するノードビューの子孫要素の親からの相対位置を更新する. */
   abstract void updateDescendantRelativePositions();
@@ -75,9 +84,11 @@ abstract class GeometryBase implements Geometry {
 
   @Override
   public List<BhNodeView> findOverlappedNodeViews() {
+    // 平行移動中の子孫ノードビューの四分木空間上の位置は移動前のままなので除外する
     return cnctrItem.findOverlappedItems(QuadTreeItem.OverlapOption.INTERSECT)
         .stream()
         .map(QuadTreeItem::<BhNodeView>getUserData)
+        .filter(overlapped -> !translatedViews.contains(overlapped))
         .collect(Collectors.toCollection(ArrayList::new));
   }
 
@@ -140,6 +151,8 @@ abstract class GeometryBase implements Geometry {
 
   @Override
   public void setTreePosition(double posX, double posY) {
+    // 平行移動中に位置が設定された場合, 表示位置が二重にずれないように変換を外す
+    removeTranslation();
     updateTreePosition(posX, posY);
     NvbCallbackInvoker.invoke(
         nodeView -> nodeView.getCallbackRegistry().onMoved(),
@@ -247,6 +260,64 @@ abstract class GeometryBase implements Geometry {
     moveTree(diff.x, diff.y);
   }
 
+  @Override
+  public void translateTree(double diffX, double diffY) {
+    WorkspaceView wsView = view.getWorkspaceView();
+    if (wsView == null) {
+      return;
+    }
+    if (translation == null) {
+      beginTranslation();
+    }
+    Vec2D wsSize = wsView.getSize();
+    Vec2D newPos = ViewUtil.newPosition(new Vec2D(diffX, diffY), wsSize, getPosition());
+    translation.setX(newPos.x - translationOrigin.x);
+    translation.setY(newPos.y - translationOrigin.y);
+    setPositionsOnQuadTreeSpace(newPos.x, newPos.y);
+    view.getCallbackRegistry().onMoved();
+  }
+
+  /** 関連するノードビュー以下のノードビューに, 表示位置をずらすための共通の変換を設定する. */
+  private void beginTranslation() {
+    translation = new Translate();
+    translationOrigin = getPosition();
+    translatedViews = new HashSet<>();
+    NvbCallbackInvoker.invoke(
+        nodeView -> {
+          nodeView.getPanes().root().getTransforms().add(translation);
+          nodeView.getShapes().compileError().getTransforms().add(translation);
+          translatedViews.add(nodeView);
+        },
+        view);
+  }
+
+  @Override
+  public void commitTranslation() {
+    if (translation == null) {
+      return;
+    }
+    Vec2D pos = getPosition();
+    setTreePosition(pos.x, pos.y);
+  }
+
+  @Override
+  public boolean isTranslating() {
+    return translation != null;
+  }
+
+  /** {@link #beginTranslation} で設定した変換を外す. */
+  private void removeTranslation() {
+    if (translation == null) {
+      return;
+    }
+    for (BhNodeViewBase nodeView : translatedViews) {
+      nodeView.getPanes().root().getTransforms().remove(translation);
+      nodeView.getShapes().compileError().getTransforms().remove(translation);
+    }
+    translation = null;
+    translatedViews = Set.of();
+  }
+
   @Override
   public Vec2D sceneToLocal(Vec2D pos) {
     var localPos = view.getPanes().root().sceneToLocal(pos.x, pos.y);
@@ -56,11 +56,18 @@ class SizeChangeNotifier {
   }
 
 
-  /** このノードを根とする部分木のサイズの更新状態を最新にする. */
-  void markSubtreeSizeUpToDate() {
-    NvbCallbackInvoker.invoke(
-        nodeView -> nodeView.getSizeChangeNotifier().isNodeSizeUpToDate = true,
-        view);
+  /**
+   * このノードを根とする部分木のサイズが最新であるか調べる.
+   *
+   * <p>サイズの変化は親へ伝搬するので, このメソッドが true を返す場合, 子孫ノードのサイズも最新である.
+   */
+  boolean isSubtreeSizeUpToDate() {
+    return isNodeSizeUpToDate;
+  }
+
+  /** このノードのサイズの更新状態を最新にする. */
+  void markNodeSizeUpToDate() {
+    isNodeSizeUpToDate = true;
   }
 
   /** 子孫ノードのサイズが変わったときに呼び出す関数を設定する. */
@@ -34,6 +34,10 @@ abstract class VisualBase implements BhNodeView.Visual {
   private final BhNodeViewBase view;
   /** 現在適用されている視覚効果. */
   private final Set<VisualEffectType> appliedEffects = new HashSet<>();
+  /** {@link #setVisible} で指定された可視性. */
+  private boolean visible = true;
+  /** 可視領域から離れているため非表示にしている場合 true. */
+  private boolean culled = false;
 
   VisualBase(BhNodeViewBase view) {
     this.view = view;
@@ -62,7 +66,28 @@ abstract class VisualBase implements BhNodeView.Visual {
 
   @Override
   public void setVisible(boolean visible) {
-    NvbCallbackInvoker.invoke(view -> view.getPanes().root().setVisible(visible), view);
+    NvbCallbackInvoker.invoke(
+        view -> {
+          view.getVisual().visible = visible;
+          view.getVisual().updateVisibility();
+        },
+        view);
+  }
+
+  @Override
+  public void setCulled(boolean culled) {
+    this.culled = culled;
+    updateVisibility();
+  }
+
+  @Override
+  public void setLowDetail(boolean lowDetail) {
+    view.getPanes().componentBase().setVisible(!lowDetail);
+  }
+
+  /** 関連するノードビューの表示状態を更新する. */
+  private void updateVisibility() {
+    view.getPanes().root().setVisible(visible && !culled);
   }
 
   @Override
@@ -20,6 +20,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import net.seapanda.bunnyhop.linter.model.CompileErrorChecker;
 import net.seapanda.bunnyhop.node.model.service.DerivativeCache;
@@ -37,18 +38,31 @@ public class TransactionNotificationServiceImpl implements TransactionNotificati
   private final DerivativeCache cache;
   private final CompileErrorChecker reporter;
   private final UndoRedoAgent undoRedoAgent;
+  /** 時間内に終わらなかったコンパイルエラーの検査の続きを実行する {@link Executor}. */
+  private final Executor deferredCheckExecutor;
+  /** コンパイルエラーの検査の続きを {@link #deferredCheckExecutor} に登録済みの場合 true. */
+  private boolean isCheckDeferred = false;
   private final Set<ExclusionId> currentExclusionIds = new HashSet<>();
   /** 現在使用中の {@link TransactionContext} オブジェクト. */
   private TransactionContext context;
 
-  /** コンストラクタ. */
+  /**
+   * コンストラクタ.
+   *
+   * @param cache トランザクションの終了時にクリアする派生ノードのキャッシュ
+   * @param reporter トランザクションの終了時にノードのコンパイルエラーを調べるオブジェクト
+   * @param undoRedoAgent トランザクション中の操作を undo / redo 可能にするオブジェクト
+   * @param deferredCheckExecutor 時間内に終わらなかったコンパイルエラーの検査の続きを実行する {@link Executor}
+   */
   public TransactionNotificationServiceImpl(
       DerivativeCache cache,
       CompileErrorChecker reporter,
-      UndoRedoAgent undoRedoAgent) {
+      UndoRedoAgent undoRedoAgent,
+      Executor deferredCheckExecutor) {
     this.cache = cache;
     this.reporter = reporter;
     this.undoRedoAgent = undoRedoAgent;
+    this.deferredCheckExecutor = deferredCheckExecutor;
   }
 
   @Override
@@ -83,11 +97,24 @@ public class TransactionNotificationServiceImpl implements TransactionNotificati
 
   @Override
   public void end() {
+    boolean deferCheck = false;
     if (lock.getWriteHoldCount() == 1) {
       cache.clearAll();
       reporter.check(context.userOpe());
       undoRedoAgent.pushUndoCommand(context.userOpe());
+      deferCheck = reporter.hasPendingNodes() && !isCheckDeferred;
+      isCheckDeferred |= deferCheck;
     }
     lock.writeLock().unlock();
+    if (deferCheck) {
+      deferredCheckExecutor.execute(this::resumeCheck);
+    }
+  }
+
+  /** 時間内に終わらなかったコンパイルエラーの検査を再開する. */
+  private void resumeCheck() {
+    begin();
+    isCheckDeferred = false;
+    end();
   }
 }
@@ -20,10 +20,8 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
-import java.util.Queue;
 import java.util.SequencedCollection;
 import java.util.concurrent.FutureTask;
 import javafx.animation.KeyFrame;
@@ -31,22 +29,32 @@ import javafx.animation.Timeline;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
-import javafx.scene.control.TextInputControl;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 import javafx.util.Duration;
+import net.seapanda.bunnyhop.common.configuration.BhConstants;
+import net.seapanda.bunnyhop.common.text.TextDefs;
 import net.seapanda.bunnyhop.ui.view.ViewUtil;
 
 /**
  * アプリケーションユーザ向けにメッセージを出力する機能を提供するクラス.
  *
+ * <p>メッセージは一定時間ごとにまとめてメッセージの出力先に追加する.
+ * 出力が追いつかずに出力待ちのメッセージが上限を超えた場合, 古いものから捨ててその行数を出力する.
+ *
  * @author K.Koike
  */
 public class BhMessageService implements Closeable, MessageService {
 
-  private TextInputControl textInputCtrl;
-  private final Queue<String> messages = new LinkedList<>();
+  /** メッセージの出力先. */
+  private MessageLineBuffer msgBuffer;
+  /** 出力待ちのメッセージ. */
+  private final StringBuilder pending = new StringBuilder();
+  /** {@link #pending} に含まれる改行の数. */
+  private int numPendingLines = 0;
+  /** 出力が追いつかずに捨てたメッセージの行数. */
+  private long numDroppedLines = 0;
   private final Timeline msgPrintTimer;
   private volatile SequencedCollection<Stage> stages = new ArrayList<>();
   private volatile Collection<String> style = new ArrayList<>();
@@ -60,24 +68,71 @@ public class BhMessageService implements Closeable, MessageService {
     msgPrintTimer.play();
   }
 
-  private synchronized void outputMsg() {
-    if (isClosed || textInputCtrl == null) {
-      return;
+  /** 出力待ちのメッセージをメッセージの出力先に追加する. */
+  private void outputMsg() {
+    String text;
+    long numDropped;
+    MessageLineBuffer buffer;
+    synchronized (this) {
+      if (isClosed || msgBuffer == null || (pending.isEmpty() && numDroppedLines == 0)) {
+        return;
+      }
+      text = pending.toString();
+      numDropped = numDroppedLines;
+      buffer = msgBuffer;
+      pending.setLength(0);
+      numPendingLines = 0;
+      numDroppedLines = 0;
     }
-    StringBuilder text = new StringBuilder();
-    messages.forEach(text::append);
-    messages.clear();
-    if (!text.isEmpty()) {
-      textInputCtrl.appendText(text.toString());
+    if (numDropped > 0) {
+      buffer.append(TextDefs.BhRuntime.Communication.messagesDropped.get(numDropped));
     }
+    buffer.append(text);
   }
 
   @Override
   public synchronized void info(String msg) {
-    if (isClosed || textInputCtrl == null) {
+    if (isClosed || msgBuffer == null) {
       return;
     }
-    messages.offer(msg);
+    pending.append(msg);
+    numPendingLines += countLines(msg, 0, msg.length());
+    if (numPendingLines > 2 * BhConstants.Message.MAX_MAIN_MSG_AREA_LINES
+        || pending.length() > BhConstants.Message.MAX_PENDING_MSG_CHARS) {
+      dropOldPendingMessages();
+    }
+  }
+
+  /**
+   * 出力待ちのメッセージが表示可能な行数と出力待ちにできる文字数の半分に収まるように, 古いものから捨てる.
+   * 捨てた行は, 出力しても表示可能な行数を超えるので直ちに消える行である.
+   */
+  private void dropOldPendingMessages() {
+    int end = 0;
+    int numExcessLines = numPendingLines - BhConstants.Message.MAX_MAIN_MSG_AREA_LINES;
+    for (int i = 0; i < numExcessLines; ++i) {
+      end = pending.indexOf("\n", end) + 1;
+    }
+    int numExcessChars = pending.length() - BhConstants.Message.MAX_PENDING_MSG_CHARS / 2;
+    if (end < numExcessChars) {
+      int lineEnd = pending.indexOf("\n", numExcessChars);
+      end = (lineEnd < 0) ? numExcessChars : lineEnd + 1;
+    }
+    int numLines = countLines(pending, 0, end);
+    numDroppedLines += (end > 0 && pending.charAt(end - 1) != '\n') ? numLines + 1 : numLines;
+    numPendingLines -= numLines;
+    pending.delete(0, end);
+  }
+
+  /** {@code text} の {@code begin} から {@code end} の範囲に含まれる改行の数を返す. */
+  private static int countLines(CharSequence text, int begin, int end) {
+    int count = 0;
+    for (int i = begin; i < end; ++i) {
+      if (text.charAt(i) == '\n') {
+        ++count;
+      }
+    }
+    return count;
   }
 
   @Override
@@ -159,10 +214,10 @@ public class BhMessageService implements Closeable, MessageService {
   /**
    * メッセージ出力先を登録する.
    *
-   * @param ctrl メッセージ出力先
+   * @param buffer メッセージ出力先
    */
-  public synchronized void setMainMsgArea(TextInputControl ctrl) {
-    this.textInputCtrl = ctrl;
+  public synchronized void setMainMsgArea(MessageLineBuffer buffer) {
+    this.msgBuffer = buffer;
   }
 
   /**
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.service.message;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javafx.collections.ObservableListBase;
+
+/**
+ * メッセージを行単位で保持するリングバッファ.
+ *
+ * <p>保持する行数が上限を超えた場合, 古い行から捨てる.
+ * 最後の行が改行で終わっていない場合, 次に追加したテキストの先頭はその行に続けて追加する.
+ * このクラスのメソッドは UI スレッドから呼ぶこと.
+ *
+ * @author K.Koike
+ */
+public class MessageLineBuffer extends ObservableListBase<String> {
+
+  /** 行を格納する配列. */
+  private final String[] lines;
+  /** 先頭の行が格納されている {@link #lines} のインデックス. */
+  private int head = 0;
+  /** 保持している行の数. */
+  private int size = 0;
+  /** 最後の行が改行で終わっていない場合 true. */
+  private boolean isLastLineOpen = false;
+  /** このバッファが作られてから捨てた行の数. */
+  private long numEvicted = 0;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param capacity 保持する行数の上限
+   */
+  public MessageLineBuffer(int capacity) {
+    lines = new String[Math.max(1, capacity)];
+  }
+
+  @Override
+  public String get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+    return lines[(head + index) % lines.length];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * このバッファに {@code text} を追加する.
+   *
+   * @param text 追加するテキスト.  改行で複数の行に分割して追加する.
+   */
+  public void append(String text) {
+    if (text.isEmpty()) {
+      return;
+    }
+    beginChange();
+    try {
+      int begin = 0;
+      if (isLastLineOpen && size > 0) {
+        int end = lineEnd(text, 0);
+        int last = size - 1;
+        String old = get(last);
+        lines[(head + last) % lines.length] = old.concat(text.substring(0, end));
+        nextSet(last, old);
+        begin = end + 1;
+        isLastLineOpen = end == text.length();
+      }
+      List<String> newLines = new ArrayList<>();
+      while (begin < text.length()) {
+        int end = lineEnd(text, begin);
+        newLines.add(text.substring(begin, end));
+        begin = end + 1;
+        isLastLineOpen = end == text.length();
+      }
+      addLast(newLines);
+    } finally {
+      endChange();
+    }
+  }
+
+  /** このバッファの全ての行を捨てる. */
+  @Override
+  public void clear() {
+    if (size == 0) {
+      return;
+    }
+    beginChange();
+    try {
+      List<String> removed = new ArrayList<>(this);
+      Arrays.fill(lines, null);
+      numEvicted += size;
+      head = 0;
+      size = 0;
+      isLastLineOpen = false;
+      nextRemove(0, removed);
+    } finally {
+      endChange();
+    }
+  }
+
+  /**
+   * このバッファが作られてから捨てた行の数を返す.
+   * この値と行のインデックスの和は, 古い行が捨てられても変わらない.
+   */
+  public long getNumEvicted() {
+    return numEvicted;
+  }
+
+  /** 保持する行数の上限を返す. */
+  public int getCapacity() {
+    return lines.length;
+  }
+
+  /**
+   * 末尾に {@code newLines} を追加し, 上限を超えた分の行を先頭から捨てる.
+   * {@link #beginChange} と {@link #endChange} の間で呼ぶこと.
+   */
+  private void addLast(List<String> newLines) {
+    // 上限を超える数の行を一度に追加する場合, 追加しても直ちに捨てられる行は最初から追加しない
+    int numSkipped = Math.max(0, newLines.size() - lines.length);
+    List<String> added = newLines.subList(numSkipped, newLines.size());
+    numEvicted += numSkipped;
+    if (added.isEmpty()) {
+      return;
+    }
+    nextAdd(size, size + added.size());
+    int numRemoved = Math.max(0, size + added.size() - lines.length);
+    var removed = new ArrayList<String>(numRemoved);
+    for (int i = 0; i < numRemoved; ++i) {
+      removed.add(lines[head]);
+      lines[head] = null;
+      head = (head + 1) % lines.length;
+    }
+    size -= numRemoved;
+    numEvicted += numRemoved;
+    for (String line : added) {
+      lines[(head + size) % lines.length] = line;
+      ++size;
+    }
+    if (numRemoved > 0) {
+      nextRemove(0, removed);
+    }
+  }
+
+  /** {@code text} の {@code begin} 以降にある最初の改行の位置を返す.  改行が無い場合は {@code text} の長さを返す. */
+  private static int lineEnd(String text, int begin) {
+    int end = text.indexOf('\n', begin);
+    return (end < 0) ? text.length() : end;
+  }
+}
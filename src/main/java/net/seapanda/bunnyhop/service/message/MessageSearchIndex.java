@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.service.message;
+
+import java.util.OptionalInt;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ListChangeListener.Change;
+import net.seapanda.bunnyhop.search.SearchQuery;
+
+/**
+ * {@link MessageLineBuffer} の行のうち, 検索クエリに一致するものの索引.
+ *
+ * <p>索引は作成時に 1 度だけバッファ全体を走査して作り, それ以降はバッファに追加または変更された行だけを調べて更新する.
+ * 一致する行は新しいものから最大 {@code maxHits} 行まで保持する.
+ * このクラスのメソッドは UI スレッドから呼ぶこと.
+ *
+ * @author K.Koike
+ */
+public class MessageSearchIndex {
+
+  private final MessageLineBuffer buffer;
+  private final SearchQuery query;
+  private final Pattern pattern;
+  /** 検索クエリに一致した行の通し番号を昇順に格納するリングバッファ. */
+  private final long[] hits;
+  /** 先頭の通し番号が格納されている {@link #hits} のインデックス. */
+  private int head = 0;
+  /** {@link #hits} に格納されている通し番号の数. */
+  private int numHits = 0;
+  /** 現在注目している行の通し番号.  注目している行が無い場合は負の値. */
+  private long current = -1;
+  private final ListChangeListener<String> onBufferChanged = this::onBufferChanged;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param buffer 検索対象のバッファ
+   * @param query 検索クエリ
+   * @param maxHits 保持する一致した行の数の上限
+   * @throws PatternSyntaxException {@code query} の検索語が不正な正規表現の場合
+   */
+  public MessageSearchIndex(MessageLineBuffer buffer, SearchQuery query, int maxHits)
+      throws PatternSyntaxException {
+    this.buffer = buffer;
+    this.query = query;
+    this.pattern = query.getPattern();
+    this.hits = new long[Math.max(1, maxHits)];
+    buildIndex();
+    buffer.addListener(onBufferChanged);
+  }
+
+  /** この索引の検索クエリを返す. */
+  public SearchQuery getQuery() {
+    return query;
+  }
+
+  /** 保持している一致した行の数を返す. */
+  public int getNumHits() {
+    return numHits;
+  }
+
+  /**
+   * 現在注目している行が一致した行の中で何番目かを返す.
+   *
+   * @return 現在注目している行が一致した行の中で何番目か.  注目している行が無い場合は負の値.
+   */
+  public int getCurrentIdx() {
+    if (current < 0) {
+      return -1;
+    }
+    int idx = lowerBound(current);
+    return (idx < numHits && hitAt(idx) == current) ? idx : -1;
+  }
+
+  /**
+   * 最初に一致した行に注目する.
+   *
+   * @return 注目した行のバッファ内でのインデックス.  一致した行が無い場合は empty.
+   */
+  public OptionalInt first() {
+    return moveTo(0);
+  }
+
+  /**
+   * 最後に一致した行に注目する.
+   *
+   * @return 注目した行のバッファ内でのインデックス.  一致した行が無い場合は empty.
+   */
+  public OptionalInt last() {
+    return moveTo(numHits - 1);
+  }
+
+  /**
+   * 現在注目している行の次に一致した行に注目する.  次の行が無い場合は最初に一致した行に注目する.
+   *
+   * @return 注目した行のバッファ内でのインデックス.  一致した行が無い場合は empty.
+   */
+  public OptionalInt next() {
+    int idx = lowerBound(current + 1);
+    return moveTo(idx < numHits ? idx : 0);
+  }
+
+  /**
+   * 現在注目している行の前に一致した行に注目する.  前の行が無い場合は最後に一致した行に注目する.
+   *
+   * @return 注目した行のバッファ内でのインデックス.  一致した行が無い場合は empty.
+   */
+  public OptionalInt previous() {
+    int idx = lowerBound(current) - 1;
+    return moveTo(idx >= 0 ? idx : numHits - 1);
+  }
+
+  /** この索引の更新を止める.  以降, この索引を使ってはならない. */
+  public void dispose() {
+    buffer.removeListener(onBufferChanged);
+  }
+
+  /** {@code idx} 番目に一致した行に注目する. */
+  private OptionalInt moveTo(int idx) {
+    if (numHits == 0) {
+      current = -1;
+      return OptionalInt.empty();
+    }
+    current = hitAt(idx);
+    return OptionalInt.of((int) (current - buffer.getNumEvicted()));
+  }
+
+  /** バッファの新しい行から順に, 一致する行を上限まで探して索引を作る. */
+  private void buildIndex() {
+    long base = buffer.getNumEvicted();
+    int numFound = 0;
+    for (int i = buffer.size() - 1; i >= 0 && numFound < hits.length; --i) {
+      if (pattern.matcher(buffer.get(i)).find()) {
+        hits[hits.length - 1 - numFound] = base + i;
+        ++numFound;
+      }
+    }
+    head = hits.length - numFound;
+    numHits = numFound;
+  }
+
+  /** バッファの内容が変わったときに, 捨てられた行と追加または変更された行の分だけ索引を更新する. */
+  private void onBufferChanged(Change<? extends String> change) {
+    int firstDirty = buffer.size();
+    while (change.next()) {
+      if (change.wasAdded()) {
+        firstDirty = Math.min(firstDirty, change.getFrom());
+      }
+    }
+    long base = buffer.getNumEvicted();
+    while (numHits > 0 && hitAt(0) < base) {
+      removeFirst();
+    }
+    while (numHits > 0 && hitAt(numHits - 1) >= base + firstDirty) {
+      --numHits;
+    }
+    for (int i = firstDirty; i < buffer.size(); ++i) {
+      if (pattern.matcher(buffer.get(i)).find()) {
+        if (numHits == hits.length) {
+          removeFirst();
+        }
+        hits[(head + numHits) % hits.length] = base + i;
+        ++numHits;
+      }
+    }
+  }
+
+  private void removeFirst() {
+    head = (head + 1) % hits.length;
+    --numHits;
+  }
+
+  /** {@code idx} 番目に一致した行の通し番号を返す. */
+  private long hitAt(int idx) {
+    return hits[(head + idx) % hits.length];
+  }
+
+  /** 通し番号が {@code lineNo} 以上である最初の一致した行が何番目かを返す. */
+  private int lowerBound(long lineNo) {
+    int low = 0;
+    int high = numHits;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (hitAt(mid) < lineNo) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.service.message;
+
+import java.util.Optional;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
+import javafx.stage.Modality;
+
+/**
+ * 出力するメッセージの各行の先頭にタグを付ける {@link MessageService}.
+ *
+ * <p>複数の出力元のメッセージを 1 つのメッセージ出力先にまとめる際に, 出力元を区別するために使う.
+ * 行の途中で区切られたメッセージを続けて出力した場合, 続きの部分にはタグを付けない.
+ *
+ * @author K.Koike
+ */
+public class TaggedMessageService implements MessageService {
+
+  /** タグを付けたメッセージの出力先. */
+  private final MessageService msgService;
+  /** 各行の先頭に付ける文字列. */
+  private final String prefix;
+  /** 次に出力する文字が行の先頭である場合 true. */
+  private boolean isAtLineStart = true;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param msgService タグを付けたメッセージの出力先
+   * @param tag メッセージの各行の先頭に付けるタグ
+   */
+  public TaggedMessageService(MessageService msgService, String tag) {
+    this.msgService = msgService;
+    this.prefix = "[%s] ".formatted(tag);
+  }
+
+  @Override
+  public void info(String msg) {
+    msgService.info(addTag(msg));
+  }
+
+  @Override
+  public void error(String msg) {
+    msgService.error(addTag(msg));
+  }
+
+  /** {@code msg} の各行の先頭にタグを付ける. */
+  private synchronized String addTag(String msg) {
+    var tagged = new StringBuilder(msg.length() + prefix.length());
+    for (int i = 0; i < msg.length(); ++i) {
+      if (isAtLineStart) {
+        tagged.append(prefix);
+      }
+      char c = msg.charAt(i);
+      tagged.append(c);
+      isAtLineStart = c == '\n';
+    }
+    return tagged.toString();
+  }
+
+  @Override
+  public Optional<ButtonType> alert(
+      Alert.AlertType type,
+      String title,
+      String header,
+      String content,
+      ButtonType... buttonTypes) {
+    return msgService.alert(type, title, header, content, buttonTypes);
+  }
+
+  @Override
+  public Optional<ButtonType> alert(
+      Alert.AlertType type,
+      Modality modality,
+      String title,
+      String header,
+      String content,
+      ButtonType... buttonTypes) {
+    return msgService.alert(type, modality, title, header, content, buttonTypes);
+  }
+}
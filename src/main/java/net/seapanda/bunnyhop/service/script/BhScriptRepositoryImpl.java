@@ -18,31 +18,64 @@ package net.seapanda.bunnyhop.service.script;
 
 import static java.nio.file.FileVisitOption.FOLLOW_LINKS;
 
-import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import net.seapanda.bunnyhop.service.LogManager;
+import org.mozilla.classfile.ClassFileWriter.ClassFileFormatException;
+import org.mozilla.javascript.CompilerEnvirons;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.GeneratedClassLoader;
 import org.mozilla.javascript.Script;
+import org.mozilla.javascript.optimizer.ClassCompiler;
 
 /**
  * アプリケーション外部で定義されたスクリプトを保持するクラス.
  *
+ * <p>インタプリタモードでない場合, スクリプトを JVM のバイトコードにコンパイルする.
+ * キャッシュディレクトリが指定された場合, コンパイルしたバイトコードをスクリプトファイルのハッシュ値をキーとしてファイルに保存し,
+ * 次回以降の起動時に内容の変わっていないスクリプトはキャッシュから読み込む.
+ *
  * @author K.Koike
  */
 public class BhScriptRepositoryImpl implements BhScriptRepository {
 
+  /** コンパイルしたスクリプトのクラスが属するパッケージ. */
+  private static final String SCRIPT_CLASS_PACKAGE = "net.seapanda.bunnyhop.script.compiled";
+  /** キャッシュファイルの拡張子. */
+  private static final String CACHE_FILE_EXT = ".bhsc";
+  /** 書き込み途中のキャッシュファイルの拡張子. */
+  private static final String TMP_CACHE_FILE_EXT = ".bhsc-tmp";
+
   /** スクリプト名とコンパイル済みスクリプトのマップ. */
-  private final Map<String, Script> scriptNameToScript = new ConcurrentHashMap<>();
+  private final Map<String, Script> scriptNameToScript = new HashMap<>();
+  /** スクリプトをインタプリタで実行するかどうか. */
+  private final boolean interpretedMode;
+  /** コンパイルしたスクリプトのキャッシュを置くディレクトリ.  (nullable) */
+  private final Path cacheDir;
+  /** 今回の起動で使用したキャッシュファイルのパス. */
+  private final Set<Path> usedCacheFiles = ConcurrentHashMap.newKeySet();
+  /** キャッシュから読み込んだスクリプトの数. */
+  private final AtomicInteger numCacheHits = new AtomicInteger(0);
 
   /**
    * コンストラクタ.
@@ -51,7 +84,30 @@ public class BhScriptRepositoryImpl implements BhScriptRepository {
    * @throws IOException Javascript ファイルのコンパイルに失敗した場合
    */
   public BhScriptRepositoryImpl(Path... dirPaths) throws IOException {
+    this(false, null, dirPaths);
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param interpretedMode スクリプトをインタプリタで実行する場合 true.
+   *                        false の場合, スクリプトは JVM のバイトコードにコンパイルされる.
+   * @param cacheDir コンパイルしたスクリプトのキャッシュを置くディレクトリ.
+   *                 null の場合やスクリプトをインタプリタで実行する場合はキャッシュを使用しない.
+   * @param dirPaths このディレクトリの下にある *.js ファイルをコンパイルして保持する.
+   * @throws IOException Javascript ファイルのコンパイルに失敗した場合
+   */
+  public BhScriptRepositoryImpl(boolean interpretedMode, Path cacheDir, Path... dirPaths)
+      throws IOException {
+    this.interpretedMode = interpretedMode;
+    this.cacheDir = interpretedMode ? null : cacheDir;
+    long begin = System.nanoTime();
     compile(dirPaths);
+    deleteUnusedCacheFiles();
+    LogManager.logger().info("Script compilation: %d scripts (%d cached) in %d ms".formatted(
+        scriptNameToScript.size(),
+        numCacheHits.get(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin)));
   }
 
   @Override
@@ -65,8 +121,10 @@ public class BhScriptRepositoryImpl implements BhScriptRepository {
   /**
    * JavaScript ファイルを読み込み、コンパイルする.
    *
+   * <p>各ディレクトリの中のファイルは並列にコンパイルする.
+   * 同じ名前のファイルが複数ある場合は, 並列化の有無に関わらず, ディレクトリとその走査順で後にあるものが有効になる.
+   *
    * @param dirPaths このディレクトリの下にある.jsファイルをコンパイルする
-   * @return ひとつでもコンパイル不能なJSファイルがあった場合 false を返す
    */
   private void compile(Path... dirPaths) throws IOException {
     for (Path dirPath : dirPaths) {
@@ -79,20 +137,253 @@ public class BhScriptRepositoryImpl implements BhScriptRepository {
         LogManager.logger().error("Directory not found.  (%s)".formatted(dirPath));
         throw e;
       }
-      Context cx = ContextFactory.getGlobal().enterContext();
+      List<Script> scripts;
+      try {
+        // 並列ストリームでも toList の結果は jsFilePaths の順序を保つ
+        scripts = jsFilePaths.parallelStream().map(path -> {
+          try {
+            return compile(path);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }).toList();
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      for (int i = 0; i < jsFilePaths.size(); ++i) {
+        scriptNameToScript.put(jsFilePaths.get(i).getFileName().toString(), scripts.get(i));
+      }
+    }
+  }
+
+  /**
+   * {@code path} の JavaScript ファイルをコンパイルする.
+   *
+   * @param path コンパイルする JavaScript ファイルのパス
+   * @return コンパイルしたスクリプト
+   */
+  private Script compile(Path path) throws IOException {
+    byte[] content = Files.readAllBytes(path);
+    String source = new String(content, StandardCharsets.UTF_8);
+    String fileName = path.getFileName().toString();
+    Context cx = ContextFactory.getGlobal().enterContext();
+    try {
       cx.setLanguageVersion(Context.VERSION_ES6);
-      for (Path path : jsFilePaths) {
-        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-          Script script = cx.compileReader(reader, path.getFileName().toString(), 1, null);
-          scriptNameToScript.put(path.getFileName().toString(), script);
-        } catch (IOException e) {
-          throw e;
-        }
+      cx.setInterpretedMode(interpretedMode);
+      if (cacheDir == null) {
+        return cx.compileString(source, fileName, 1, null);
       }
+      String key = genCacheKey(cx, fileName, content);
+      Path cacheFile = cacheDir.resolve(key + CACHE_FILE_EXT);
+      usedCacheFiles.add(cacheFile);
+      Script script = loadCache(cx, cacheFile);
+      if (script != null) {
+        numCacheHits.incrementAndGet();
+        return script;
+      }
+      List<ClassFile> classFiles;
+      try {
+        classFiles = compileToClassFiles(cx, source, fileName, key);
+      } catch (ClassFileFormatException e) {
+        // JVM のメソッドサイズの上限を超える関数がある場合, Context.compileString と同様にインタプリタで実行する
+        LogManager.logger().info(
+            "Interpret '%s' since it cannot be compiled to bytecode.\n%s".formatted(fileName, e));
+        usedCacheFiles.remove(cacheFile);
+        cx.setInterpretedMode(true);
+        return cx.compileString(source, fileName, 1, null);
+      }
+      writeCache(cacheFile, classFiles);
+      return defineScript(cx, classFiles);
+    } finally {
       Context.exit();
     }
   }
 
+  /**
+   * スクリプトを JVM のクラスファイルにコンパイルする.
+   *
+   * @param cx コンパイルに使用する {@link Context}
+   * @param source コンパイルするスクリプト
+   * @param fileName {@code source} が書かれたファイルの名前
+   * @param key {@code source} のキャッシュキー
+   * @return コンパイルしたクラスファイルのリスト.  先頭の要素が {@link Script} を実装したクラスとなる.
+   */
+  private static List<ClassFile> compileToClassFiles(
+      Context cx, String source, String fileName, String key) {
+    var env = new CompilerEnvirons();
+    env.initFromContext(cx);
+    Object[] namesAndBytes = new ClassCompiler(env).compileToClassFiles(
+        source, fileName, 1, SCRIPT_CLASS_PACKAGE + ".Script_" + key);
+    var classFiles = new ArrayList<ClassFile>();
+    for (int i = 0; i < namesAndBytes.length; i += 2) {
+      classFiles.add(new ClassFile((String) namesAndBytes[i], (byte[]) namesAndBytes[i + 1]));
+    }
+    return classFiles;
+  }
+
+  /**
+   * クラスファイルをロードして {@link Script} オブジェクトを作成する.
+   *
+   * @param cx クラスのロードに使用する {@link Context}
+   * @param classFiles ロードするクラスファイルのリスト.  先頭の要素が {@link Script} を実装したクラスであること.
+   * @return 作成した {@link Script} オブジェクト
+   */
+  private static Script defineScript(Context cx, List<ClassFile> classFiles) throws IOException {
+    GeneratedClassLoader loader =
+        cx.createClassLoader(BhScriptRepositoryImpl.class.getClassLoader());
+    Class<?> scriptClass = null;
+    for (ClassFile classFile : classFiles) {
+      Class<?> clazz = loader.defineClass(classFile.name(), classFile.bytes());
+      loader.linkClass(clazz);
+      if (scriptClass == null) {
+        scriptClass = clazz;
+      }
+    }
+    try {
+      return (Script) scriptClass.getDeclaredConstructor().newInstance();
+    } catch (Exception e) {
+      throw new IOException("Failed to load a compiled script.  (%s)".formatted(scriptClass), e);
+    }
+  }
+
+  /**
+   * キャッシュキーを作成する.
+   *
+   * <p>スクリプトの内容, ファイル名, 言語バージョン, Rhino のバージョンのいずれかが変わるとキーも変わる.
+   * ファイル名はコンパイルしたクラスのソース名やエラーメッセージに埋め込まれるので, キーに含める.
+   */
+  private static String genCacheKey(Context cx, String fileName, byte[] content) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      String env = "%s:%s:".formatted(cx.getImplementationVersion(), cx.getLanguageVersion());
+      digest.update(env.getBytes(StandardCharsets.UTF_8));
+      // ファイル名に含まれ得ない NUL を区切りにして, 名前と内容の境界を一意にする
+      digest.update(fileName.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(content);
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * キャッシュファイルからスクリプトを読み込む.
+   *
+   * <p>キャッシュファイルが壊れていた場合は, そのファイルを削除して null を返す.
+   *
+   * @param cx クラスのロードに使用する {@link Context}
+   * @param cacheFile 読み込むキャッシュファイル
+   * @return 読み込んだスクリプト.  キャッシュファイルが無いか読み込めなかった場合は null.
+   */
+  private static Script loadCache(Context cx, Path cacheFile) {
+    if (!Files.exists(cacheFile)) {
+      return null;
+    }
+    try {
+      return defineScript(cx, readCache(cacheFile));
+    } catch (IOException | RuntimeException | LinkageError e) {
+      LogManager.logger().error("Failed to read a script cache.  (%s)\n%s".formatted(cacheFile, e));
+      try {
+        Files.deleteIfExists(cacheFile);
+      } catch (IOException e1) { /* Do nothing. */ }
+      return null;
+    }
+  }
+
+  /**
+   * キャッシュファイルからクラスファイルを読み込む.
+   *
+   * @param cacheFile 読み込むキャッシュファイル
+   * @return 読み込んだクラスファイルのリスト
+   * @throws IOException キャッシュファイルの読み込みに失敗した場合や, キャッシュファイルの内容が不正な場合
+   */
+  private static List<ClassFile> readCache(Path cacheFile) throws IOException {
+    long fileSize = Files.size(cacheFile);
+    try (var in = new DataInputStream(Files.newInputStream(cacheFile))) {
+      int numClasses = in.readInt();
+      if (numClasses <= 0 || numClasses > fileSize) {
+        throw new IOException("Invalid number of classes.  (%s)".formatted(numClasses));
+      }
+      var classFiles = new ArrayList<ClassFile>(numClasses);
+      for (int i = 0; i < numClasses; ++i) {
+        String name = in.readUTF();
+        int length = in.readInt();
+        if (length <= 0 || length > fileSize) {
+          throw new IOException("Invalid class file length.  (%s)".formatted(length));
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        classFiles.add(new ClassFile(name, bytes));
+      }
+      return classFiles;
+    }
+  }
+
+  /**
+   * クラスファイルをキャッシュファイルに書き込む.
+   *
+   * <p>書き込みに失敗してもスクリプトは使用できるので, 例外は投げない.
+   *
+   * @param cacheFile 書き込むキャッシュファイル
+   * @param classFiles 書き込むクラスファイルのリスト
+   */
+  private void writeCache(Path cacheFile, List<ClassFile> classFiles) {
+    Path tmpFile = null;
+    try {
+      Files.createDirectories(cacheDir);
+      tmpFile = Files.createTempFile(cacheDir, null, TMP_CACHE_FILE_EXT);
+      try (var out = new DataOutputStream(Files.newOutputStream(tmpFile))) {
+        out.writeInt(classFiles.size());
+        for (ClassFile classFile : classFiles) {
+          out.writeUTF(classFile.name());
+          out.writeInt(classFile.bytes().length);
+          out.write(classFile.bytes());
+        }
+      }
+      Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      LogManager.logger().error(
+          "Failed to write a script cache.  (%s)\n%s".formatted(cacheFile, e));
+      try {
+        if (tmpFile != null) {
+          Files.deleteIfExists(tmpFile);
+        }
+      } catch (IOException e1) { /* Do nothing. */ }
+    }
+  }
+
+  /**
+   * 今回の起動で使用しなかったキャッシュファイルを削除する.
+   * 書き込み途中でプロセスが終了して残った一時ファイルも削除する.
+   */
+  private void deleteUnusedCacheFiles() {
+    if (cacheDir == null || !Files.isDirectory(cacheDir)) {
+      return;
+    }
+    try (Stream<Path> files = Files.list(cacheDir)) {
+      files.filter(file -> isUnusedCacheFile(file) || isTmpCacheFile(file))
+          .forEach(file -> {
+            try {
+              Files.deleteIfExists(file);
+            } catch (IOException e) { /* Do nothing. */ }
+          });
+    } catch (IOException e) {
+      LogManager.logger().error(
+          "Failed to clean up script caches.  (%s)\n%s".formatted(cacheDir, e));
+    }
+  }
+
+  /** {@code file} が今回の起動で使用しなかったキャッシュファイルかどうか調べる. */
+  private boolean isUnusedCacheFile(Path file) {
+    return file.getFileName().toString().endsWith(CACHE_FILE_EXT) && !usedCacheFiles.contains(file);
+  }
+
+  /** {@code file} が書き込み途中のキャッシュファイルかどうか調べる. */
+  private static boolean isTmpCacheFile(Path file) {
+    return file.getFileName().toString().endsWith(TMP_CACHE_FILE_EXT);
+  }
+
   @Override
   public boolean allExist(String... scriptNames) {
     return allExistWithHandler(name -> {}, scriptNames);
@@ -125,4 +416,12 @@ public class BhScriptRepositoryImpl implements BhScriptRepository {
 
     return allExistWithHandler(onScriptNotFound, scriptNamesFiltered);
   }  
+
+  /**
+   * コンパイルしたクラスファイル.
+   *
+   * @param name クラスの完全修飾名
+   * @param bytes クラスファイルの内容
+   */
+  private record ClassFile(String name, byte[] bytes) {}
 }
@@ -16,9 +16,10 @@
 
 package net.seapanda.bunnyhop.service.undo;
 
+import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.LinkedList;
-import net.seapanda.bunnyhop.common.configuration.BhConstants;
+import net.seapanda.bunnyhop.common.configuration.BhSettings;
+import net.seapanda.bunnyhop.service.LogManager;
 import net.seapanda.bunnyhop.utility.event.ConsumerInvoker;
 import net.seapanda.bunnyhop.utility.event.SimpleConsumerInvoker;
 import net.seapanda.bunnyhop.workspace.model.WorkspaceSet;
@@ -26,14 +27,19 @@ import net.seapanda.bunnyhop.workspace.model.WorkspaceSet;
 /**
  * Undo / Redo 操作を提供するクラス.
  *
+ * <p>保持する操作の履歴は, 各操作が保持するメモリ量の見積もりの合計が
+ * {@link BhSettings.Undo#memoryBudget} を超えないように古いものから削除される.
+ *
  * @author K.Koike
  */
 public class UndoRedoAgent {
 
   /** Undo できるコマンドのスタック. */
-  private final Deque<UserOperation> undoStack = new LinkedList<>();
+  private final Deque<UserOperation> undoStack = new ArrayDeque<>();
   /** Redo できるコマンドのスタック. */
-  private final Deque<UserOperation> redoStack = new LinkedList<>();
+  private final Deque<UserOperation> redoStack = new ArrayDeque<>();
+  /** {@link #undoStack} と {@link #redoStack} のコマンドが保持するメモリ量の見積もりの合計 (Byte). */
+  private long retainedBytes = 0;
   private final CallbackRegistry cbRegistry = new CallbackRegistry();
   private final WorkspaceSet wss;
 
@@ -50,12 +56,10 @@ public class UndoRedoAgent {
     if (cmd == null || cmd.getNumSubOps() <= 0) {
       return;
     }
-    undoStack.addLast(cmd);
-    if (undoStack.size() > BhConstants.NUM_TIMES_MAX_UNDO) {
-      undoStack.removeFirst();
-    }
+    clearRedoStack();
+    push(undoStack, cmd);
     wss.setDirty(true);
-    redoStack.clear();
+    evictOldCommands();
     cbRegistry.onUndoStackChanged.invoke(new UndoStackChangedEvent(this));
   }
 
@@ -64,9 +68,10 @@ public class UndoRedoAgent {
     if (undoStack.isEmpty()) {
       return;
     }
-    UserOperation invCmd = undoStack.removeLast().doInverseOperation();
-    redoStack.addLast(invCmd);
+    UserOperation invCmd = pop(undoStack).doInverseOperation();
+    push(redoStack, invCmd);
     wss.setDirty(true);
+    evictOldCommands();
     cbRegistry.onUndoStackChanged.invoke(new UndoStackChangedEvent(this));
   }
 
@@ -75,9 +80,10 @@ public class UndoRedoAgent {
     if (redoStack.isEmpty()) {
       return;
     }
-    UserOperation invCmd = redoStack.removeLast().doInverseOperation();
-    undoStack.addLast(invCmd);
+    UserOperation invCmd = pop(redoStack).doInverseOperation();
+    push(undoStack, invCmd);
     wss.setDirty(true);
+    evictOldCommands();
     cbRegistry.onUndoStackChanged.invoke(new UndoStackChangedEvent(this));
   }
 
@@ -85,9 +91,57 @@ public class UndoRedoAgent {
   public void deleteCommands() {
     undoStack.clear();
     redoStack.clear();
+    retainedBytes = 0;
     cbRegistry.onUndoStackChanged.invoke(new UndoStackChangedEvent(this));
   }
 
+  /** {@code stack} の末尾に {@code cmd} を追加する. */
+  private void push(Deque<UserOperation> stack, UserOperation cmd) {
+    cmd.compact();
+    stack.addLast(cmd);
+    retainedBytes += cmd.getRetainedBytes();
+  }
+
+  /** {@code stack} の末尾からコマンドを取り出す. */
+  private UserOperation pop(Deque<UserOperation> stack) {
+    UserOperation cmd = stack.removeLast();
+    retainedBytes -= cmd.getRetainedBytes();
+    return cmd;
+  }
+
+  /** Redo できるコマンドを全て消す. */
+  private void clearRedoStack() {
+    for (UserOperation cmd : redoStack) {
+      retainedBytes -= cmd.getRetainedBytes();
+    }
+    redoStack.clear();
+  }
+
+  /**
+   * 保持するコマンドのメモリ量の見積もりが上限を超えている場合, 古いコマンドから削除する.
+   *
+   * <p>最後に追加されたコマンドは上限に関わらず残す.
+   */
+  private void evictOldCommands() {
+    long budget = BhSettings.Undo.memoryBudget * 1024L * 1024L;
+    int numEvicted = 0;
+    long evictedBytes = 0;
+    while (retainedBytes > budget && undoStack.size() + redoStack.size() > 1) {
+      // Redo スタックの先頭は, 現在の状態から最も遠い操作
+      Deque<UserOperation> stack = undoStack.isEmpty() ? redoStack : undoStack;
+      UserOperation cmd = stack.removeFirst();
+      retainedBytes -= cmd.getRetainedBytes();
+      evictedBytes += cmd.getRetainedBytes();
+      ++numEvicted;
+    }
+    if (numEvicted > 0) {
+      int numCmds = undoStack.size() + redoStack.size();
+      LogManager.logger().info(
+          "Undo log: evicted %d entries (%d bytes).  %d entries retain %d bytes (%d bytes/entry)."
+          .formatted(numEvicted, evictedBytes, numCmds, retainedBytes, retainedBytes / numCmds));
+    }
+  }
+
   /**
    * この {@link UndoRedoAgent} に対するイベントハンドラの追加と削除を行うオブジェクトを返す.
    *
@@ -115,6 +169,15 @@ public class UndoRedoAgent {
     return redoStack.size();
   }
 
+  /**
+   * Undo / Redo 用に保持しているコマンドのメモリ量の見積もりを返す.
+   *
+   * @return Undo / Redo 用に保持しているコマンドのメモリ量の見積もり (Byte)
+   */
+  public long getRetainedBytes() {
+    return retainedBytes;
+  }
+
   /** {@link UndoRedoAgent} に対してイベントハンドラを追加または削除する機能を提供するクラス. */
   public class CallbackRegistry {
 
@@ -16,8 +16,8 @@
 
 package net.seapanda.bunnyhop.service.undo;
 
-import java.util.Deque;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Objects;
 import java.util.function.Consumer;
 
 /**
@@ -27,10 +27,17 @@ import java.util.function.Consumer;
  */
 public class UserOperation {
 
+  /** サブ操作 1 つが保持するメモリ量の見積もり (Byte). 関数オブジェクトとそれが参照する値の分を含む. */
+  public static final long BYTES_PER_SUB_OP = 64;
+  /** サブ操作が参照するノード 1 つ (ビューを含む) が保持するメモリ量の見積もり (Byte). */
+  public static final long BYTES_PER_NODE = 4096;
+
   public UserOperation() {}
 
   /** このオブジェクトが表す操作を構成するサブ操作のリスト. */
-  private final Deque<SubOperation> subOpeList = new LinkedList<>();
+  private final ArrayList<SubOperation> subOpeList = new ArrayList<>();
+  /** このオブジェクトのサブ操作が保持するメモリ量の見積もり (Byte). */
+  private long retainedBytes = 0;
 
   /**
    * このコマンドの逆の操作を行う (例えば, ノード追加ならノード削除を行う).
@@ -55,6 +62,20 @@ public class UserOperation {
     return subOpeList.size();
   }
 
+  /**
+   * このオブジェクトのサブ操作が保持するメモリ量の見積もりを返す.
+   *
+   * @return このオブジェクトのサブ操作が保持するメモリ量の見積もり (Byte)
+   */
+  public long getRetainedBytes() {
+    return retainedBytes;
+  }
+
+  /** サブ操作のリストが確保している余分な領域を解放する. */
+  void compact() {
+    subOpeList.trimToSize();
+  }
+
   /** for debug. */
   public void printSubOpeList() {
     for (SubOperation subope : subOpeList) {
@@ -68,14 +89,56 @@ public class UserOperation {
    * @param inverseCmd コマンド化した操作の逆の操作を行う関数オブジェクト.
    */
   public void pushCmd(Consumer<UserOperation> inverseCmd) {
-    subOpeList.addLast(new AnonymousCmd(inverseCmd));
+    pushCmd(inverseCmd, BYTES_PER_SUB_OP);
+  }
+
+  /**
+   * 特定の操作をコマンド化してサブ操作リストに加える.
+   *
+   * @param inverseCmd コマンド化した操作の逆の操作を行う関数オブジェクト.
+   * @param retainedBytes {@code inverseCmd} が保持するメモリ量の見積もり (Byte)
+   */
+  public void pushCmd(Consumer<UserOperation> inverseCmd, long retainedBytes) {
+    subOpeList.addLast(new AnonymousCmd(inverseCmd, null));
+    this.retainedBytes += retainedBytes;
+  }
+
+  /**
+   * 値の変更をコマンド化してサブ操作リストに加える.
+   *
+   * <p>直前のサブ操作が同じ {@code target} の値を元に戻すものであった場合, {@code inverseCmd} は追加しない.
+   * 直前のサブ操作がより前の値に戻すので, 途中の値に戻す {@code inverseCmd} は不要である.
+   *
+   * @param target 値を変更した対象
+   * @param inverseCmd {@code target} の値を変更前の値に戻す関数オブジェクト.
+   * @param retainedBytes {@code inverseCmd} が保持するメモリ量の見積もり (Byte)
+   */
+  public void pushValueChangeCmd(
+      Target target, Consumer<UserOperation> inverseCmd, long retainedBytes) {
+    Objects.requireNonNull(target);
+    if (!subOpeList.isEmpty()
+        && subOpeList.getLast() instanceof AnonymousCmd last
+        && target.equals(last.target)) {
+      return;
+    }
+    subOpeList.addLast(new AnonymousCmd(inverseCmd, target));
+    this.retainedBytes += retainedBytes;
   }
 
   /** このコマンドに追加された全てのサブ操作を削除する. */
   public void clearCmds() {
     subOpeList.clear();
+    retainedBytes = 0;
   }
 
+  /**
+   * 値を変更する対象.
+   *
+   * @param owner 値を持つオブジェクト
+   * @param property {@code owner} が持つ値の名前
+   */
+  public record Target(Object owner, String property) {}
+
   /** {@link UserOperation} を構成するサブ操作. */
   interface SubOperation {
     /**
@@ -91,14 +154,18 @@ public class UserOperation {
 
     /** 逆操作. */
     private final Consumer<UserOperation> fnInvert;
+    /** 逆操作で値を元に戻す対象.  値の変更以外の操作の場合は null. */
+    private final Target target;
 
     /**
      * コンストラクタ.
      *
      * @param fnInvert 逆操作を行う関数オブジェクト
+     * @param target 逆操作で値を元に戻す対象.  値の変更以外の操作の場合は null.
      */
-    public AnonymousCmd(Consumer<UserOperation> fnInvert) {
+    public AnonymousCmd(Consumer<UserOperation> fnInvert, Target target) {
       this.fnInvert = fnInvert;
+      this.target = target;
     }
 
     @Override
@@ -36,6 +36,7 @@ import net.seapanda.bunnyhop.common.configuration.BhSettings;
 import net.seapanda.bunnyhop.compiler.ScriptIdentifiers;
 import net.seapanda.bunnyhop.service.KeyCodeConverter;
 import net.seapanda.bunnyhop.ui.model.NodeManipulationMode;
+import net.seapanda.bunnyhop.workspace.control.NodeSearchController;
 import net.seapanda.bunnyhop.workspace.control.WorkspaceSetController;
 
 /**
@@ -57,11 +58,16 @@ public class FoundationController {
   private final Set<KeyCode> pressedKey = new HashSet<>();
   private final LocalBhProgramLauncher localCtrl;
   private final RemoteBhProgramController remoteCtrl;
+  private final NodeSearchController nodeSearchCtrl;
 
+  /** コンストラクタ. */
   public FoundationController(
-      LocalBhProgramLauncher localCtrl, RemoteBhProgramController remoteCtrl) {
+      LocalBhProgramLauncher localCtrl,
+      RemoteBhProgramController remoteCtrl,
+      NodeSearchController nodeSearchCtrl) {
     this.localCtrl = localCtrl;
     this.remoteCtrl = remoteCtrl;
+    this.nodeSearchCtrl = nodeSearchCtrl;
   }
 
   /** このコントローラを初期化する. */
@@ -169,6 +175,12 @@ public class FoundationController {
         }
         break;
 
+      case F:
+        if (event.isControlDown()) {
+          nodeSearchCtrl.prepareForSearch();
+        }
+        break;
+
       case F11:
         menuBarController.fireEvent(MenuBarController.MenuBarItem.FREE_MEMORY);
         break;
@@ -43,6 +43,7 @@ import net.seapanda.bunnyhop.bhprogram.RemoteBhProgramController;
 import net.seapanda.bunnyhop.bhprogram.common.message.io.InputTextCmd;
 import net.seapanda.bunnyhop.bhprogram.runtime.BhRuntimeStatus;
 import net.seapanda.bunnyhop.bhprogram.runtime.BhRuntimeType;
+import net.seapanda.bunnyhop.bhprogram.runtime.RemoteBhRuntimeFleet;
 import net.seapanda.bunnyhop.common.configuration.BhConstants;
 import net.seapanda.bunnyhop.common.configuration.BhSettings;
 import net.seapanda.bunnyhop.common.text.TextDefs;
@@ -547,7 +548,7 @@ public class MenuViewController {
     }
     Optional<SourceSet> nodeSet = Optional.empty();
     try {
-      nodeSet = executableNodeCollector.collect();
+      nodeSet = executableNodeCollector.collect(context.userOpe());
     } catch (Exception e) {
       LogManager.logger().error(e.toString());
     } finally {
@@ -565,7 +566,7 @@ public class MenuViewController {
     terminating.set(true);
     Supplier<Boolean> terminate = () -> isLocalHost()
         ? localCtrl.getBhRuntimeCtrl().terminate()
-        : remoteCtrl.getBhRuntimeCtrl().terminate(
+        : remoteCtrl.terminate(
               hostNameTextField.getText(),
               unameTextField.getText(),
               passwordTextField.getText());
@@ -599,7 +600,7 @@ public class MenuViewController {
     Supplier<Boolean> connect = () -> isLocalHost()
         ? localCtrl.getBhRuntimeCtrl().connect()
         : remoteCtrl.getBhRuntimeCtrl().connect(
-              hostNameTextField.getText(),
+              RemoteBhRuntimeFleet.parseHostnames(hostNameTextField.getText()).getFirst(),
               unameTextField.getText(),
               passwordTextField.getText());
     CompletableFuture
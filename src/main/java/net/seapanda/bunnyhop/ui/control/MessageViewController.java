@@ -16,28 +16,49 @@
 
 package net.seapanda.bunnyhop.ui.control;
 
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+import javafx.collections.ListChangeListener.Change;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
-import javafx.scene.control.TextArea;
+import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.input.KeyEvent;
 import net.seapanda.bunnyhop.common.configuration.BhConstants;
 import net.seapanda.bunnyhop.search.SearchQuery;
 import net.seapanda.bunnyhop.search.SearchQueryResult;
-import net.seapanda.bunnyhop.search.StringSearcher;
-import net.seapanda.bunnyhop.search.Substring;
-import net.seapanda.bunnyhop.utility.collection.ImmutableCircularList;
+import net.seapanda.bunnyhop.service.message.MessageLineBuffer;
+import net.seapanda.bunnyhop.service.message.MessageSearchIndex;
 
 /**
  * ユーザへのメッセージを表示する UI 部分のコントローラ.
  *
+ * <p>メッセージは行単位で {@link MessageLineBuffer} に保持し, {@link ListView} で表示中の行だけを描画する.
+ *
  * @author K.Koike
  */
 public class MessageViewController {
 
-  @FXML TextArea mainMsgArea;
+  /** 選択した行をコピーするキーの組み合わせ. */
+  private static final KeyCombination COPY_KEY =
+      new KeyCodeCombination(KeyCode.C, KeyCombination.SHORTCUT_DOWN);
+
+  @FXML ListView<String> mainMsgArea;
   @FXML Button mvSearchButton;
 
   private final SearchBox searchBox;
-  private ImmutableCircularList<Substring> searchResult;
+  /** 表示するメッセージを保持するバッファ. */
+  private final MessageLineBuffer msgBuffer =
+      new MessageLineBuffer(BhConstants.Message.MAX_MAIN_MSG_AREA_LINES);
+  /** 直前の検索クエリに一致する行の索引. */
+  private MessageSearchIndex searchIndex;
 
   /** コンストラクタ. */
   public MessageViewController(SearchBox searchBox) {
@@ -47,39 +68,44 @@ public class MessageViewController {
   /** このコントローラの UI 要素を初期化する. */
   @FXML
   public void initialize() {
-    mainMsgArea.textProperty().addListener(
-        (observable, oldVal, newVal) -> onMessageChanged(newVal));
-
-    mainMsgArea.scrollTopProperty().addListener((observable, oldVal, newVal) -> {
-      if (oldVal.doubleValue() == Double.MAX_VALUE && newVal.doubleValue() == 0.0) {
-        mainMsgArea.setScrollTop(Double.MAX_VALUE);
-      }
-    });
-
+    mainMsgArea.setItems(msgBuffer);
+    mainMsgArea.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+    mainMsgArea.addEventFilter(KeyEvent.KEY_PRESSED, this::onKeyPressed);
+    msgBuffer.addListener((Change<? extends String> change) -> onMessageChanged());
     mvSearchButton.setOnAction(action -> prepareForSearch());
   }
 
-  /** {@link #mainMsgArea} のテキストが変わったときの処理. */
-  private void onMessageChanged(String newVal) {
-    deleteOldText(newVal);
-    mainMsgArea.setScrollTop(Double.MAX_VALUE);
-    searchResult = null;
+  /** {@link #msgBuffer} の内容が変わったときの処理. */
+  private void onMessageChanged() {
+    if (!msgBuffer.isEmpty()) {
+      mainMsgArea.scrollTo(msgBuffer.size() - 1);
+    }
   }
 
-  /**
-   * {@code text} の長さが表示可能なメッセージの最大長を超えていた場合,
-   * {@link #mainMsgArea} から古い文字列を超過分だけ消す.
-   */
-  private void deleteOldText(String text) {
-    if (text.length() > BhConstants.Message.MAX_MAIN_MSG_AREA_CHARS) {
-      int numDeleteChars = text.length() - BhConstants.Message.MAX_MAIN_MSG_AREA_CHARS;
-      mainMsgArea.deleteText(0, numDeleteChars);
+  /** {@link #mainMsgArea} でキーが押されたときの処理. */
+  private void onKeyPressed(KeyEvent event) {
+    if (COPY_KEY.match(event)) {
+      copySelectedLines();
+      event.consume();
+    }
+  }
+
+  /** {@link #mainMsgArea} で選択中の行をクリップボードにコピーする. */
+  private void copySelectedLines() {
+    List<Integer> selected = mainMsgArea.getSelectionModel().getSelectedIndices().stream()
+        .sorted()
+        .toList();
+    if (selected.isEmpty()) {
+      return;
     }
+    var content = new ClipboardContent();
+    content.putString(selected.stream().map(msgBuffer::get).collect(Collectors.joining("\n")));
+    Clipboard.getSystemClipboard().setContent(content);
   }
 
-  /** アプリケーションのメッセージを表示する {@link TextArea} を取得する. */
-  public TextArea getMsgArea() {
-    return mainMsgArea;
+  /** アプリケーションのメッセージを保持するバッファを取得する. */
+  public MessageLineBuffer getMsgBuffer() {
+    return msgBuffer;
   }
 
   /** 検索の準備をする. */
@@ -88,22 +114,49 @@ public class MessageViewController {
     searchBox.enable();
   }
 
-  /** {@link #mainMsgArea} から {@code query} に一致する文字列を探して強調する. */
+  /**
+   * {@link #mainMsgArea} から {@code query} に一致する行を探して選択する.
+   *
+   * <p>検索クエリが変わったときだけ索引を作り直す.
+   * 同じ検索クエリで続けて検索した場合は, 索引から次 (または前) に一致する行を探す.
+   */
   private SearchQueryResult highlightText(SearchQuery query) {
     if (query.isEmpty()) {
       return new SearchQueryResult(0, 0);
     }
-    Substring found;
-    if (searchBox.getNumConsecutiveSameRequests() >= 2 && searchResult != null) {
-      found = query.isForward() ? searchResult.getNext() : searchResult.getPrevious();
+    boolean isNewQuery = searchIndex == null || !searchIndex.getQuery().isEqualTo(query);
+    if (isNewQuery && !renewSearchIndex(query)) {
+      return new SearchQueryResult(-1, 0);
+    }
+    OptionalInt found;
+    if (!isNewQuery && searchBox.getNumConsecutiveSameRequests() >= 2) {
+      found = query.isForward() ? searchIndex.next() : searchIndex.previous();
     } else {
-      searchResult = StringSearcher.search(query, mainMsgArea.getText());
-      found = searchResult.getCurrent();
+      found = query.isForward() ? searchIndex.first() : searchIndex.last();
+    }
+    found.ifPresent(idx -> {
+      mainMsgArea.getSelectionModel().clearAndSelect(idx);
+      mainMsgArea.scrollTo(idx);
+    });
+    return new SearchQueryResult(searchIndex.getCurrentIdx(), searchIndex.getNumHits());
+  }
+
+  /**
+   * {@code query} に一致する行の索引を作り直す.
+   *
+   * @return 索引を作り直した場合 true.  {@code query} の検索語が不正な正規表現だった場合 false.
+   */
+  private boolean renewSearchIndex(SearchQuery query) {
+    if (searchIndex != null) {
+      searchIndex.dispose();
+      searchIndex = null;
     }
-    if (found != null) {
-      mainMsgArea.setScrollTop(-1); // 選択位置に自動でジャンプするために必要
-      mainMsgArea.selectRange(found.getStart(), found.getStart() + found.getLength());
+    try {
+      searchIndex = new MessageSearchIndex(
+          msgBuffer, query, BhConstants.Message.MAX_MAIN_MSG_AREA_SEARCH_HITS);
+      return true;
+    } catch (PatternSyntaxException e) {
+      return false;
     }
-    return new SearchQueryResult(searchResult.getPointer(), searchResult.size());
   }
 }
@@ -298,12 +298,14 @@ public class ViewUtil {
    * @param userOpe undo 用コマンドオブジェクト.
    */
   public static void pushReverseMoveCmd(BhNodeView view, Vec2D pos, UserOperation userOpe) {
-    userOpe.pushCmd(
+    userOpe.pushValueChangeCmd(
+        new UserOperation.Target(view, "position"),
         ope -> {
           Vec2D currentPos = view.getGeometry().getPosition();
           view.getGeometry().setTreePosition(pos.x, pos.y);
           pushReverseMoveCmd(view, currentPos, ope);
-        });
+        },
+        UserOperation.BYTES_PER_SUB_OP);
   }
 
   /**
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.workspace.control;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.PatternSyntaxException;
+import net.seapanda.bunnyhop.common.configuration.BhConstants;
+import net.seapanda.bunnyhop.node.model.BhNode;
+import net.seapanda.bunnyhop.node.view.BhNodeView;
+import net.seapanda.bunnyhop.node.view.effect.VisualEffectManager;
+import net.seapanda.bunnyhop.node.view.effect.VisualEffectType;
+import net.seapanda.bunnyhop.search.SearchQuery;
+import net.seapanda.bunnyhop.search.SearchQueryResult;
+import net.seapanda.bunnyhop.ui.control.SearchBox;
+import net.seapanda.bunnyhop.ui.view.ViewUtil;
+import net.seapanda.bunnyhop.utility.collection.ImmutableCircularList;
+import net.seapanda.bunnyhop.workspace.model.NodeSearchIndex;
+
+/**
+ * 全てのワークスペースからノードを検索して, 見つかったノードにジャンプする機能を提供するクラス.
+ *
+ * @author K.Koike
+ */
+public class NodeSearchController {
+
+  private final NodeSearchIndex index;
+  private final SearchBox searchBox;
+  private final VisualEffectManager effectManager;
+  private final Function<SearchQuery, SearchQueryResult> onSearchRequested = this::jumpToNode;
+  private ImmutableCircularList<BhNode> searchResult;
+  /** {@link #searchResult} を作成したときの {@link NodeSearchIndex} の変更回数. */
+  private long numModificationsOnSearch = -1;
+
+  /** コンストラクタ. */
+  public NodeSearchController(
+      NodeSearchIndex index, SearchBox searchBox, VisualEffectManager visualEffectManager) {
+    this.index = index;
+    this.searchBox = searchBox;
+    this.effectManager = visualEffectManager;
+  }
+
+  /** ノード検索の準備をする. */
+  public void prepareForSearch() {
+    searchBox.setOnSearchRequested(onSearchRequested);
+    searchBox.enable();
+  }
+
+  /** 全てのワークスペースから {@code query} に一致するノードを探してジャンプする. */
+  private SearchQueryResult jumpToNode(SearchQuery query) {
+    if (query.isEmpty()) {
+      return new SearchQueryResult(0, 0);
+    }
+    BhNode found;
+    if (searchBox.getNumConsecutiveSameRequests() >= 2
+        && searchResult != null
+        && numModificationsOnSearch == index.getNumModifications()) {
+      found = query.isForward() ? searchResult.getNext() : searchResult.getPrevious();
+    } else {
+      searchResult = search(query);
+      numModificationsOnSearch = index.getNumModifications();
+      found = searchResult.getCurrent();
+    }
+    if (found != null && found.isInWorkspace()) {
+      found.getView().ifPresent(this::jumpTo);
+    }
+    return new SearchQueryResult(searchResult.getPointer(), searchResult.size());
+  }
+
+  /** {@code query} に一致するノードを {@link ImmutableCircularList} に格納して返す. */
+  private ImmutableCircularList<BhNode> search(SearchQuery query) {
+    try {
+      List<BhNode> hits = index.search(query, BhConstants.Ui.MAX_NODE_SEARCH_HITS);
+      var result = new ImmutableCircularList<>(hits);
+      if (!query.isForward()) {
+        result.movePrevious(1);
+      }
+      return result;
+    } catch (PatternSyntaxException e) {
+      return new ImmutableCircularList<>();
+    }
+  }
+
+  /** {@code view} にジャンプし, ジャンプ先となった際の視覚効果をつける. */
+  private void jumpTo(BhNodeView view) {
+    ViewUtil.jump(view);
+    effectManager.disableEffects(VisualEffectType.JUMP_TARGET);
+    effectManager.setEffectEnabled(view, true, VisualEffectType.JUMP_TARGET);
+  }
+}
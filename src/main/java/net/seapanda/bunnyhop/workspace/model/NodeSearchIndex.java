@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.workspace.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import net.seapanda.bunnyhop.node.model.BhNode;
+import net.seapanda.bunnyhop.node.model.TextNode;
+import net.seapanda.bunnyhop.search.SearchQuery;
+import net.seapanda.bunnyhop.service.LogManager;
+
+/**
+ * ワークスペースセット上の全てのノードを検索するための索引.
+ *
+ * <p>各ノードのテキスト, エイリアス, ユーザ定義名, シンボル名を検索対象とする.
+ * 検索対象の文字列を 3 文字ずつ区切った部分文字列 (トライグラム) からノードへの転置索引を持ち,
+ * 正規表現でない 3 文字以上の検索ワードに対しては, この索引で絞り込んだノードだけを照合する.
+ * 索引はワークスペースセットへのノードの追加と削除, およびテキストの変更に合わせて差分更新される.
+ *
+ * @author K.Koike
+ */
+public class NodeSearchIndex {
+
+  /** トライグラムの長さ. */
+  private static final int GRAM_LEN = 3;
+
+  /** ノードとその索引情報の対応. ノードが索引に追加された順に並ぶ. */
+  private final Map<BhNode, Entry> entries = new LinkedHashMap<>();
+  /** トライグラムとそれを含むノードの対応. */
+  private final Map<String, Set<BhNode>> postings = new HashMap<>();
+  /** 次に追加されるノードの通し番号. */
+  private long nextSeq = 0;
+  /** 索引が変更された回数. */
+  private long numModifications = 0;
+
+  /** コンストラクタ. */
+  public NodeSearchIndex(WorkspaceSet wss) {
+    WorkspaceSet.CallbackRegistry cbRegistry = wss.getCallbackRegistry();
+    cbRegistry.getOnNodeAdded().add(event -> addNode(event.node()));
+    cbRegistry.getOnNodeRemoved().add(event -> removeNode(event.node()));
+  }
+
+  /** {@code node} を索引に追加する. */
+  private void addNode(BhNode node) {
+    if (!node.isInWorkspace() || entries.containsKey(node)) {
+      return;
+    }
+    var entry = new Entry(nextSeq++);
+    entries.put(node, entry);
+    if (node instanceof TextNode textNode) {
+      entry.onTextChanged = event -> reindexLineage(textNode);
+      textNode.getCallbackRegistry().getOnTextChanged().add(entry.onTextChanged);
+    }
+    index(node, entry);
+    ++numModifications;
+  }
+
+  /** {@code node} を索引から削除する. */
+  private void removeNode(BhNode node) {
+    Entry entry = entries.remove(node);
+    if (entry == null) {
+      return;
+    }
+    if (node instanceof TextNode textNode && entry.onTextChanged != null) {
+      textNode.getCallbackRegistry().getOnTextChanged().remove(entry.onTextChanged);
+    }
+    unindex(node, entry);
+    ++numModifications;
+  }
+
+  /**
+   * {@code node} とその先祖ノードの索引を作り直す.
+   *
+   * <p>エイリアスは子孫ノードのテキストから作られることがあるので, 先祖ノードも対象とする.
+   */
+  private void reindexLineage(BhNode node) {
+    for (BhNode current = node; current != null; current = current.findParentNode()) {
+      Entry entry = entries.get(current);
+      if (entry != null) {
+        unindex(current, entry);
+        index(current, entry);
+      }
+    }
+    ++numModifications;
+  }
+
+  /** {@code node} の検索対象文字列を {@code entry} に格納し, 転置索引に登録する. */
+  private void index(BhNode node, Entry entry) {
+    entry.text = getSearchableText(node);
+    entry.grams = toTrigrams(entry.text);
+    for (String gram : entry.grams) {
+      postings.computeIfAbsent(gram, key -> new HashSet<>()).add(node);
+    }
+  }
+
+  /** {@code node} を転置索引から取り除く. */
+  private void unindex(BhNode node, Entry entry) {
+    for (String gram : entry.grams) {
+      Set<BhNode> nodes = postings.get(gram);
+      if (nodes != null) {
+        nodes.remove(node);
+        if (nodes.isEmpty()) {
+          postings.remove(gram);
+        }
+      }
+    }
+    entry.grams = Set.of();
+  }
+
+  /**
+   * {@code query} に一致するノードを探す.
+   *
+   * @param query 検索クエリ
+   * @param maxHits 取得する検索結果の上限
+   * @return {@code query} に一致したノードのリスト. 索引に追加された順に並ぶ.
+   * @throws PatternSyntaxException {@code query} の検索ワードが不正な正規表現の場合
+   */
+  public List<BhNode> search(SearchQuery query, int maxHits) throws PatternSyntaxException {
+    long begin = System.nanoTime();
+    Pattern pattern = query.getPattern();
+    Set<BhNode> candidates = findCandidates(query);
+    var hits = new ArrayList<BhNode>();
+    if (candidates == null) {
+      for (Map.Entry<BhNode, Entry> entry : entries.entrySet()) {
+        if (hits.size() >= maxHits) {
+          break;
+        }
+        if (pattern.matcher(entry.getValue().text).find()) {
+          hits.add(entry.getKey());
+        }
+      }
+    } else {
+      candidates.stream()
+          .filter(node -> pattern.matcher(entries.get(node).text).find())
+          .sorted(Comparator.comparingLong(node -> entries.get(node).seq))
+          .limit(maxHits)
+          .forEach(hits::add);
+    }
+    long elapsed = (System.nanoTime() - begin) / 1000;
+    LogManager.logger().info("Node search: %d hits in %d us among %d nodes (%s)".formatted(
+        hits.size(), elapsed, entries.size(), candidates == null ? "scan" : "index"));
+    return hits;
+  }
+
+  /**
+   * 転置索引を使って {@code query} に一致する可能性のあるノードを絞り込む.
+   *
+   * @return {@code query} に一致する可能性のあるノード. 絞り込めない場合は null.
+   */
+  private Set<BhNode> findCandidates(SearchQuery query) {
+    if (query.isRegex() || query.getWord().length() < GRAM_LEN) {
+      return null;
+    }
+    List<Set<BhNode>> lists = new ArrayList<>();
+    for (String gram : toTrigrams(query.getWord())) {
+      Set<BhNode> nodes = postings.get(gram);
+      if (nodes == null) {
+        return new HashSet<>();
+      }
+      lists.add(nodes);
+    }
+    lists.sort(Comparator.comparingInt(Set::size));
+    var candidates = new HashSet<>(lists.getFirst());
+    for (int i = 1; i < lists.size() && !candidates.isEmpty(); ++i) {
+      candidates.retainAll(lists.get(i));
+    }
+    return candidates;
+  }
+
+  /** 索引に登録されているノードの数を返す. */
+  public int getNumNodes() {
+    return entries.size();
+  }
+
+  /**
+   * 索引が変更された回数を返す.
+   *
+   * <p>この値が変わっていなければ, 以前の検索結果はそのまま使える.
+   */
+  public long getNumModifications() {
+    return numModifications;
+  }
+
+  /** {@code node} の検索対象となる文字列を作成する. */
+  private static String getSearchableText(BhNode node) {
+    var builder = new StringBuilder();
+    if (node instanceof TextNode textNode) {
+      builder.append(textNode.getText()).append('\n');
+    }
+    builder.append(node.getAlias()).append('\n');
+    node.getUserDefinedName().ifPresent(name -> builder.append(name).append('\n'));
+    builder.append(node.getSymbolName());
+    return builder.toString();
+  }
+
+  /**
+   * {@code text} に含まれるトライグラムを返す.
+   *
+   * <p>大文字と小文字を区別しない検索にも使えるように, 1 文字ずつ小文字に変換してから区切る.
+   * 文字単位で変換するので, 変換前と変換後で文字の位置は変わらない.
+   */
+  private static Set<String> toTrigrams(String text) {
+    char[] folded = text.toCharArray();
+    for (int i = 0; i < folded.length; ++i) {
+      folded[i] = Character.toLowerCase(folded[i]);
+    }
+    var grams = new HashSet<String>();
+    for (int i = 0; i + GRAM_LEN <= folded.length; ++i) {
+      grams.add(new String(folded, i, GRAM_LEN));
+    }
+    return grams;
+  }
+
+  /** 索引に登録したノードの情報. */
+  private static class Entry {
+    /** ノードが索引に追加された順番. */
+    final long seq;
+    /** 検索対象の文字列. */
+    String text = "";
+    /** {@link #text} に含まれるトライグラム. */
+    Set<String> grams = Set.of();
+    /** テキストが変更されたときに索引を更新するイベントハンドラ. */
+    Consumer<TextNode.TextChangedEvent> onTextChanged;
+
+    Entry(long seq) {
+      this.seq = seq;
+    }
+  }
+}
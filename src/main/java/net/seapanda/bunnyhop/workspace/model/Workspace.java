@@ -28,6 +28,7 @@ import net.seapanda.bunnyhop.service.undo.UserOperation;
 import net.seapanda.bunnyhop.utility.event.ConsumerInvoker;
 import net.seapanda.bunnyhop.utility.event.SimpleConsumerInvoker;
 import net.seapanda.bunnyhop.workspace.view.WorkspaceView;
+import org.apache.commons.lang3.mutable.MutableInt;
 
 /**
  * ワークスペースを表すクラス.
@@ -140,10 +141,17 @@ public class Workspace implements Serializable {
     if (shouldRemoveRoot) {
       rootNodes.remove(root);
     }
+    var numNodes = new MutableInt(0);
     CallbackInvoker.CallbackRegistry callbacks = CallbackInvoker.newCallbackRegistry();
-    callbacks.setForAllNodes(bhNode -> removeNode(bhNode, userOpe));
+    callbacks.setForAllNodes(bhNode -> {
+      removeNode(bhNode, userOpe);
+      numNodes.increment();
+    });
     CallbackInvoker.invoke(callbacks, root);
-    userOpe.pushCmd(ope -> addNodeTree(root, ope));
+    // 削除したノードは, ワークスペースから取り除かれた後も undo 用のコマンドが保持し続ける
+    userOpe.pushCmd(
+        ope -> addNodeTree(root, ope),
+        UserOperation.BYTES_PER_SUB_OP + numNodes.longValue() * UserOperation.BYTES_PER_NODE);
     invokeOnNodeRemoved(root, shouldRemoveRoot, userOpe);
   }
 
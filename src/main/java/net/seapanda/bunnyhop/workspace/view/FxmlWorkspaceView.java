@@ -19,12 +19,15 @@ package net.seapanda.bunnyhop.workspace.view;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.SequencedSet;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -33,6 +36,7 @@ import javafx.collections.ListChangeListener;
 import javafx.event.Event;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.BoundingBox;
 import javafx.geometry.Bounds;
 import javafx.scene.Node;
 import javafx.scene.control.Label;
@@ -53,6 +57,7 @@ import net.seapanda.bunnyhop.common.configuration.BhConstants;
 import net.seapanda.bunnyhop.common.configuration.BhSettings;
 import net.seapanda.bunnyhop.node.model.BhNode;
 import net.seapanda.bunnyhop.node.view.BhNodeView;
+import net.seapanda.bunnyhop.service.LogManager;
 import net.seapanda.bunnyhop.service.accesscontrol.TransactionContext;
 import net.seapanda.bunnyhop.service.accesscontrol.TransactionNotificationService;
 import net.seapanda.bunnyhop.ui.view.Rem;
@@ -79,6 +84,10 @@ public class FxmlWorkspaceView extends Tab implements WorkspaceView {
       MAX_Z_POS_OF_NODE_VIEW_TREES + Z_POS_INTERVAL_BETWEEN_NODE_VIEW_TREES;
   private static final double Z_POS_OF_NODE_SHIFTER =
       MAX_Z_POS_OF_NODE_VIEW_TREES + Z_POS_INTERVAL_BETWEEN_NODE_VIEW_TREES - 1;
+  /** 可視領域外のノードビューを非表示にする処理の統計をログに出力する間隔 (回). */
+  private static final int CULLING_STATS_INTERVAL = 256;
+  /** 初期サイズのワークスペースビューを縦と横にそれぞれいくつのマス目に分けてグリッド線を描くか. */
+  private static final int NUM_GRID_CELLS = 1 << BhConstants.Ui.NUM_DIV_OF_QTREE_SPACE;
 
   /** 操作対象のビュー. */
   @FXML private ScrollPane wsScrollPane;
@@ -97,6 +106,8 @@ public class FxmlWorkspaceView extends Tab implements WorkspaceView {
 
   private final Workspace workspace;
   private final Vec2D minPaneSize;
+  /** グリッド線で区切られるマス目の大きさ.  ワークスペースビューの大きさが変わっても一定. */
+  private final Vec2D gridCellSize;
   /**
    * このワークスペースビューにあるルート {@link BhNodeView} 一式.
    * 後ろの要素ほど Z 位置が手前になることを保証しなければならない.
@@ -104,12 +115,29 @@ public class FxmlWorkspaceView extends Tab implements WorkspaceView {
   private final SequencedSet<BhNodeView> rootNodeViews = new LinkedHashSet<>();
   /** このワークスペースビューが保持する {@link BhNodeView} のセット. */
   private final Set<BhNodeView> nodeViews = new HashSet<>();
+  /** ルート {@link BhNodeView} 以下のノードツリーの右端と下端の位置を管理するオブジェクト. */
+  private final NodeTreeExtents treeExtents = new NodeTreeExtents();
+  /** 可視領域の近くにあるため表示している {@link BhNodeView} のセット. */
+  private final Set<BhNodeView> shownNodeViews = new HashSet<>();
+  /** 可視領域から離れているため非表示にした {@link BhNodeView} のセット. */
+  private final Set<BhNodeView> culledNodeViews = new HashSet<>();
+  /**
+   * 平行移動中のノードツリーのルート.
+   * 子孫のノードビューの 4 分木空間上の位置は移動前のままなので, 移動が確定するまでツリー全体をカリングの対象外にする.
+   */
+  private final Set<BhNodeView> translatedRoots = new HashSet<>();
+  /** ノードビューを表示する範囲.  null の場合, 全てのノードビューを表示する. */
+  private Bounds cullingBounds;
+  /** 可視領域外のノードビューを非表示にする処理の統計. */
+  private final CullingStats cullingStats = new CullingStats();
   /** ノードの本体部分の重なり判定に使う4 分木管理クラス. */
-  private QuadTreeSpace qtSpaceForBody;
+  private final QuadTreeSpace qtSpaceForBody;
   /** ノードのコネクタ部分の重なり判定に使う4 分木管理クラス. */
-  private QuadTreeSpace qtSpaceForConnector;
+  private final QuadTreeSpace qtSpaceForConnector;
   /**ワークスペースビューの拡大/縮小の段階. */
   private int zoomLevel = 0;
+  /** ノードビューを簡略表示している場合 true. */
+  private boolean isLowDetail = false;
   /**ワークスペースビューの大きさの段階. */
   private int workspaceSizeLevel = 0;
   /** 最前面の Z 位置. */
@@ -135,6 +163,8 @@ public class FxmlWorkspaceView extends Tab implements WorkspaceView {
     Objects.requireNonNull(workspace);
     this.workspace = workspace;
     minPaneSize = new Vec2D(size);
+    gridCellSize = new Vec2D(
+        Math.max(minPaneSize.x / NUM_GRID_CELLS, 1), Math.max(minPaneSize.y / NUM_GRID_CELLS, 1));
     this.notifService = service;
     configureGuiComponents(filePath);
     setEventHandlers();
@@ -142,7 +172,7 @@ public class FxmlWorkspaceView extends Tab implements WorkspaceView {
         new QuadTreeSpace(BhConstants.Ui.NUM_DIV_OF_QTREE_SPACE, minPaneSize.x, minPaneSize.y);
     qtSpaceForConnector =
         new QuadTreeSpace(BhConstants.Ui.NUM_DIV_OF_QTREE_SPACE, minPaneSize.x, minPaneSize.y);
-    drawGridLines(minPaneSize.x, minPaneSize.y, qtSpaceForBody.getNumPartitions());
+    drawGridLines(minPaneSize.x, minPaneSize.y);
     rectSelTool.setViewOrder(Z_POS_OF_RECT_SEL_TOOL);
   }
 
@@ -165,6 +195,11 @@ public class FxmlWorkspaceView extends Tab implements WorkspaceView {
 
   private void setEventHandlers() {
     wsScrollPane.addEventFilter(ScrollEvent.ANY, this::onScroll);
+    wsScrollPane.hvalueProperty().addListener((obs, oldVal, newVal) -> updateCulling());
+    wsScrollPane.vvalueProperty().addListener((obs, oldVal, newVal) -> updateCulling());
+    wsScrollPane.viewportBoundsProperty().addListener((obs, oldVal, newVal) -> updateCulling());
+    wsWrapper.widthProperty().addListener((obs, oldVal, newVal) -> updateCulling());
+    wsWrapper.heightProperty().addListener((obs, oldVal, newVal) -> updateCulling());
     setOnCloseRequest(cbRegistry::onCloseRequested);
     setOnClosed(cbRegistry::onClosed);
     workspace.getCallbackRegistry().getOnNameChanged().add(
@@ -298,6 +333,7 @@ public class FxmlWorkspaceView extends Tab implements WorkspaceView {
     rootNodeViews.remove(view);
     rootNodeViews.addLast(view);
     view.getArrangement().arrange();
+    updateTreeExtent(view);
     if (MAX_Z_POS_OF_NODE_VIEW_TREES < frontZpos) {
       updateZposOfTrees();
     } else {
@@ -309,6 +345,24 @@ public class FxmlWorkspaceView extends Tab implements WorkspaceView {
   @Override
   public void specifyNodeViewAsNotRoot(BhNodeView view) {
     rootNodeViews.remove(view);
+    if (treeExtents.remove(view)) {
+      recalculateScrollableRange();
+    }
+  }
+
+  /**
+   * ルートノードビュー {@code root} 以下のノードツリーの右端と下端の位置を更新する.
+   * 全ノードツリーの右端と下端の最大値が変わった場合, スクロール可能な範囲を再計算する.
+   */
+  private void updateTreeExtent(BhNodeView root) {
+    if (!rootNodeViews.contains(root)) {
+      return;
+    }
+    Vec2D size = root.getGeometry().getNodeTreeSize(false);
+    Vec2D pos = root.getGeometry().getPosition();
+    if (treeExtents.put(root, pos.x + size.x, pos.y + size.y)) {
+      recalculateScrollableRange();
+    }
   }
 
   @Override
@@ -317,10 +371,13 @@ public class FxmlWorkspaceView extends Tab implements WorkspaceView {
       return;
     }
     nodeViews.add(view);
+    shownNodeViews.add(view);
     view.getTreeControl().addToTree(wsPane);
     view.getCallbackRegistry().getOnMoved().add(cbRegistry.onNodeMoved);
     view.getCallbackRegistry().getOnSizeChanged().add(cbRegistry.onNodeSizeChanged);
     view.getQuadTreeSpaceRegistration().addToQtSpace(qtSpaceForBody, qtSpaceForConnector);
+    view.getVisual().setLowDetail(isLowDetail);
+    updateCulling(view);
   }
 
   @Override
@@ -330,12 +387,131 @@ public class FxmlWorkspaceView extends Tab implements WorkspaceView {
     }
     specifyNodeViewAsNotRoot(view);
     nodeViews.remove(view);
+    translatedRoots.remove(view);
+    showNodeView(view);
+    shownNodeViews.remove(view);
+    view.getVisual().setLowDetail(false);
     view.getTreeControl().removeFromTree();
     view.getCallbackRegistry().getOnMoved().remove(cbRegistry.onNodeMoved);
     view.getCallbackRegistry().getOnSizeChanged().remove(cbRegistry.onNodeSizeChanged);
     view.getQuadTreeSpaceRegistration().removeFromQtSpace();
   }
 
+  /**
+   * 可視領域から離れたノードビューを非表示にし, 可視領域の近くにあるノードビューを表示する.
+   *
+   * <p>表示するノードビューは, ボディ部分の 4 分木空間から可視領域に余白を加えた範囲と重なるものを探して決める.
+   * 処理量は表示中と表示対象のノードビューの数に比例し, ワークスペース上の全ノードビューの数には依存しない.
+   */
+  private void updateCulling() {
+    long begin = System.nanoTime();
+    Bounds bounds = BhSettings.Ui.cullNodeViewsOutsideViewport ? getCullingBounds() : null;
+    if (bounds == null) {
+      cullingBounds = null;
+      new ArrayList<>(culledNodeViews).forEach(this::showNodeView);
+      return;
+    }
+    cullingBounds = bounds;
+    Set<BhNodeView> toShow = new HashSet<>(findOverlappedNodeViews(
+        bounds, true, OverlapOption.INTERSECT));
+    toShow.retainAll(nodeViews);
+    List<BhNodeView> toCull = shownNodeViews.stream()
+        .filter(view -> !toShow.contains(view) && !isInTranslatedTree(view))
+        .toList();
+    toCull.forEach(this::cullNodeView);
+    toShow.forEach(this::showNodeView);
+    cullingStats.add(System.nanoTime() - begin);
+  }
+
+  /** {@code view} が可視領域の近くにあれば表示し, そうでなければ非表示にする. */
+  private void updateCulling(BhNodeView view) {
+    if (cullingBounds == null || !nodeViews.contains(view) || isInTranslatedTree(view)) {
+      return;
+    }
+    if (cullingBounds.intersects(view.getGeometry().getBodyBounds())) {
+      showNodeView(view);
+    } else {
+      cullNodeView(view);
+    }
+  }
+
+  /**
+   * {@code root} 以下のノードツリーが平行移動を始めた場合, そのツリーの非表示のノードビューを全て表示する.
+   * 平行移動が確定した場合は, そのツリーを再びカリングの対象にする.
+   * 確定時には, ツリーの全てのノードビューの位置が変わったときのイベントハンドラが呼ばれるので, そこで表示状態を決め直す.
+   */
+  private void updateTranslatedTrees(BhNodeView root) {
+    if (!root.getGeometry().isTranslating()) {
+      translatedRoots.remove(root);
+      return;
+    }
+    if (!nodeViews.contains(root) || !translatedRoots.add(root)) {
+      return;
+    }
+    culledNodeViews.stream()
+        .filter(view -> view.getTreeControl().getRootView() == root)
+        .toList()
+        .forEach(this::showNodeView);
+  }
+
+  /** {@code view} が平行移動中のノードツリーに含まれるかどうか調べる. */
+  private boolean isInTranslatedTree(BhNodeView view) {
+    if (translatedRoots.isEmpty()) {
+      return false;
+    }
+    BhNodeView root = view.getTreeControl().getRootView();
+    return translatedRoots.contains(root) && root.getGeometry().isTranslating();
+  }
+
+  /** {@link #updateCulling} で非表示にした {@code view} を表示する. */
+  private void showNodeView(BhNodeView view) {
+    if (culledNodeViews.remove(view)) {
+      view.getVisual().setCulled(false);
+      shownNodeViews.add(view);
+    }
+  }
+
+  /** {@code view} を非表示にする. */
+  private void cullNodeView(BhNodeView view) {
+    if (shownNodeViews.remove(view)) {
+      view.getVisual().setCulled(true);
+      culledNodeViews.add(view);
+    }
+  }
+
+  /**
+   * ノードビューを表示する範囲をワークスペース上の座標で返す.
+   *
+   * @return ノードビューを表示する範囲.  可視領域が決まっていない場合は null.
+   */
+  private Bounds getCullingBounds() {
+    if (wsScrollPane.getWidth() <= 0 || wsScrollPane.getHeight() <= 0) {
+      return null;
+    }
+    Bounds viewport = getViewportBounds();
+    double marginX = viewport.getWidth() * BhConstants.Ui.VIEWPORT_CULLING_MARGIN_RATE;
+    double marginY = viewport.getHeight() * BhConstants.Ui.VIEWPORT_CULLING_MARGIN_RATE;
+    return new BoundingBox(
+        viewport.getMinX() - marginX,
+        viewport.getMinY() - marginY,
+        viewport.getWidth() + 2 * marginX,
+        viewport.getHeight() + 2 * marginY);
+  }
+
+  /** 現在の可視領域をワークスペース上の座標で返す. */
+  private Bounds getViewportBounds() {
+    var viewOriginAtMaxScroll = new Vec2D(
+        Math.max(0, wsWrapper.getWidth() - wsScrollPane.getWidth()),
+        Math.max(0, wsWrapper.getHeight() - wsScrollPane.getHeight()));
+    double magX = wsPane.getTransforms().getFirst().getMxx();
+    double magY = wsPane.getTransforms().getFirst().getMyy();
+    return new BoundingBox(
+        viewOriginAtMaxScroll.x * wsScrollPane.getHvalue() / magX,
+        viewOriginAtMaxScroll.y * wsScrollPane.getVvalue() / magY,
+        wsScrollPane.getWidth() / magX,
+        wsScrollPane.getHeight() / magY);
+  }
+
   /** このワークスペースの全てのノドビューの Z 位置を更新する. */
   private void updateZposOfTrees() {
     frontZpos = 0;
@@ -391,15 +567,15 @@ public class FxmlWorkspaceView extends Tab implements WorkspaceView {
 
     wsPane.setMinSize(newWsWidth, newWsHeight);
     wsPane.setMaxSize(newWsWidth, newWsHeight);
-    qtSpaceForBody = new QuadTreeSpace(
-        qtSpaceForBody, BhConstants.Ui.NUM_DIV_OF_QTREE_SPACE, newWsWidth, newWsHeight);
-    qtSpaceForConnector = new QuadTreeSpace(
-        qtSpaceForConnector, BhConstants.Ui.NUM_DIV_OF_QTREE_SPACE, newWsWidth, newWsHeight);
-    drawGridLines(newWsWidth, newWsHeight, qtSpaceForBody.getNumPartitions());
+    qtSpaceForBody.setSize(newWsWidth, newWsHeight);
+    qtSpaceForConnector.setSize(newWsWidth, newWsHeight);
+    drawGridLines(newWsWidth, newWsHeight);
     recalculateScrollableRange();
+    updateCulling();
   }
 
-  private void drawGridLines(double width, double height, int numDiv) {
+  /** {@link #gridCellSize} の間隔で, 幅 {@code width}, 高さ {@code height} の領域にグリッド線を描く. */
+  private void drawGridLines(double width, double height) {
     ArrayList<Line> removedList = new ArrayList<>();
     for (Node content : wsPane.getChildren()) {
       if (content instanceof Line) {
@@ -407,12 +583,12 @@ public class FxmlWorkspaceView extends Tab implements WorkspaceView {
       }
     }
     removedList.forEach(line -> wsPane.getChildren().remove(line));
-    for (int i = 0; i < numDiv; ++i) {
-      int x = (int) ((width / numDiv) * i);
+    for (int i = 0; gridCellSize.x * i < width; ++i) {
+      int x = (int) (gridCellSize.x * i);
       wsPane.getChildren().addFirst(new Line(x, 0, x, height));
     }
-    for (int i = 0; i < numDiv; ++i) {
-      int y = (int) ((height / numDiv) * i);
+    for (int i = 0; gridCellSize.y * i < height; ++i) {
+      int y = (int) (gridCellSize.y * i);
       wsPane.getChildren().addFirst(new Line(0, y, width, y));
     }
   }
@@ -441,29 +617,44 @@ public class FxmlWorkspaceView extends Tab implements WorkspaceView {
     Scale scale = new Scale(mag, mag);
     wsPane.getTransforms().set(0, scale);
     recalculateScrollableRange();
+    updateCulling();
+    setLowDetail(zoomLevel <= BhConstants.Ui.MAX_LOW_DETAIL_ZOOM_LEVEL);
     BhSettings.Ui.currentWorkspaceZoomLevel = zoomLevel;
   }
 
-  /** スクロール可能な範囲を再計算する. */
+  /** このワークスペースビューのノードビューを簡略表示するかどうかを切り替える. */
+  private void setLowDetail(boolean lowDetail) {
+    if (isLowDetail == lowDetail) {
+      return;
+    }
+    long begin = System.nanoTime();
+    isLowDetail = lowDetail;
+    nodeViews.forEach(view -> view.getVisual().setLowDetail(lowDetail));
+    LogManager.logger().info("Low detail mode (%s): %s for %d node views in %.3f ms".formatted(
+        workspace.getName(),
+        lowDetail ? "on" : "off",
+        nodeViews.size(),
+        (System.nanoTime() - begin) / 1e6));
+  }
+
+  /**
+   * スクロール可能な範囲を再計算する.
+   *
+   * <p>全ノードツリーの右端と下端の最大値は {@link #treeExtents} が保持しているので,
+   * 処理量はルートノードビューの数に依存しない.
+   */
   private void recalculateScrollableRange() {
     double magX = wsPane.getTransforms().getFirst().getMxx();
     double magY = wsPane.getTransforms().getFirst().getMyy();
     // 全ノードの内の右端の最大の位置と下端の最大の位置
-    Vec2D maxLowerRightPosOfNodes = rootNodeViews.stream()
-        .map(nodeView -> {
-          Vec2D nodeSize = nodeView.getGeometry().getNodeTreeSize(false);
-          Vec2D nodePos = nodeView.getGeometry().getPosition();
-          return new Vec2D(
-            magX * (nodePos.x + nodeSize.x) + BhConstants.Ui.NODE_SCALE * 20,
-            magY * (nodePos.y + nodeSize.y) + BhConstants.Ui.NODE_SCALE * 20);
-        })
-        .reduce(
-          new Vec2D(0.0, 0.0),
-          (accum, pos) -> new Vec2D(Math.max(accum.x, pos.x), Math.max(accum.y, pos.y)));
-
-    Vec2D zoomedWsPaneSize = new Vec2D(wsPane.getMinWidth() * magX, wsPane.getMinHeight() * magY);
-    double scrollableHorizontalRange = Math.max(maxLowerRightPosOfNodes.x, zoomedWsPaneSize.x);
-    double scrollableVerticalRange = Math.max(maxLowerRightPosOfNodes.y, zoomedWsPaneSize.y);
+    double maxRight = 0.0;
+    double maxBottom = 0.0;
+    if (!treeExtents.isEmpty()) {
+      maxRight = magX * treeExtents.getMaxRight() + BhConstants.Ui.NODE_SCALE * 20;
+      maxBottom = magY * treeExtents.getMaxBottom() + BhConstants.Ui.NODE_SCALE * 20;
+    }
+    double scrollableHorizontalRange = Math.max(maxRight, wsPane.getMinWidth() * magX);
+    double scrollableVerticalRange = Math.max(maxBottom, wsPane.getMinHeight() * magY);
     wsWrapper.setPrefSize(scrollableHorizontalRange, scrollableVerticalRange);
   }
 
@@ -554,19 +745,9 @@ public class FxmlWorkspaceView extends Tab implements WorkspaceView {
 
   @Override
   public boolean isPosInViewport(Vec2D pos) {
-    var viewOriginAtMaxScroll = new Vec2D(
-        Math.max(0, wsWrapper.getWidth() - wsScrollPane.getWidth()),
-        Math.max(0, wsWrapper.getHeight() - wsScrollPane.getHeight()));
-
-    double visibleLeft = viewOriginAtMaxScroll.x * wsScrollPane.getHvalue();
-    double visibleTop = viewOriginAtMaxScroll.y * wsScrollPane.getVvalue();
-    double visibleRight = visibleLeft + wsScrollPane.getWidth();
-    double visibleBottom = visibleTop + wsScrollPane.getHeight();
-    double magX = wsPane.getTransforms().getFirst().getMxx();
-    double magY = wsPane.getTransforms().getFirst().getMyy();
-    var magPos = new Vec2D(pos.x * magX, pos.y * magY);
-    return visibleLeft <= magPos.x && magPos.x <= visibleRight
-        && visibleTop <= magPos.y && magPos.y <= visibleBottom;
+    Bounds viewport = getViewportBounds();
+    return viewport.getMinX() <= pos.x && pos.x <= viewport.getMaxX()
+        && viewport.getMinY() <= pos.y && pos.y <= viewport.getMaxY();
   }
 
   @Override
@@ -697,11 +878,16 @@ public class FxmlWorkspaceView extends Tab implements WorkspaceView {
 
     /** 関連するワークスペースビュー上で {@link BhNodeView} が移動したときのイベントハンドラを呼び出す. */
     private void onNodeMoved(BhNodeView.MoveEvent event) {
+      updateTranslatedTrees(event.view());
+      updateCulling(event.view());
+      updateTreeExtent(event.view());
       onNodeMovedInvoker.invoke(new NodeMoveEvent(FxmlWorkspaceView.this, event.view()));
     }
 
     /** 関連するワークスペースビュー上で {@link BhNodeView} が移動したときのイベントハンドラを呼び出す. */
     private void onNodeSizeChanged(BhNodeView.SizeChangedEvent event) {
+      updateCulling(event.view());
+      updateTreeExtent(event.view().getTreeControl().getRootView());
       onNodeSizeChangedInvoke.invoke(
           new NodeSizeChangedEvent(FxmlWorkspaceView.this, event.view()));
     }
@@ -718,4 +904,108 @@ public class FxmlWorkspaceView extends Tab implements WorkspaceView {
       }
     }    
   }
+
+  /** 可視領域外のノードビューを非表示にする処理の時間の統計を取るクラス. */
+  private class CullingStats {
+    private int numPasses = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    /** 1 回分の処理時間 {@code nanos} を統計に加え, 一定回数ごとにログに出力する. */
+    void add(long nanos) {
+      ++numPasses;
+      totalNanos += nanos;
+      maxNanos = Math.max(maxNanos, nanos);
+      if (numPasses < CULLING_STATS_INTERVAL) {
+        return;
+      }
+      LogManager.logger().info(
+          ("Viewport culling (%s): %d passes, %.3f ms/pass on average, %.3f ms at most, "
+              + "%d of %d node views shown").formatted(
+              workspace.getName(),
+              numPasses,
+              totalNanos / 1e6 / numPasses,
+              maxNanos / 1e6,
+              shownNodeViews.size(),
+              nodeViews.size()));
+      numPasses = 0;
+      totalNanos = 0;
+      maxNanos = 0;
+    }
+  }
+
+  /**
+   * ルートノードビューごとに, その下のノードツリーの右端と下端の位置を保持するクラス.
+   *
+   * <p>右端と下端の位置をそれぞれ順序付きの多重集合で管理し,
+   * 1 つのノードツリーの更新と最大値の取得を O(log n) で行う.
+   */
+  private static class NodeTreeExtents {
+    /** ルートノードビューとその下のノードツリーの右端と下端の位置のマップ. */
+    private final Map<BhNodeView, Vec2D> rootToExtent = new HashMap<>();
+    /** ノードツリーの右端の位置とその位置にあるノードツリーの数のマップ. */
+    private final TreeMap<Double, Integer> rights = new TreeMap<>();
+    /** ノードツリーの下端の位置とその位置にあるノードツリーの数のマップ. */
+    private final TreeMap<Double, Integer> bottoms = new TreeMap<>();
+
+    /**
+     * {@code root} 以下のノードツリーの右端と下端の位置を設定する.
+     *
+     * @return 全ノードツリーの右端か下端の最大値が変わった場合 true
+     */
+    boolean put(BhNodeView root, double right, double bottom) {
+      Vec2D extent = rootToExtent.get(root);
+      if (extent != null && extent.x == right && extent.y == bottom) {
+        return false;
+      }
+      Vec2D oldMax = getMax();
+      if (extent != null) {
+        decrement(rights, extent.x);
+        decrement(bottoms, extent.y);
+      }
+      rootToExtent.put(root, new Vec2D(right, bottom));
+      rights.merge(right, 1, Integer::sum);
+      bottoms.merge(bottom, 1, Integer::sum);
+      return !Objects.equals(getMax(), oldMax);
+    }
+
+    /**
+     * {@code root} 以下のノードツリーの右端と下端の位置を削除する.
+     *
+     * @return 全ノードツリーの右端か下端の最大値が変わった場合 true
+     */
+    boolean remove(BhNodeView root) {
+      if (!rootToExtent.containsKey(root)) {
+        return false;
+      }
+      Vec2D oldMax = getMax();
+      Vec2D extent = rootToExtent.remove(root);
+      decrement(rights, extent.x);
+      decrement(bottoms, extent.y);
+      return !Objects.equals(getMax(), oldMax);
+    }
+
+    /** 位置を 1 つも保持していない場合 true を返す. */
+    boolean isEmpty() {
+      return rootToExtent.isEmpty();
+    }
+
+    /** 全ノードツリーの右端の最大値を返す. */
+    double getMaxRight() {
+      return rights.lastKey();
+    }
+
+    /** 全ノードツリーの下端の最大値を返す. */
+    double getMaxBottom() {
+      return bottoms.lastKey();
+    }
+
+    private Vec2D getMax() {
+      return isEmpty() ? null : new Vec2D(getMaxRight(), getMaxBottom());
+    }
+
+    private static void decrement(TreeMap<Double, Integer> counts, double key) {
+      counts.computeIfPresent(key, (k, num) -> (num <= 1) ? null : num - 1);
+    }
+  }
 }
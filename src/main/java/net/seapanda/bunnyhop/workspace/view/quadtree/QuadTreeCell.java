@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.workspace.view.quadtree;
+
+/**
+ * 四分木空間の分割された 1 つの空間.
+ *
+ * <p>子空間は, そこにアイテムが登録されたときに作成され, その空間以下のアイテムが無くなったときに破棄される.
+ *
+ * @author K.Koike
+ */
+class QuadTreeCell {
+
+  /** 空間の階層.  最も小さい空間が 0 で, 1 つ上の階層の空間は縦横がそれぞれ 2 倍の大きさになる. */
+  final int level;
+  /** この階層における空間の X 方向の位置. */
+  final int posX;
+  /** この階層における空間の Y 方向の位置. */
+  final int posY;
+  /** この空間に登録されたアイテムのリストの先頭. */
+  final QuadTreeItem head = new QuadTreeItem();
+  /** 親空間.  ルート空間の場合 null. */
+  QuadTreeCell parent;
+  /** 子空間.  作成されていない子空間の要素は null. */
+  final QuadTreeCell[] children = new QuadTreeCell[4];
+  /** この空間とその下位空間に登録されたアイテムの数. */
+  int numItems = 0;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param level 空間の階層
+   * @param posX この階層における空間の X 方向の位置
+   * @param posY この階層における空間の Y 方向の位置
+   */
+  QuadTreeCell(int level, int posX, int posY) {
+    this.level = level;
+    this.posX = posX;
+    this.posY = posY;
+  }
+
+  /** この空間が, 階層 {@code level} の ({@code posX}, {@code posY}) の空間である場合 true を返す. */
+  boolean isAt(int level, int posX, int posY) {
+    return this.level == level && this.posX == posX && this.posY == posY;
+  }
+
+  /**
+   * 階層 {@code level} の ({@code posX}, {@code posY}) の位置にある子孫空間を返す.
+   * 途中の空間が存在しない場合は作成する.
+   */
+  QuadTreeCell getOrCreateDescendant(int level, int posX, int posY) {
+    QuadTreeCell cell = this;
+    while (cell.level > level) {
+      int shift = cell.level - 1 - level;
+      int idx = ((posX >>> shift) & 1) | (((posY >>> shift) & 1) << 1);
+      if (cell.children[idx] == null) {
+        var child = new QuadTreeCell(
+            cell.level - 1, (cell.posX << 1) | (idx & 1), (cell.posY << 1) | (idx >>> 1));
+        child.parent = cell;
+        cell.children[idx] = child;
+      }
+      cell = cell.children[idx];
+    }
+    return cell;
+  }
+
+  /** この空間に {@code item} を登録する. */
+  void add(QuadTreeItem item) {
+    head.connectToNext(item);
+    item.setCell(this);
+    for (QuadTreeCell cell = this; cell != null; cell = cell.parent) {
+      ++cell.numItems;
+    }
+  }
+
+  /**
+   * {@code item} を登録されている空間から取り除く.
+   * 取り除いた結果, アイテムを持たなくなった空間は破棄する.
+   */
+  static void remove(QuadTreeItem item) {
+    QuadTreeCell removed = item.getCell();
+    item.remove();
+    item.setCell(null);
+    if (removed == null) {
+      return;
+    }
+    for (QuadTreeCell cell = removed; cell != null; cell = cell.parent) {
+      --cell.numItems;
+    }
+    for (QuadTreeCell cell = removed; cell.numItems == 0 && cell.parent != null; ) {
+      QuadTreeCell parent = cell.parent;
+      parent.children[(cell.posX & 1) | ((cell.posY & 1) << 1)] = null;
+      cell.parent = null;
+      cell = parent;
+    }
+  }
+}
@@ -29,8 +29,8 @@ import net.seapanda.bunnyhop.utility.math.Vec2D;
  */
 public class QuadTreeItem extends ListNode<QuadTreeItem> {
 
-  /** 現在属している 4 分木ノードのインデックス. */
-  private int currentIdxInQuadTree = -1;
+  /** 現在属している四分木空間の分割された空間. */
+  private QuadTreeCell cell;
   /** このアイテムの矩形領域の左上座標. */
   private final Vec2D upperLeftPos;
   /** このアイテムの矩形領域の右下座標. */
@@ -149,22 +149,18 @@ public class QuadTreeItem extends ListNode<QuadTreeItem> {
     return lowerRightPos.y - upperLeftPos.y;
   }
 
-  /**
-   * 現在属している 4 分木ノードのインデックスを返す.
-   *
-   * @return 現在属している 4 分木ノードのインデックス
-   */
-  public int getIdxInQuadTree() {
-    return currentIdxInQuadTree;
+  /** 現在属している四分木空間の分割された空間を返す.  存在しない場合は null. */
+  QuadTreeCell getCell() {
+    return cell;
   }
 
   /**
-   * 4 分木ノードのインデックスをセットする.
+   * 現在属している四分木空間の分割された空間を設定する.
    *
-   * @param idxInQuadTree 4 分木ノードのインデックス
+   * @param cell 現在属している四分木空間の分割された空間. (nullable)
    */
-  public void setIdxInQuadTree(int idxInQuadTree) {
-    currentIdxInQuadTree = idxInQuadTree;
+  void setCell(QuadTreeCell cell) {
+    this.cell = cell;
   }
 
   /**
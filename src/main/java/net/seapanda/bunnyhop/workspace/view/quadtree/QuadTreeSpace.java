@@ -17,6 +17,7 @@
 package net.seapanda.bunnyhop.workspace.view.quadtree;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import net.seapanda.bunnyhop.utility.math.Vec2D;
 import net.seapanda.bunnyhop.workspace.view.quadtree.QuadTreeItem.OverlapOption;
@@ -24,24 +25,28 @@ import net.seapanda.bunnyhop.workspace.view.quadtree.QuadTreeItem.OverlapOption;
 /**
  * 四分木空間を使って衝突を管理するクラス.
  *
+ * <p>分割された空間はアイテムが登録されたときに作成される.
+ * 四分木空間の範囲外にアイテムが登録された場合, ルート空間の上に新たなルート空間を作って範囲を広げる.
+ * 既存の分割空間は作り直さない.
+ *
  * @author K.Koike
  */
 public class QuadTreeSpace {
 
-  /** 再帰的に分割する回数. */
-  private final int numRecursive;
+  /** ルート空間の階層の最大値. */
+  private static final int MAX_LEVEL = 30;
   /** 縦と横の分割数. */
-  private int numPartitions;
+  private final int numPartitions;
   /** 分割する空間横幅. */
-  private final double width;
+  private double width;
   /** 分割する空間の縦幅. */
-  private final double height;
-  /** 分割された空間の横幅. */
+  private double height;
+  /** 最も小さい分割空間の横幅. */
   private final double cellWidth;
-  /** 分割された空間の縦幅. */
+  /** 最も小さい分割空間の縦幅. */
   private final double cellHeight;
-  /** 四分木. */
-  private final ArrayList<QuadTreeItem> quadTree;
+  /** ルート空間. */
+  private QuadTreeCell root;
 
   /**
    * コンストラクタ.
@@ -51,38 +56,13 @@ public class QuadTreeSpace {
    * @param height 分割される空間の縦幅
    */
   public QuadTreeSpace(int numRecursive, double width, double height) {
-    this.numRecursive = numRecursive;
+    numRecursive = Math.clamp(numRecursive, 0, MAX_LEVEL);
     this.width = width;
     this.height = height;
-    numPartitions = 1;
-    for (int i = 0; i < numRecursive; ++i) {
-      numPartitions *= 2;
-    }
+    numPartitions = 1 << numRecursive;
     cellWidth = width / numPartitions;
     cellHeight = height / numPartitions;
-
-    int tmp = 1;
-    for (int i = 0; i < numRecursive + 1; ++i) {
-      tmp *= 4;
-    }
-    int numQuadTreeNode = (tmp - 1) / 3;
-    quadTree = new ArrayList<>(numQuadTreeNode);
-    for (int i = 0; i < numQuadTreeNode; ++i) {
-      quadTree.add(new QuadTreeItem());
-    }
-  }
-
-  /**
-   * コンストラクタ.
-   *
-   * @param org コピー元オブジェクト
-   * @param numRecursive 再帰的に分割する回数 (3 の場合縦横が 2**3 = 8 に分割され, 64個の小空間に分割される)
-   * @param width 分割される空間の横幅
-   * @param height 分割される空間の縦幅
-   * */
-  public QuadTreeSpace(QuadTreeSpace org, int numRecursive, double width, double height) {
-    this(numRecursive, width, height);
-    moveQuadTreeItems(org);
+    root = new QuadTreeCell(numRecursive, 0, 0);
   }
 
   /**
@@ -91,7 +71,7 @@ public class QuadTreeSpace {
    * @param item 追加するアイテム
    */
   public void addItem(QuadTreeItem item) {
-    item.remove();
+    QuadTreeCell.remove(item);
     item.setQtSpace(this);
     registerItem(item);
   }
@@ -102,21 +82,10 @@ public class QuadTreeSpace {
    * @param item 削除するアイテム
    */
   public static void removeItem(QuadTreeItem item) {
-    item.remove();
-    item.setIdxInQuadTree(-1);
+    QuadTreeCell.remove(item);
     item.setQtSpace(null);
   }
 
-  /** {@code old} の持つ {@link QuadTreeItem} をこの四分木空間に移し替える. */
-  private void moveQuadTreeItems(QuadTreeSpace old) {
-    for (QuadTreeItem headQuadTreeObj : old.quadTree) {
-      QuadTreeItem movedQuadTreeObj;
-      while ((movedQuadTreeObj = headQuadTreeObj.getNext()) != null) {
-        addItem(movedQuadTreeObj);
-      }
-    }
-  }
-
   /**
    * 四分木空間の大きさを取得する.
    *
@@ -126,6 +95,20 @@ public class QuadTreeSpace {
     return new Vec2D(width, height);
   }
 
+  /**
+   * 四分木空間の大きさを設定する.
+   *
+   * <p>分割された空間の大きさは変わらない.
+   * 四分木空間の範囲はアイテムの位置に応じて広がるので, 登録済みのアイテムを再登録する必要は無い.
+   *
+   * @param width 四分木空間の横幅
+   * @param height 四分木空間の縦幅
+   */
+  public void setSize(double width, double height) {
+    this.width = width;
+    this.height = height;
+  }
+
   /** {@code item} の位置が変わった事をこのオブジェクトに通知する. */
   public void notifyItemPositionChanged(QuadTreeItem item) {
     if (item.getQtSpace().orElse(null) != this) {
@@ -135,58 +118,70 @@ public class QuadTreeSpace {
   }
 
   /**
-   * 四分木空間に {@link QuadTreeItem} を登録する.
+   * {@code items} の位置が変わった事をこのオブジェクトに通知する.
    *
-   * @param item 四分木に登録されるオブジェクト
+   * <p>四分木空間の範囲の拡張は, 全てのアイテムを含むように 1 度だけ行う.
    */
-  private void registerItem(QuadTreeItem item) {
-    Vec2D upperLeft = item.getUpperLeft();
-    Vec2D lowerRight = item.getLowerRight();
-    int upperLeftMortonNum = getMortonNumber(upperLeft);
-    int lowerRightMortonNum = getMortonNumber(lowerRight);
-    int quadTreeIndex = getQuadTreeIndex(upperLeftMortonNum, lowerRightMortonNum);
-    item.remove();
-    item.setIdxInQuadTree(quadTreeIndex);
-    quadTree.get(quadTreeIndex).connectToNext(item);  // 所属空間変更
-  }
-
-  private int getQuadTreeIndex(int upperLeftMortonNum, int lowerRightMortonNum) {
-    int xorMorton = (upperLeftMortonNum ^ lowerRightMortonNum) << 2 | 0x00000003;
-    int spaceLevel = 0; // 分割空間レベル (0:ルート, 1:親, 2:子, 3:孫, ...)
-    int levelDecision = 0x3 << numRecursive * 2;
-    while ((xorMorton & levelDecision) == 0) {
-      xorMorton <<= 2;
-      ++spaceLevel;
+  public void notifyItemPositionsChanged(Collection<? extends QuadTreeItem> items) {
+    int maxAddrX = 0;
+    int maxAddrY = 0;
+    for (QuadTreeItem item : items) {
+      if (item.getQtSpace().orElse(null) == this) {
+        maxAddrX = Math.max(maxAddrX, getAddressX(item.getMaxX()));
+        maxAddrY = Math.max(maxAddrY, getAddressY(item.getMaxY()));
+      }
     }
-    int spaceMortonNum = lowerRightMortonNum >>> ((numRecursive - spaceLevel) * 2);
-    int tmp = 1;
-    for (int i = 0; i < spaceLevel; ++i) {
-      tmp *= 4;
+    growToContain(maxAddrX, maxAddrY);
+    for (QuadTreeItem item : items) {
+      notifyItemPositionChanged(item);
     }
-    return (tmp - 1) / 3 + spaceMortonNum;
   }
 
   /**
-   * 点の位置からモートン番号を求める.
+   * 四分木空間に {@link QuadTreeItem} を登録する.
+   * {@code item} が登録されるべき空間に既に登録されている場合は何もしない.
    *
-   * @param pos モートン番号を求める位置
-   * @return モートン番号
+   * @param item 四分木に登録されるオブジェクト
    */
-  private int getMortonNumber(Vec2D pos) {
-    int adjustedX = (int) Math.clamp(pos.x, 0, width - 1);
-    int adjustedY = (int) Math.clamp(pos.y, 0, height - 1);
-    int addressX = (int) (adjustedX / cellWidth);
-    int addressY = (int) (adjustedY / cellHeight);
-    return separateBits(addressX) | (separateBits(addressY) << 1);
+  private void registerItem(QuadTreeItem item) {
+    int upperLeftX = getAddressX(item.getMinX());
+    int upperLeftY = getAddressY(item.getMinY());
+    int lowerRightX = getAddressX(item.getMaxX());
+    int lowerRightY = getAddressY(item.getMaxY());
+    growToContain(lowerRightX, lowerRightY);
+    // 左上と右下の位置が異なる最上位ビットから, 両方を含む最小の空間の階層を求める.
+    int diff = (upperLeftX ^ lowerRightX) | (upperLeftY ^ lowerRightY);
+    int level = Integer.SIZE - Integer.numberOfLeadingZeros(diff);
+    int posX = lowerRightX >>> level;
+    int posY = lowerRightY >>> level;
+    QuadTreeCell current = item.getCell();
+    if (current != null && current.isAt(level, posX, posY)) {
+      return;
+    }
+    QuadTreeCell.remove(item);
+    root.getOrCreateDescendant(level, posX, posY).add(item);
   }
 
-  private int separateBits(int address) {
-    address = (address | (address << 8)) & 0x00ff00ff;
-    address = (address | (address << 4)) & 0x0f0f0f0f;
-    address = (address | (address << 2)) & 0x33333333;
-    return (address | (address << 1)) & 0x55555555;
+  /** 最も小さい分割空間の単位で表した位置 ({@code addrX}, {@code addrY}) を含むまでルート空間を広げる. */
+  private void growToContain(int addrX, int addrY) {
+    while (root.level < MAX_LEVEL && ((addrX | addrY) >>> root.level) != 0) {
+      var newRoot = new QuadTreeCell(root.level + 1, 0, 0);
+      newRoot.children[0] = root;
+      newRoot.numItems = root.numItems;
+      root.parent = newRoot;
+      root = newRoot;
+    }
   }
 
+  /** X 座標を最も小さい分割空間の単位で表した位置に変換する. */
+  private int getAddressX(double x) {
+    return (int) Math.clamp(x / cellWidth, 0, (1 << MAX_LEVEL) - 1);
+  }
+
+  /** Y 座標を最も小さい分割空間の単位で表した位置に変換する. */
+  private int getAddressY(double y) {
+    return (int) Math.clamp(y / cellHeight, 0, (1 << MAX_LEVEL) - 1);
+  }
 
   /**
    * {@code item} に重なる {@link QuadTreeItem} を四分木空間の中から見つける.
@@ -196,20 +191,17 @@ public class QuadTreeSpace {
    * @return 引数で指定した {@link QuadTreeItem} に重なる {@link QuadTreeItem} のリスト
    */
   public ArrayList<QuadTreeItem> search(QuadTreeItem item, OverlapOption option) {
-    if (item.getQtSpace().orElse(null) != this) {
+    QuadTreeCell cell = item.getCell();
+    if (item.getQtSpace().orElse(null) != this || cell == null) {
       return new ArrayList<>();
     }
     //子空間から探す
-    int idxInQuadTree = item.getIdxInQuadTree();
     ArrayList<QuadTreeItem> overlappedList = new ArrayList<>();
-    searchSubSpaces(idxInQuadTree, item, option, overlappedList);
+    searchSubSpaces(cell, item, option, overlappedList);
 
     //親空間から探す
-    int nextSearchIdx = idxInQuadTree - 1;
-    while (nextSearchIdx >= 0) {
-      nextSearchIdx /= 4;
-      searchSpace(nextSearchIdx, item, option, overlappedList);
-      nextSearchIdx -= 1;
+    for (QuadTreeCell parent = cell.parent; parent != null; parent = parent.parent) {
+      searchSpace(parent, item, option, overlappedList);
     }
     overlappedList.remove(item);
 
@@ -218,37 +210,40 @@ public class QuadTreeSpace {
   }
 
   /**
-   * {@code idx} の四分木空間とその下位空間から {@code item} に重なる {@link QuadTreeItem} オブジェクトを見つける.
+   * {@code cell} とその下位空間から {@code item} に重なる {@link QuadTreeItem} オブジェクトを見つける.
    *
-   * @param idx この四分木空間以下の空間から @code item} に重なっている {@link QuadTreeItem} オブジェクトを見つける
+   * @param cell この空間以下の空間から {@code item} に重なっている {@link QuadTreeItem} オブジェクトを見つける
    * @param item このオブジェクトに重なっている {@link QuadTreeItem} を見つける
    * @param option 検索オプション
    * @param overlappedList 重なっている {@link QuadTreeItem} オブジェクトを格納するリスト
    * */
   private void searchSubSpaces(
-      int idx, QuadTreeItem item, OverlapOption option, List<QuadTreeItem> overlappedList) {
-    searchSpace(idx, item, option, overlappedList);
-    int childIdx = idx * 4 + 1;
-    if (childIdx <= quadTree.size() - 1) {
-      searchSubSpaces(childIdx,     item, option, overlappedList);
-      searchSubSpaces(childIdx + 1, item, option, overlappedList);
-      searchSubSpaces(childIdx + 2, item, option, overlappedList);
-      searchSubSpaces(childIdx + 3, item, option, overlappedList);
+      QuadTreeCell cell,
+      QuadTreeItem item,
+      OverlapOption option,
+      List<QuadTreeItem> overlappedList) {
+    searchSpace(cell, item, option, overlappedList);
+    for (QuadTreeCell child : cell.children) {
+      if (child != null) {
+        searchSubSpaces(child, item, option, overlappedList);
+      }
     }
   }
 
   /**
-   * {@code idx} で指定したサブ空間から {@code item} に重なる {@link QuadTreeItem} オブジェクトを見つける.
+   * {@code cell} から {@code item} に重なる {@link QuadTreeItem} オブジェクトを見つける.
    *
-   * @param idx この四分木空間から rectangleに重なっている {@link QuadTreeItem} オブジェクトを見つける
+   * @param cell この空間から {@code item} に重なっている {@link QuadTreeItem} オブジェクトを見つける
    * @param item このオブジェクトに重なっている {@link QuadTreeItem} オブジェクトを見つける
    * @param option 検索オプション
    * @param overlappedList 重なっている {@link QuadTreeItem} オブジェクトを格納するリスト
    * */
   private void searchSpace(
-      int idx, QuadTreeItem item, OverlapOption option, List<QuadTreeItem> overlappedList) {
-    QuadTreeItem head = quadTree.get(idx);
-    QuadTreeItem next = head.getNext();
+      QuadTreeCell cell,
+      QuadTreeItem item,
+      OverlapOption option,
+      List<QuadTreeItem> overlappedList) {
+    QuadTreeItem next = cell.head.getNext();
     while (next != null) {
       if (item.overlapsWith(next, option)) {
         overlappedList.add(next);
@@ -287,14 +282,7 @@ public class QuadTreeSpace {
    * @return 登録されているBhNodeの数
    */
   public int calcRegisteredNodeNum() {
-    int numOfNode = 0;
-    for (QuadTreeItem head : quadTree) {
-      QuadTreeItem rect = head;
-      while ((rect = rect.getNext()) != null) {
-        ++numOfNode;
-      }
-    }
-    return numOfNode;
+    return root.numItems;
   }
 
   /**